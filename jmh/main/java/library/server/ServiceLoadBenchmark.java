@@ -0,0 +1,171 @@
+package main.java.library.server;
+
+import main.java.library.models.Book;
+import main.java.library.models.Member;
+import main.java.library.utils.DataManager;
+import main.java.library.utils.LibraryDataGenerator;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a {@link LibraryServer} with many simulated desks at once. The desks each
+ * run on a virtual thread. Each desk loops through a search, a member lookup, an
+ * issue of a random book and the return of that book, and collects the fine about
+ * one time in ten. Every response must have the status the API promises (409 is
+ * fine when a copy or the member limit runs out). At the end no copy may be out
+ * and no loan may be open beyond those the library started with.
+ * <p>
+ * With no URL it starts a server in this JVM on a free port, filled by
+ * {@link LibraryDataGenerator}. Arguments:
+ * {@code [desks] [seconds] [books] [http://host:port]}. It can drive a server in
+ * another process, so it is a plain main rather than a JMH benchmark, and like the
+ * server it needs JDK 21. Run it with the {@code driver} profile:
+ * {@code mvn -Pdriver verify -DskipTests -Ddriver=main.java.library.server.ServiceLoadBenchmark -Ddriver.args="200 10"}.
+ */
+public class ServiceLoadBenchmark {
+    private static final String[] QUERIES = {"river", "silent", "garden", "theory", "the"};
+
+    public static void main(String[] args) throws Exception {
+        int desks = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int bookCount = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        String base = args.length > 3 ? args[3] : null;
+
+        LibraryServer server = null;
+        DataManager dm = null;
+        int bookIds;
+        int memberIds;
+        if (base == null) {
+            dm = DataManager.getInstance();
+            new LibraryDataGenerator(new LibraryDataGenerator.Options()
+                    .books(bookCount).members(Math.max(desks, bookCount / 10)).years(1)).generate().loadInto(dm);
+            server = new LibraryServer(dm, 0);
+            server.start();
+            base = "http://localhost:" + server.getPort();
+        }
+        String api = base + "/api";
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        Map<String, String> stats = Json.parseObject(get(client, api + "/stats").body());
+        bookIds = Integer.parseInt(stats.get("totalBooks"));
+        memberIds = Integer.parseInt(stats.get("totalMembers"));
+        int startLoans = Integer.parseInt(stats.get("activeLoans"));
+
+        AtomicLong requests = new AtomicLong();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger issued = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(desks);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        long startNanos = System.nanoTime();
+        for (int d = 0; d < desks; d++) {
+            SplittableRandom random = new SplittableRandom(d);
+            executor.submit(() -> {
+                long[] samples = new long[1 << 16];
+                int n = 0;
+                try {
+                    while (running.get()) {
+                        String member = String.valueOf(1 + random.nextInt(memberIds));
+                        String book = String.valueOf(1 + random.nextInt(bookIds));
+                        long t0 = System.nanoTime();
+                        expect(get(client, api + "/books?limit=20&q=" + QUERIES[random.nextInt(QUERIES.length)]), 200, failures);
+                        expect(get(client, api + "/members/" + member + "/loans"), 200, failures);
+                        HttpResponse<String> issue = post(client, api + "/loans",
+                                "{\"bookId\": " + book + ", \"memberId\": " + member + "}");
+                        requests.addAndGet(3);
+                        if (issue.statusCode() == 201) {
+                            issued.incrementAndGet();
+                            String loanId = Json.parseObject(issue.body()).get("id");
+                            expect(post(client, api + "/loans/" + loanId + "/return", ""), 200, failures);
+                            requests.incrementAndGet();
+                            if (random.nextInt(10) == 0) {
+                                post(client, api + "/loans/" + loanId + "/fine", "");
+                                requests.incrementAndGet();
+                            }
+                        } else if (issue.statusCode() == 409 || issue.statusCode() == 404) {
+                            refused.incrementAndGet();
+                        } else {
+                            failures.incrementAndGet();
+                        }
+                        if (n < samples.length) samples[n++] = System.nanoTime() - t0;
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                    e.printStackTrace();
+                } finally {
+                    latencies.add(Arrays.copyOf(samples, n));
+                    done.countDown();
+                }
+            });
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        done.await();
+        double elapsed = (System.nanoTime() - startNanos) / 1e9;
+        executor.shutdown();
+
+        stats = Json.parseObject(get(client, api + "/stats").body());
+        int endLoans = Integer.parseInt(stats.get("activeLoans"));
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%d desks, %.1f s: %,d requests (%,.0f/s), %,d loans issued and returned, %,d refused%n",
+                desks, elapsed, requests.get(), requests.get() / elapsed, issued.get(), refused.get());
+        System.out.printf("desk round trip (search, lookup, issue, return): p50 %.2f ms, p95 %.2f ms, p99 %.2f ms%n",
+                percentile(all, 0.50), percentile(all, 0.95), percentile(all, 0.99));
+
+        boolean ok = failures.get() == 0 && endLoans == startLoans;
+        if (dm != null) {
+            for (Book b : dm.getBooks()) {
+                if (b.getAvailableQuantity() < 0 || b.getAvailableQuantity() > b.getQuantity()) ok = false;
+            }
+            int limit = dm.getLibraryInfo().getMaxBooksPerStudent();
+            for (Member m : dm.getMembers()) {
+                if (dm.getMemberBorrowedCount(m) > limit) ok = false;
+            }
+        }
+        System.out.println(failures.get() + " failures, open loans " + startLoans + " -> " + endLoans);
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (server != null) server.stop();
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static void expect(HttpResponse<String> response, int status, AtomicInteger failures) {
+        if (response.statusCode() != status) {
+            failures.incrementAndGet();
+            System.out.println(response.statusCode() + " " + response.uri() + " " + response.body());
+        }
+    }
+
+    private static HttpResponse<String> get(HttpClient client, String url) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpResponse<String> post(HttpClient client, String url, String body) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))] / 1e6;
+    }
+}
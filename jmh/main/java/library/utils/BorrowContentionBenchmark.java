@@ -0,0 +1,90 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures borrow/return throughput when many threads hammer one hot title. The
+ * lock-free counter on {@link Book} is compared with the synchronized version it
+ * replaced. Each thread borrows a copy and returns it. A failed borrow (every
+ * copy out) counts as an operation too, because it is a request the desk has to
+ * answer.
+ * <p>
+ * Runs on as many threads as there are cores; pass {@code -t 1}, {@code -t 2} and
+ * so on in {@code jmh.args} to see how each scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class BorrowContentionBenchmark {
+    @Param("3")
+    public int copies;
+
+    private Book book;
+    private SynchronizedCopies locked;
+
+    @Setup(Level.Iteration)
+    public void shelve() {
+        book = new Book(1, "Hot Title", "Author", "", true, "Test", "Test", "Z9", copies, copies);
+        locked = new SynchronizedCopies(copies);
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkEveryCopyIsBack() {
+        if (book.getAvailableQuantity() != copies) {
+            throw new IllegalStateException("CAS counter drifted to " + book.getAvailableQuantity());
+        }
+    }
+
+    @Benchmark
+    public boolean cas() {
+        return book.borrowCopy() && book.returnCopy();
+    }
+
+    @Benchmark
+    public boolean synchronizedCounter() {
+        return locked.borrowCopy() && locked.returnCopy();
+    }
+
+    // The monitor-based counter Book used before, kept here as the baseline.
+    private static class SynchronizedCopies {
+        private final int quantity;
+        private int availableQuantity;
+
+        SynchronizedCopies(int quantity) {
+            this.quantity = quantity;
+            this.availableQuantity = quantity;
+        }
+
+        synchronized boolean borrowCopy() {
+            if (availableQuantity <= 0) return false;
+            availableQuantity--;
+            return true;
+        }
+
+        synchronized boolean returnCopy() {
+            if (availableQuantity >= quantity) return false;
+            availableQuantity++;
+            return true;
+        }
+    }
+}
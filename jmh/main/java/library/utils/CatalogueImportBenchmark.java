@@ -0,0 +1,94 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times a bulk catalogue import. Before each import the books of a generated
+ * library are written to a CSV file, with every hundredth row a copy of an
+ * earlier ISBN and every five-hundredth row missing its author. Each file gets
+ * ISBNs of its own, so every import adds its books to the store rather than
+ * finding them all there already.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CatalogueImportBenchmark {
+    @Param("200000")
+    public int rows;
+
+    private DataManager dm;
+    private List<Book> books;
+    private Path file;
+    private int imports;
+
+    @Setup
+    public void generate() {
+        dm = DataManager.getInstance();
+        books = new LibraryDataGenerator(new LibraryDataGenerator.Options()
+                .books(rows).members(1).years(1).loansPerMemberYear(0).requests(0)).generate().getBooks();
+    }
+
+    @Setup(Level.Invocation)
+    public void writeFile() throws IOException {
+        file = Files.createTempFile("catalogue", ".csv");
+        long first = (long) rows * imports++;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("title,author,isbn,section,genre,shelf,quantity\n");
+            for (int i = 0; i < books.size(); i++) {
+                Book b = books.get(i);
+                String isbn = isbn(first + (i % 100 == 99 ? i - 1 : i));
+                String author = i % 500 == 499 ? "" : b.getAuthor();
+                out.write(quote(b.getTitle()) + "," + quote(author) + "," + isbn + "," + quote(b.getSection()) + ","
+                        + quote(b.getGenre()) + "," + b.getShelf() + "," + b.getQuantity() + "\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteFile() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public CatalogueImporter.Result importFile() throws IOException {
+        return new CatalogueImporter(dm).importFile(file, percent -> true);
+    }
+
+    // ISBN-13s in the 979-1 range, apart from the generator's 979-9 ones.
+    private static String isbn(long n) {
+        String body = "979" + String.format("%09d", 100_000_000L + n);
+        int sum = 0;
+        for (int d = 0; d < 12; d++) {
+            sum += (body.charAt(d) - '0') * (d % 2 == 0 ? 1 : 3);
+        }
+        return "979-" + body.substring(3) + (10 - sum % 10) % 10;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
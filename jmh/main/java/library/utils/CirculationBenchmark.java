@@ -0,0 +1,108 @@
+package main.java.library.utils;
+
+import main.java.library.models.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares circulation queries on {@link CirculationHistory} with the same
+ * queries as stream scans over the returned {@link Transaction} objects. The
+ * queries are loans by genre, by section and by month, genre by month, and the
+ * median and 90th percentile loan length. Each member borrows twelve books a
+ * year, so the defaults are about 1.2 million closed loans.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class CirculationBenchmark {
+    private static final long ALL_FROM = Long.MIN_VALUE;
+    private static final long ALL_TO = Long.MAX_VALUE;
+
+    @Param("20000")
+    public int members;
+
+    @Param("5")
+    public int years;
+
+    private CirculationHistory history;
+    private List<Transaction> closed;
+
+    @Setup
+    public void generate() {
+        DataManager dm = DataManager.getInstance();
+        new LibraryDataGenerator(new LibraryDataGenerator.Options()
+                .books(members).members(members).years(years).loansPerMemberYear(12)).generate().loadInto(dm);
+        closed = dm.getTransactions().stream().filter(Transaction::isReturned).collect(Collectors.toList());
+        history = dm.getCirculationHistory();
+    }
+
+    @Benchmark
+    public List<CirculationHistory.Group> byGenreColumns() {
+        return history.groupBy(CirculationHistory.Dimension.GENRE, ALL_FROM, ALL_TO);
+    }
+
+    @Benchmark
+    public Map<String, Long> byGenreStreams() {
+        return closed.stream().collect(Collectors.groupingBy(t -> t.getBook().getGenre(), Collectors.counting()));
+    }
+
+    @Benchmark
+    public List<CirculationHistory.Group> bySectionColumns() {
+        return history.groupBy(CirculationHistory.Dimension.SECTION, ALL_FROM, ALL_TO);
+    }
+
+    @Benchmark
+    public Map<String, Long> bySectionStreams() {
+        return closed.stream().collect(Collectors.groupingBy(t -> t.getBook().getSection(), Collectors.counting()));
+    }
+
+    @Benchmark
+    public List<CirculationHistory.Group> byMonthColumns() {
+        return history.groupBy(CirculationHistory.Dimension.MONTH, ALL_FROM, ALL_TO);
+    }
+
+    @Benchmark
+    public Map<LocalDate, Long> byMonthStreams() {
+        return closed.stream().collect(Collectors.groupingBy(t -> t.getReturnDate().withDayOfMonth(1), Collectors.counting()));
+    }
+
+    @Benchmark
+    public CirculationHistory.Table genreByMonthColumns() {
+        return history.countBy(CirculationHistory.Dimension.GENRE, CirculationHistory.Dimension.MONTH, ALL_FROM, ALL_TO);
+    }
+
+    @Benchmark
+    public Map<String, Map<LocalDate, Long>> genreByMonthStreams() {
+        return closed.stream().collect(Collectors.groupingBy(t -> t.getBook().getGenre(),
+                Collectors.groupingBy(t -> t.getReturnDate().withDayOfMonth(1), Collectors.counting())));
+    }
+
+    @Benchmark
+    public int[] loanLengthColumns() {
+        return history.loanDurationPercentiles(ALL_FROM, ALL_TO, 0.5, 0.9);
+    }
+
+    @Benchmark
+    public int[] loanLengthStreams() {
+        long[] days = closed.stream().mapToLong(t -> t.getReturnDate().toEpochDay() - t.getBorrowDate().toEpochDay()).sorted().toArray();
+        return new int[]{(int) days[(int) Math.ceil(0.5 * days.length) - 1], (int) days[(int) Math.ceil(0.9 * days.length) - 1]};
+    }
+}
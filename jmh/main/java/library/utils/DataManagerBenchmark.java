@@ -0,0 +1,104 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the DataManager calls the desks and the Reports tab make most often, at
+ * synthetic library sizes of 10k, 100k and 1M records. The records come from
+ * {@link LibraryDataGenerator}: per record one book and about one loan from the
+ * past year, and one member per ten records. JMH forks a fresh JVM for every
+ * size, so each starts from an empty singleton.
+ * <p>
+ * Run with {@code mvn -Pjmh verify -Djmh.include=DataManagerBenchmark
+ * -Djmh.results=bench/results.json}, so a run can be diffed against the one from
+ * the last release. Runs against the in-memory store only. The 1M size wants a
+ * heap of about 2 GB, so the forks get 3 GB.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class DataManagerBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int records;
+
+    private DataManager dm;
+    private List<Member> members;
+    private List<Book> books;
+
+    @Setup
+    public void populate() {
+        if (DBConnection.getConfig().isEnabled()) {
+            throw new IllegalStateException("DataManagerBenchmark writes junk records; run it without library.db.enabled");
+        }
+        dm = DataManager.getInstance();
+        LibraryDataGenerator.Options options = new LibraryDataGenerator.Options()
+                .books(records).members(Math.max(1, records / 10)).years(1).loansPerMemberYear(10)
+                .requests(records / 100).seed(42);
+        new LibraryDataGenerator(options).generate().loadInto(dm);
+        books = dm.getBooks();
+        members = dm.getMembers();
+    }
+
+    @Benchmark
+    public List<Book> searchBooks() {
+        return dm.searchBooks("silent river");
+    }
+
+    @Benchmark
+    public List<Book> searchBooksByAuthor() {
+        return dm.searchBooksByField("tanaka", "Author");
+    }
+
+    @Benchmark
+    public int getMemberBorrowedCount() {
+        return dm.getMemberBorrowedCount(members.get(ThreadLocalRandom.current().nextInt(members.size())));
+    }
+
+    @Benchmark
+    public List<Transaction> getOverdueTransactions() {
+        return dm.getOverdueTransactions();
+    }
+
+    @Benchmark
+    public boolean addTransactionAndReturnBook() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Book book = books.get(random.nextInt(books.size()));
+        Member member = members.get(random.nextInt(members.size()));
+        LocalDate today = LibraryClock.todayDate();
+        Transaction t = new Transaction(0, book, member, today, today.plusDays(14));
+        return dm.addTransaction(t) && dm.returnBook(t);
+    }
+
+    /** The six cards on the Reports tab, from the running totals. */
+    @Benchmark
+    public double reportAggregates() {
+        return dm.getTotalBooks() + dm.getTotalMembers() + dm.getActiveLoansCount() + dm.getOverdueCount()
+                + dm.getTotalFinesCollected() + dm.getTotalOutstandingFines();
+    }
+
+    @Benchmark
+    public List<String> getGenres() {
+        return dm.getGenres();
+    }
+}
@@ -0,0 +1,108 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old per-render fine and status evaluation with the epoch-day
+ * version. The old one read {@code LocalDate.now()}, used {@code ChronoUnit.DAYS.between}
+ * and called {@code String.format} for every overdue row. The new one reads the
+ * cached {@link Transaction#getFineText(long)} and returns a
+ * {@link main.java.library.models.LoanStatus}. Each invocation renders the fine
+ * and status cells of every loan, as a full table repaint would, and the score
+ * is per loan.
+ * <p>
+ * Run with {@code mvn -Pjmh verify -Djmh.include=FineBenchmark -Djmh.args="-prof gc"}
+ * to also see the bytes allocated per loan ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FineBenchmark {
+    private static final int LOANS = 200_000;
+    private static final double FINE_PER_DAY = 2.0;
+
+    private List<Transaction> loans;
+
+    @Setup
+    public void generate() {
+        Random random = new Random(42);
+        Book book = new Book(1, "Title", "Author", "", true, "Test", "Test", "Z9", 1, 1);
+        Member member = new Member(1, "Member", "member@test", "", LocalDate.now());
+        LocalDate today = LibraryClock.todayDate();
+        loans = new ArrayList<>(LOANS);
+        for (int i = 0; i < LOANS; i++) {
+            LocalDate borrowed = today.minusDays(random.nextInt(60));
+            Transaction t = new Transaction(i + 1, book, member, borrowed, borrowed.plusDays(14));
+            if (random.nextInt(3) == 0) {
+                t.setReturnDate(borrowed.plusDays(random.nextInt(30)));
+            }
+            loans.add(t);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOANS)
+    public long before() {
+        long sink = 0;
+        for (Transaction t : loans) {
+            sink += renderBefore(t);
+        }
+        return sink;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOANS)
+    public long after() {
+        long sink = 0;
+        for (Transaction t : loans) {
+            String fine = t.getFineText(LibraryClock.today());
+            sink += t.getStatus().ordinal() + fine.length();
+        }
+        return sink;
+    }
+
+    // The Transaction.calculateFine()/getStatus() bodies this change replaced.
+    private static int renderBefore(Transaction t) {
+        double fine;
+        if (t.getReturnDate() != null) {
+            fine = t.getReturnDate().isAfter(t.getDueDate())
+                    ? ChronoUnit.DAYS.between(t.getDueDate(), t.getReturnDate()) * FINE_PER_DAY : 0.0;
+        } else if (LocalDate.now().isAfter(t.getDueDate())) {
+            fine = ChronoUnit.DAYS.between(t.getDueDate(), LocalDate.now()) * FINE_PER_DAY;
+        } else {
+            fine = 0.0;
+        }
+        String status;
+        if (t.getReturnDate() != null) {
+            status = "Returned";
+        } else if (LocalDate.now().isAfter(t.getDueDate())) {
+            status = String.format("Overdue (Fine: $%.2f)", fine);
+        } else {
+            status = "Active";
+        }
+        return status.length() + (int) fine;
+    }
+}
@@ -0,0 +1,150 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Measures a cold restart from the journal and checks it restores exactly what
+ * was there. A first JVM fills a fresh journal with a generated library, takes a
+ * snapshot, then issues, returns and fines loans to leave a tail of events behind
+ * the snapshot. It stops with {@link Runtime#halt}, so no shutdown hook runs, as
+ * if the process were killed. A second JVM opens the same directory and times
+ * {@link DataManager#getInstance()}. Both print a digest of the state, and the two
+ * digests must match.
+ * <p>
+ * Arguments: {@code [books] [tailEvents] [dir]}. Members are a tenth of the books,
+ * each with three years of loans at twelve a year. The directory is wiped first.
+ * It needs two JVMs, so it is a plain main rather than a JMH benchmark. Run it
+ * with the {@code driver} profile:
+ * {@code mvn -Pdriver verify -DskipTests -Ddriver=main.java.library.utils.JournalRecoveryBenchmark -Ddriver.args="100000 100000"}.
+ */
+public class JournalRecoveryBenchmark {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && (args[0].equals("populate") || args[0].equals("recover"))) {
+            child(args);
+            return;
+        }
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int tail = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        Path dir = Paths.get(args.length > 2 ? args[2] : System.getProperty("java.io.tmpdir") + "/library-journal-bench");
+        wipe(dir);
+
+        String populated = run("populate", dir, books, tail);
+        String recovered = run("recover", dir, books, tail);
+        System.out.printf("journal directory: %,d KB%n", directorySize(dir) / 1024);
+        System.out.println(populated.equals(recovered) ? "PASS" : "FAIL");
+        System.exit(populated.equals(recovered) ? 0 : 1);
+    }
+
+    private static void child(String[] args) {
+        System.setProperty("library.journal.dir", args[1]);
+        if (args[0].equals("recover")) {
+            long start = System.nanoTime();
+            DataManager dm = DataManager.getInstance();
+            System.out.printf("recovered %,d loans in %.0f ms%n",
+                    dm.getTransactions().size(), (System.nanoTime() - start) / 1e6);
+            System.out.println("digest " + digest(dm));
+            Runtime.getRuntime().halt(0);
+        }
+
+        int books = Integer.parseInt(args[2]);
+        int tail = Integer.parseInt(args[3]);
+        long start = System.nanoTime();
+        DataManager dm = DataManager.getInstance();
+        new LibraryDataGenerator(new LibraryDataGenerator.Options()
+                .books(books).members(books / 10).requests(books / 100)).generate().loadInto(dm);
+        System.out.printf("journaled %,d loans in %.0f ms%n",
+                dm.getTransactions().size(), (System.nanoTime() - start) / 1e6);
+        start = System.nanoTime();
+        dm.writeSnapshot();
+        System.out.printf("snapshot written in %.0f ms%n", (System.nanoTime() - start) / 1e6);
+
+        SplittableRandom random = new SplittableRandom(7);
+        List<Book> catalogue = dm.getBooks();
+        List<Member> roster = dm.getMembers();
+        List<Transaction> open = new ArrayList<>(dm.getActiveTransactions());
+        start = System.nanoTime();
+        for (int i = 0; i < tail; i++) {
+            int action = random.nextInt(10);
+            if (action < 5 || open.isEmpty()) {
+                Book book = catalogue.get(random.nextInt(catalogue.size()));
+                Member member = roster.get(random.nextInt(roster.size()));
+                Transaction t = new Transaction(0, book, member, LibraryClock.todayDate(), LibraryClock.todayDate().plusDays(14));
+                if (dm.addTransaction(t)) open.add(t);
+            } else if (action < 9) {
+                Transaction t = open.remove(random.nextInt(open.size()));
+                dm.returnBook(t);
+            } else {
+                List<Transaction> overdue = dm.getOverdueTransactions();
+                if (!overdue.isEmpty()) dm.collectFine(overdue.get(random.nextInt(overdue.size())).getId());
+            }
+        }
+        System.out.printf("%,d tail operations in %.0f ms%n", tail, (System.nanoTime() - start) / 1e6);
+        System.out.println("digest " + digest(dm));
+        Runtime.getRuntime().halt(0);
+    }
+
+    private static String digest(DataManager dm) {
+        long available = 0;
+        long bookHash = 0;
+        for (Book b : dm.getBooks()) {
+            available += b.getAvailableQuantity();
+            bookHash = bookHash * 31 + b.getId() + b.getTitle().hashCode();
+        }
+        long loanHash = 0;
+        for (Transaction t : dm.getTransactions()) {
+            loanHash = loanHash * 31 + t.getId() + t.getBook().getId() * 7L + t.getMember().getId() * 13L
+                    + (t.isReturned() ? t.getReturnDate().toEpochDay() : 0) + (t.isFinePaid() ? 1 : 0);
+        }
+        return dm.getTotalBooks() + " " + dm.getTotalMembers() + " " + dm.getTransactions().size() + " "
+                + dm.getActiveLoansCount() + " " + dm.getOverdueCount() + " " + available + " "
+                + dm.getTotalFinesCollected() + " " + dm.getTotalOutstandingFines() + " "
+                + dm.getBookRequests().size() + " " + Long.toHexString(bookHash) + " " + Long.toHexString(loanHash);
+    }
+
+    private static String run(String phase, Path dir, int books, int tail) throws IOException, InterruptedException {
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        Process process = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+                JournalRecoveryBenchmark.class.getName(), phase, dir.toString(), String.valueOf(books), String.valueOf(tail))
+                .redirectErrorStream(true)
+                .start();
+        String digest = null;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("digest ")) digest = line.substring(7);
+                System.out.println(phase + ": " + line);
+            }
+        }
+        process.waitFor();
+        return String.valueOf(digest);
+    }
+
+    private static void wipe(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    private static long directorySize(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Times the report export on a generated library with a long loan history.
+ * {@link #legacyText} is the old export: an unbuffered {@link FileWriter}, a
+ * {@code String.format} per line and a borrowed-count lookup per member. It only
+ * writes the open loans, since that export had no history section.
+ * {@link #export} streams the whole history through {@link ReportExporter} in
+ * each format.
+ * <p>
+ * Each member gets three years of loans at twelve a year, so the default 30,000
+ * members is about a million loans.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ReportExportBenchmark {
+    @Param("30000")
+    public int members;
+
+    private DataManager dm;
+    private Path dir;
+
+    @Setup
+    public void generate() throws IOException {
+        dm = DataManager.getInstance();
+        new LibraryDataGenerator(new LibraryDataGenerator.Options()
+                .books(members).members(members).years(3).loansPerMemberYear(12)).generate().loadInto(dm);
+        dir = Files.createTempDirectory("report-export");
+    }
+
+    @TearDown
+    public void deleteFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+        }
+        Files.delete(dir);
+    }
+
+    // A state of its own, so legacyText is not run once per format.
+    @State(Scope.Benchmark)
+    public static class Output {
+        @Param({"TEXT", "CSV", "JSON_LINES"})
+        public ReportExporter.Format format;
+    }
+
+    @Benchmark
+    public boolean export(Output output) throws IOException {
+        ReportExporter.Format format = output.format;
+        return new ReportExporter(dm).export(dir.resolve("report." + format.getExtension()), format, percent -> true);
+    }
+
+    @Benchmark
+    public Path legacyText() throws IOException {
+        Path path = dir.resolve("legacy.txt");
+        try (FileWriter writer = new FileWriter(path.toFile())) {
+            writer.write("=== Library Report ===\n");
+            writer.write(String.format("Total Fines Collected: $%.2f\n", dm.getTotalFinesCollected()));
+            writer.write("\n=== Books ===\n");
+            for (Book b : dm.getBooks()) {
+                writer.write(String.format("  %d. %s by %s [%s] - %s, Shelf %s (Qty: %d, Available: %d)\n",
+                        b.getId(), b.getTitle(), b.getAuthor(), b.getGenre(),
+                        b.getSection(), b.getShelf(), b.getQuantity(), b.getAvailableQuantity()));
+            }
+            writer.write("\n=== Members ===\n");
+            for (Member m : dm.getMembers()) {
+                writer.write(String.format("  %d. %s (%s) - Borrowed: %d\n",
+                        m.getId(), m.getName(), m.getEmail(), dm.getMemberBorrowedCount(m)));
+            }
+            writer.write("\n=== Active Transactions ===\n");
+            for (Transaction t : dm.getActiveTransactions()) {
+                writer.write(String.format("  %d. %s -> %s (Due: %s)\n",
+                        t.getId(), t.getBook().getTitle(), t.getMember().getName(), t.getDueDate()));
+            }
+            writer.write("\n=== Overdue Transactions ===\n");
+            for (Transaction t : dm.getOverdueTransactions()) {
+                writer.write(String.format("  %d. %s -> %s (Due: %s, Fine: $%.2f)\n",
+                        t.getId(), t.getBook().getTitle(), t.getMember().getName(), t.getDueDate(), t.calculateFine()));
+            }
+        }
+        return path;
+    }
+}
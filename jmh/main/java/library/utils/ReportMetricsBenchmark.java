@@ -0,0 +1,98 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import main.java.library.models.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Times a full recomputation of the Reports-tab figures on a generated library.
+ * {@link #sequentialStreams} is the old way: a separate sequential stream per
+ * figure. {@link #forkJoin} is {@link ReportMetrics} on a dedicated
+ * {@link ForkJoinPool} of 1, 2 and 4 workers, so the results show how the single
+ * pass scales with cores. Pass {@code -p workers=8} and so on for bigger machines.
+ * <p>
+ * Each member gets three years of loans at twelve a year, so the default 30,000
+ * members is about a million loans.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ReportMetricsBenchmark {
+    @State(Scope.Benchmark)
+    public static class Library {
+        @Param("30000")
+        public int members;
+
+        DataManager dm;
+        List<Book> books;
+        List<Transaction> loans;
+        long today;
+
+        @Setup
+        public void generate() {
+            dm = DataManager.getInstance();
+            new LibraryDataGenerator(new LibraryDataGenerator.Options()
+                    .books(members).members(members).years(3).loansPerMemberYear(12)).generate().loadInto(dm);
+            books = dm.getBooks();
+            loans = dm.getTransactions();
+            today = LibraryClock.today();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pool {
+        @Param({"1", "2", "4"})
+        public int workers;
+
+        ForkJoinPool pool;
+
+        @Setup
+        public void start() {
+            pool = new ForkJoinPool(workers);
+        }
+
+        @TearDown
+        public void stop() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public ReportMetrics forkJoin(Library library, Pool pool) {
+        return ReportMetrics.compute(library.books, library.dm.getTotalMembers(), library.loans, library.today, 0, pool.pool);
+    }
+
+    // One stream per figure, as the Reports tab used to compute them.
+    @Benchmark
+    public long sequentialStreams(Library library) {
+        List<Book> books = library.books;
+        List<Transaction> loans = library.loans;
+        long today = library.today;
+        List<String> genres = books.stream().map(Book::getGenre).distinct().sorted().collect(Collectors.toList());
+        long copies = books.stream().mapToLong(Book::getQuantity).sum();
+        long available = books.stream().mapToLong(Book::getAvailableQuantity).sum();
+        long active = loans.stream().filter(t -> !t.isReturned()).count();
+        long overdue = loans.stream().filter(t -> t.isOverdue(today)).count();
+        long collected = loans.stream().filter(Transaction::isFinePaid).mapToLong(t -> t.getFineCents(today)).sum();
+        long outstanding = loans.stream().filter(t -> !t.isFinePaid()).mapToLong(t -> t.getFineCents(today)).sum();
+        return genres.size() + copies + available + active + overdue + collected + outstanding;
+    }
+}
@@ -0,0 +1,82 @@
+package main.java.library.utils;
+
+import main.java.library.models.Member;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times a full roster sync on a generated library. Before each sync a roster is
+ * written from the members as they stand: it drops every tenth member, changes
+ * the phone of another tenth, keeps the rest as they are and adds a tenth as
+ * many new students. Members dropped but tied to the library by a loan, fine or
+ * request stay, so later syncs see much the same roster.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RosterSyncBenchmark {
+    @Param("100000")
+    public int members;
+
+    private DataManager dm;
+    private Path file;
+    private int syncs;
+
+    @Setup
+    public void generate() {
+        dm = DataManager.getInstance();
+        new LibraryDataGenerator(new LibraryDataGenerator.Options()
+                .books(members / 10).members(members).years(1).loansPerMemberYear(2)).generate().loadInto(dm);
+    }
+
+    @Setup(Level.Invocation)
+    public void writeRoster() throws IOException {
+        int sync = syncs++;
+        List<Member> current = dm.getMembers();
+        file = Files.createTempFile("roster", ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("student_id,name,email,phone\n");
+            for (int i = 0; i < current.size(); i++) {
+                Member m = current.get(i);
+                if (i % 10 == 0 || m.getEmail().isEmpty()) continue;
+                String phone = i % 10 == 1 ? "+1-555-" + (sync % 10) + String.format("%03d", i % 1000) : m.getPhone();
+                out.write(i + ",\"" + m.getName() + "\"," + m.getEmail() + "," + phone + "\n");
+            }
+            for (int i = 0; i < members / 10; i++) {
+                out.write("n" + i + ",New Student " + i + ",new.student." + sync + "." + i + "@uni.example,\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteRoster() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public RosterImporter.Result sync() throws IOException {
+        return new RosterImporter(dm).importFile(file, true, percent -> true);
+    }
+}
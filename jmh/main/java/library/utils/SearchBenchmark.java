@@ -0,0 +1,83 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the Search Books tab on a 500k-title catalogue, where a page of
+ * results should come back in single-digit milliseconds. Sample mode reports the
+ * median and tail percentiles, not only the mean. The queries are a common title
+ * word, a rare author and a one-letter query that has no gram to narrow it and
+ * scans every title. {@code editBook} retitles one book, which re-indexes only the
+ * grams the new title adds or drops.
+ * <p>
+ * Run with {@code mvn -Pjmh verify -Djmh.include=SearchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SearchBenchmark {
+    private static final int PAGE = 100;
+
+    @Param({"500000"})
+    public int titles;
+
+    private DataManager dm;
+    private List<Book> books;
+
+    @Setup
+    public void populate() {
+        if (DBConnection.getConfig().isEnabled()) {
+            throw new IllegalStateException("SearchBenchmark writes junk records; run it without library.db.enabled");
+        }
+        dm = DataManager.getInstance();
+        new LibraryDataGenerator(new LibraryDataGenerator.Options()
+                .books(titles).members(1_000).years(1).loansPerMemberYear(1).seed(42)).generate().loadInto(dm);
+        books = dm.getBooks();
+    }
+
+    @Benchmark
+    public SearchResults commonWord() {
+        return dm.searchBooks("river", "All", 0, PAGE);
+    }
+
+    @Benchmark
+    public SearchResults rareAuthor() {
+        return dm.searchBooks("tanaka", "Author", 0, PAGE);
+    }
+
+    @Benchmark
+    public SearchResults twoWords() {
+        return dm.searchBooks("silent river", "All", 0, PAGE);
+    }
+
+    @Benchmark
+    public SearchResults oneLetter() {
+        return dm.searchBooks("a", "All", 0, PAGE);
+    }
+
+    @Benchmark
+    public boolean editBook() {
+        Book book = books.get(ThreadLocalRandom.current().nextInt(books.size()));
+        String title = book.getTitle();
+        book.setTitle(title.endsWith(" (2nd ed.)") ? title.substring(0, title.length() - 10) : title + " (2nd ed.)");
+        return dm.updateBook(book);
+    }
+}
@@ -45,6 +45,9 @@ CREATE TABLE book_requests (
                                id SERIAL PRIMARY KEY,
                                member_id INT REFERENCES members(id),
                                book_title VARCHAR(200),
+                               author_name VARCHAR(150),
+                               reason TEXT,
+                               request_date DATE DEFAULT CURRENT_DATE,
                                status VARCHAR(50) DEFAULT 'Pending'
 );
 
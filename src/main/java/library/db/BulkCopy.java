@@ -0,0 +1,165 @@
+package main.java.library.db;
+
+import main.java.library.models.Book;
+import main.java.library.models.BookRequest;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+import main.java.library.utils.LibraryClock;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Loads large batches of records into the database in one transaction. With the
+ * PostgreSQL driver the rows are streamed with {@code COPY ... FROM STDIN}. That
+ * path is reached through reflection, so the driver stays a runtime-only
+ * dependency. Other drivers fall back to batched INSERTs.
+ * <p>
+ * The records are renumbered to follow the rows already in each table, and the
+ * serial sequences are moved past the new ids afterwards.
+ */
+public class BulkCopy {
+    private static final int ROWS_PER_CHUNK = 10_000;
+
+    private final ConnectionPool pool;
+
+    public BulkCopy(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public void insertAll(List<Book> books, List<Member> members, List<Transaction> loans,
+                          List<BookRequest> requests) throws SQLException {
+        long today = LibraryClock.today();
+        List<Transaction> fined = new ArrayList<>();
+        for (Transaction t : loans) {
+            if (t.isReturned() && t.getFineCents(today) > 0) fined.add(t);
+        }
+        try (Connection con = pool.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                renumber(con, "books", books, (b, id) -> b.setId(id));
+                renumber(con, "members", members, (m, id) -> m.setId(id));
+                renumber(con, "transactions", loans, (t, id) -> t.setId(id));
+                renumber(con, "book_requests", requests, (r, id) -> r.setId(id));
+                Object copyApi = copyApi(con);
+                copy(con, copyApi, LibraryRepository.INSERT_BOOK, books, LibraryRepository::bookParams);
+                copy(con, copyApi, LibraryRepository.INSERT_MEMBER, members, LibraryRepository::memberParams);
+                copy(con, copyApi, LibraryRepository.INSERT_TRANSACTION, loans, LibraryRepository::transactionParams);
+                copy(con, copyApi, LibraryRepository.INSERT_FINE, fined, LibraryRepository::fineParams);
+                copy(con, copyApi, LibraryRepository.INSERT_REQUEST, requests, LibraryRepository::requestParams);
+                try (Statement st = con.createStatement()) {
+                    for (String table : new String[]{"books", "members", "transactions", "fines", "book_requests"}) {
+                        st.execute("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), "
+                                + "COALESCE((SELECT MAX(id) FROM " + table + "), 0) + 1, false)");
+                    }
+                }
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+    private interface IdSetter<T> {
+        void set(T record, int id);
+    }
+
+    private static <T> void renumber(Connection con, String table, List<T> records, IdSetter<T> setter) throws SQLException {
+        int maxId;
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            rs.next();
+            maxId = rs.getInt(1);
+        }
+        for (int i = 0; i < records.size(); i++) {
+            setter.set(records.get(i), maxId + i + 1);
+        }
+    }
+
+    // Returns the driver's CopyManager, or null if this is not a PostgreSQL connection.
+    private static Object copyApi(Connection con) throws SQLException {
+        try {
+            Class<?> pgConnection = Class.forName("org.postgresql.PGConnection");
+            if (!con.isWrapperFor(pgConnection)) return null;
+            return pgConnection.getMethod("getCopyAPI").invoke(con.unwrap(pgConnection));
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new SQLException("Could not reach the PostgreSQL COPY API", e);
+        }
+    }
+
+    private static <T> void copy(Connection con, Object copyApi, String insertSql, List<T> records,
+                                 Function<T, Object[]> params) throws SQLException {
+        if (records.isEmpty()) return;
+        if (copyApi == null) {
+            try (PreparedStatement ps = con.prepareStatement(insertSql)) {
+                for (int i = 0; i < records.size(); i++) {
+                    LibraryRepository.bind(ps, params.apply(records.get(i)));
+                    ps.addBatch();
+                    if ((i + 1) % ROWS_PER_CHUNK == 0) ps.executeBatch();
+                }
+                ps.executeBatch();
+            }
+            return;
+        }
+
+        // "INSERT INTO books (title, ..., id) VALUES ..." -> "COPY books (title, ..., id) FROM STDIN"
+        String target = insertSql.substring("INSERT INTO ".length(), insertSql.indexOf(" VALUES"));
+        String sql = "COPY " + target + " FROM STDIN";
+        try {
+            Method copyIn = copyApi.getClass().getMethod("copyIn", String.class, Reader.class);
+            StringBuilder chunk = new StringBuilder();
+            for (int i = 0; i < records.size(); i++) {
+                appendRow(chunk, params.apply(records.get(i)));
+                if ((i + 1) % ROWS_PER_CHUNK == 0 || i == records.size() - 1) {
+                    copyIn.invoke(copyApi, sql, new StringReader(chunk.toString()));
+                    chunk.setLength(0);
+                }
+            }
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            throw new SQLException("COPY into " + target + " failed", cause);
+        } catch (ReflectiveOperationException e) {
+            throw new SQLException("COPY into " + target + " failed", e);
+        }
+    }
+
+    // One row in COPY's text format: tab-separated, \N for NULL, backslash escapes.
+    private static void appendRow(StringBuilder sb, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append('\t');
+            Object value = values[i];
+            if (value == null) {
+                sb.append("\\N");
+                continue;
+            }
+            String text = value.toString();
+            for (int c = 0; c < text.length(); c++) {
+                char ch = text.charAt(c);
+                switch (ch) {
+                    case '\\': sb.append("\\\\"); break;
+                    case '\t': sb.append("\\t"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    default: sb.append(ch);
+                }
+            }
+        }
+        sb.append('\n');
+    }
+}
@@ -0,0 +1,237 @@
+package main.java.library.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded pool of JDBC connections with a per-connection statement cache.
+ * Checking a connection out costs no round trip: only a connection that sat idle
+ * longer than {@code library.db.validateIdleMillis} is checked with
+ * {@code isValid} first, since that is when a server restart or a firewall may
+ * have dropped it. A connection that fails a call in use is checked once, and
+ * discarded on return if it is dead.
+ * <p>
+ * Each checked-out connection holds one of {@code library.db.poolSize} permits,
+ * so a waiting thread is woken as soon as a connection comes back or is
+ * discarded, and knows there is an idle connection or room to open one.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private final DBConfig config;
+    private final BlockingQueue<PooledConnection> idle;
+    private final List<PooledConnection> all = new ArrayList<>();
+    private final Semaphore permits;
+    private volatile boolean closed;
+
+    public ConnectionPool(DBConfig config) {
+        this.config = config;
+        this.idle = new ArrayBlockingQueue<>(config.getPoolSize());
+        this.permits = new Semaphore(config.getPoolSize(), true);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed", "08003");
+        }
+        try {
+            if (!permits.tryAcquire(config.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for a connection after "
+                        + config.getConnectTimeoutMillis() + " ms", "08001");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", "08001", e);
+        }
+        try {
+            return take().checkOut();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Called holding a permit, so there is an idle connection or room to open one.
+    private PooledConnection take() throws SQLException {
+        while (true) {
+            if (closed) {
+                throw new SQLException("Connection pool is closed", "08003");
+            }
+            PooledConnection pooled = idle.poll();
+            if (pooled == null) {
+                return open();
+            }
+            if (System.nanoTime() - pooled.idleSince <= TimeUnit.MILLISECONDS.toNanos(config.getValidateIdleMillis())
+                    || pooled.physical.isValid(2)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+    }
+
+    // Connects outside the lock, so a slow server does not hold up connections being returned.
+    private PooledConnection open() throws SQLException {
+        PooledConnection pooled = new PooledConnection(
+                DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword()));
+        synchronized (this) {
+            if (!closed) {
+                all.add(pooled);
+                return pooled;
+            }
+        }
+        pooled.closePhysical();
+        throw new SQLException("Connection pool is closed", "08003");
+    }
+
+    private synchronized void discard(PooledConnection pooled) {
+        all.remove(pooled);
+        pooled.closePhysical();
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            if (closed || pooled.broken) {
+                discard(pooled);
+                return;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.idleSince = System.nanoTime();
+            idle.offer(pooled);
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (PooledConnection pooled : all) {
+            pooled.closePhysical();
+        }
+        all.clear();
+        idle.clear();
+        // Wakes the waiting threads, which then find the pool closed.
+        permits.release(config.getPoolSize());
+    }
+
+    private class PooledConnection implements InvocationHandler {
+        private final Connection physical;
+        private final Map<String, PreparedStatement> statements;
+        private Connection handle;
+        private long idleSince = System.nanoTime();
+        private boolean broken;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= config.getStatementCacheSize()) return false;
+                    try {
+                        eldest.getValue().close();
+                    } catch (SQLException ignored) {
+                    }
+                    return true;
+                }
+            };
+        }
+
+        Connection checkOut() {
+            handle = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+            return handle;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (proxy != handle) {
+                if ("isClosed".equals(method.getName())) return true;
+                if ("close".equals(method.getName())) return null;
+                throw new SQLException("Connection has been returned to the pool", "08003");
+            }
+            switch (method.getName()) {
+                case "close":
+                    handle = null;
+                    release(this);
+                    return null;
+                case "isClosed":
+                    return false;
+                case "prepareStatement":
+                    if (args.length == 1) {
+                        return cachedStatement((String) args[0]);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw failed(e.getCause());
+            }
+        }
+
+        // Checks the connection after a failed call, so a dead one is not handed out again.
+        private Throwable failed(Throwable cause) {
+            if (cause instanceof SQLException && !broken) {
+                try {
+                    broken = !physical.isValid(2);
+                } catch (SQLException e) {
+                    broken = true;
+                }
+            }
+            return cause;
+        }
+
+        private PreparedStatement cachedStatement(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = physical.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            PreparedStatement target = statement;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (p, m, a) -> {
+                        if ("close".equals(m.getName())) {
+                            target.clearParameters();
+                            target.clearBatch();
+                            return null;
+                        }
+                        try {
+                            return m.invoke(target, a);
+                        } catch (InvocationTargetException e) {
+                            throw failed(e.getCause());
+                        }
+                    });
+        }
+
+        void closePhysical() {
+            try {
+                for (PreparedStatement statement : statements.values()) {
+                    statement.close();
+                }
+                statements.clear();
+                physical.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
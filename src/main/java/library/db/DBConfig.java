@@ -0,0 +1,71 @@
+package main.java.library.db;
+
+public class DBConfig {
+    private final boolean enabled;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int poolSize;
+    private final long connectTimeoutMillis;
+    private final long validateIdleMillis;
+    private final int statementCacheSize;
+    private final long flushIntervalMillis;
+    private final int flushBatchSize;
+    private final int fetchSize;
+    private final boolean migrate;
+
+    public DBConfig(boolean enabled, String url, String user, String password,
+                    int poolSize, long connectTimeoutMillis, long validateIdleMillis, int statementCacheSize,
+                    long flushIntervalMillis, int flushBatchSize, int fetchSize, boolean migrate) {
+        this.enabled = enabled;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.poolSize = poolSize;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.validateIdleMillis = validateIdleMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushBatchSize = flushBatchSize;
+        this.fetchSize = fetchSize;
+        this.migrate = migrate;
+    }
+
+    public static DBConfig fromEnvironment() {
+        return new DBConfig(
+                Boolean.parseBoolean(setting("library.db.enabled", "false")),
+                setting("library.db.url", "jdbc:postgresql://localhost:5432/library_db"),
+                setting("library.db.user", "postgres"),
+                setting("library.db.password", "admin123"),
+                Integer.parseInt(setting("library.db.poolSize", "8")),
+                Long.parseLong(setting("library.db.connectTimeoutMillis", "5000")),
+                Long.parseLong(setting("library.db.validateIdleMillis", "30000")),
+                Integer.parseInt(setting("library.db.statementCacheSize", "64")),
+                Long.parseLong(setting("library.db.flushIntervalMillis", "500")),
+                Integer.parseInt(setting("library.db.flushBatchSize", "500")),
+                Integer.parseInt(setting("library.db.fetchSize", "500")),
+                Boolean.parseBoolean(setting("library.db.migrate", "true")));
+    }
+
+    /** A system property, or else the environment variable named like it ({@code LIBRARY_DB_URL}), or the default. */
+    public static String setting(String property, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            value = System.getenv(property.toUpperCase().replace('.', '_'));
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public String getUrl() { return url; }
+    public String getUser() { return user; }
+    public String getPassword() { return password; }
+    public int getPoolSize() { return poolSize; }
+    public long getConnectTimeoutMillis() { return connectTimeoutMillis; }
+    public long getValidateIdleMillis() { return validateIdleMillis; }
+    public int getStatementCacheSize() { return statementCacheSize; }
+    public long getFlushIntervalMillis() { return flushIntervalMillis; }
+    public int getFlushBatchSize() { return flushBatchSize; }
+    public int getFetchSize() { return fetchSize; }
+    public boolean isMigrate() { return migrate; }
+}
@@ -0,0 +1,340 @@
+package main.java.library.db;
+
+import main.java.library.models.Book;
+import main.java.library.models.BookRequest;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+import main.java.library.utils.LibraryClock;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+public class LibraryRepository {
+    static final String INSERT_BOOK =
+            "INSERT INTO books (title, author, isbn, available, section, genre, shelf, total_quantity, available_quantity, id) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    static final String UPDATE_BOOK =
+            "UPDATE books SET title = ?, author = ?, isbn = ?, available = ?, section = ?, genre = ?, shelf = ?, "
+                    + "total_quantity = ?, available_quantity = ? WHERE id = ?";
+    static final String DELETE_BOOK = "DELETE FROM books WHERE id = ?";
+
+    static final String INSERT_MEMBER = "INSERT INTO members (name, email, phone, join_date, id) VALUES (?, ?, ?, ?, ?)";
+    static final String UPDATE_MEMBER = "UPDATE members SET name = ?, email = ?, phone = ?, join_date = ? WHERE id = ?";
+    static final String DELETE_MEMBER = "DELETE FROM members WHERE id = ?";
+
+    static final String INSERT_TRANSACTION =
+            "INSERT INTO transactions (book_id, member_id, borrow_date, due_date, return_date, id) VALUES (?, ?, ?, ?, ?, ?)";
+    static final String UPDATE_TRANSACTION =
+            "UPDATE transactions SET book_id = ?, member_id = ?, borrow_date = ?, due_date = ?, return_date = ? WHERE id = ?";
+
+    static final String UPDATE_FINE = "UPDATE fines SET amount = ?, paid = ? WHERE transaction_id = ?";
+    static final String INSERT_FINE = "INSERT INTO fines (amount, paid, transaction_id) VALUES (?, ?, ?)";
+
+    static final String INSERT_REQUEST =
+            "INSERT INTO book_requests (member_id, book_title, author_name, reason, request_date, status, id) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    static final String UPDATE_REQUEST =
+            "UPDATE book_requests SET member_id = ?, book_title = ?, author_name = ?, reason = ?, request_date = ?, "
+                    + "status = ? WHERE id = ?";
+    static final String UPDATE_REQUEST_STATUS = "UPDATE book_requests SET status = ? WHERE id = ?";
+    static final String DELETE_FINES = "DELETE FROM fines WHERE transaction_id = ?";
+
+    private static final String TRANSACTION_COLUMNS =
+            "SELECT t.id, t.book_id, t.member_id, t.borrow_date, t.due_date, t.return_date, "
+                    + "COALESCE((SELECT bool_or(f.paid) FROM fines f WHERE f.transaction_id = t.id), FALSE) AS paid "
+                    + "FROM transactions t ";
+    private static final String OPEN_TRANSACTIONS =
+            "t.return_date IS NULL OR (t.return_date > t.due_date "
+                    + "AND NOT COALESCE((SELECT bool_or(f.paid) FROM fines f WHERE f.transaction_id = t.id), FALSE))";
+
+    private final ConnectionPool pool;
+    private final int fetchSize;
+
+    public LibraryRepository(ConnectionPool pool, int fetchSize) {
+        this.pool = pool;
+        this.fetchSize = fetchSize;
+    }
+
+    public List<Book> loadBooks() throws SQLException {
+        List<Book> books = new ArrayList<>();
+        try (Connection con = pool.getConnection();
+             PreparedStatement ps = con.prepareStatement(
+                     "SELECT id, title, author, isbn, available, section, genre, shelf, total_quantity, available_quantity "
+                             + "FROM books ORDER BY id");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                books.add(new Book(rs.getInt(1), rs.getString(2), rs.getString(3), nullToEmpty(rs.getString(4)), rs.getBoolean(5),
+                        rs.getString(6), rs.getString(7), rs.getString(8), rs.getInt(9), rs.getInt(10)));
+            }
+        }
+        return books;
+    }
+
+    public void insertBook(Book book) throws SQLException {
+        execute(INSERT_BOOK, bookParams(book));
+    }
+
+    public void updateBook(Book book) throws SQLException {
+        execute(UPDATE_BOOK, bookParams(book));
+    }
+
+    public void deleteBook(int bookId) throws SQLException {
+        execute(DELETE_BOOK, bookId);
+    }
+
+    public List<Member> loadMembers() throws SQLException {
+        List<Member> members = new ArrayList<>();
+        try (Connection con = pool.getConnection();
+             PreparedStatement ps = con.prepareStatement("SELECT id, name, email, phone, join_date FROM members ORDER BY id");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                members.add(new Member(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                        toLocalDate(rs.getDate(5))));
+            }
+        }
+        return members;
+    }
+
+    public void insertMember(Member member) throws SQLException {
+        execute(INSERT_MEMBER, memberParams(member));
+    }
+
+    public void updateMember(Member member) throws SQLException {
+        execute(UPDATE_MEMBER, memberParams(member));
+    }
+
+    public void deleteMember(int memberId) throws SQLException {
+        execute(DELETE_MEMBER, memberId);
+    }
+
+    public List<Transaction> findTransactions(TransactionQuery query, int afterId, int limit,
+                                              IntFunction<Book> books, IntFunction<Member> members) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = pageSql(query, afterId, limit, params);
+        List<Transaction> page = new ArrayList<>(limit);
+        stream(sql, params.toArray(), books, members, page::add);
+        return page;
+    }
+
+    private static String pageSql(TransactionQuery query, int afterId, int limit, List<Object> params) {
+        params.add(afterId);
+        String where = query.where(params);
+        params.add(limit);
+        return TRANSACTION_COLUMNS + "WHERE t.id > ? AND " + where + " ORDER BY t.id LIMIT ?";
+    }
+
+    public List<String> explainTransactionsPage(TransactionQuery query, int afterId, int limit) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = pageSql(query, afterId, limit, params);
+        return explain(sql, params.toArray());
+    }
+
+    /**
+     * Returns the EXPLAIN output for a query. Sequential scans are switched off
+     * for the duration, so even a near-empty database shows whether an index can
+     * serve the query.
+     */
+    public List<String> explain(String sql, Object... params) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (Connection con = pool.getConnection()) {
+            con.setAutoCommit(false);
+            try (Statement st = con.createStatement()) {
+                st.execute("SET LOCAL enable_seqscan = off");
+            }
+            try (PreparedStatement ps = con.prepareStatement("EXPLAIN " + sql)) {
+                bind(ps, params);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        plan.add(rs.getString(1));
+                    }
+                }
+            }
+            con.rollback();
+        }
+        return plan;
+    }
+
+    public void streamTransactions(TransactionQuery query, IntFunction<Book> books, IntFunction<Member> members,
+                                   Consumer<Transaction> consumer) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String where = query.where(params);
+        stream(TRANSACTION_COLUMNS + "WHERE " + where + " ORDER BY t.id", params.toArray(), books, members, consumer);
+    }
+
+    public void streamOpenTransactions(IntFunction<Book> books, IntFunction<Member> members,
+                                       Consumer<Transaction> consumer) throws SQLException {
+        stream(TRANSACTION_COLUMNS + "WHERE " + OPEN_TRANSACTIONS + " ORDER BY t.id", new Object[0], books, members, consumer);
+    }
+
+    /** Streams the loans that {@link #streamOpenTransactions} leaves out: returned, with any fine settled. */
+    public void streamClosedTransactions(IntFunction<Book> books, IntFunction<Member> members,
+                                         Consumer<Transaction> consumer) throws SQLException {
+        stream(TRANSACTION_COLUMNS + "WHERE NOT (" + OPEN_TRANSACTIONS + ") ORDER BY t.id", new Object[0], books, members, consumer);
+    }
+
+    private void stream(String sql, Object[] params, IntFunction<Book> books, IntFunction<Member> members,
+                        Consumer<Transaction> consumer) throws SQLException {
+        try (Connection con = pool.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                ps.setFetchSize(fetchSize);
+                bind(ps, params);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(readTransaction(rs, books, members));
+                    }
+                }
+            }
+            con.commit();
+        }
+    }
+
+    public int maxTransactionId() throws SQLException {
+        try (Connection con = pool.getConnection();
+             PreparedStatement ps = con.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM transactions");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    public long settledFinesCollectedCents() throws SQLException {
+        try (Connection con = pool.getConnection();
+             PreparedStatement ps = con.prepareStatement(
+                     "SELECT COALESCE(SUM(f.amount), 0) FROM fines f JOIN transactions t ON t.id = f.transaction_id "
+                             + "WHERE f.paid AND t.return_date IS NOT NULL");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getBigDecimal(1).movePointRight(2).longValue();
+        }
+    }
+
+    static Transaction readTransaction(ResultSet rs, IntFunction<Book> books, IntFunction<Member> members) throws SQLException {
+        Transaction t = new Transaction(rs.getInt(1), books.apply(rs.getInt(2)), members.apply(rs.getInt(3)),
+                toLocalDate(rs.getDate(4)), toLocalDate(rs.getDate(5)));
+        t.setReturnDate(toLocalDate(rs.getDate(6)));
+        t.setFinePaid(rs.getBoolean(7));
+        return t;
+    }
+
+    public void insertTransaction(Transaction t) throws SQLException {
+        execute(INSERT_TRANSACTION, transactionParams(t));
+    }
+
+    public void updateTransaction(Transaction t) throws SQLException {
+        execute(UPDATE_TRANSACTION, transactionParams(t));
+    }
+
+    public void saveFine(Transaction t) throws SQLException {
+        try (Connection con = pool.getConnection()) {
+            Object[] params = fineParams(t);
+            try (PreparedStatement ps = con.prepareStatement(UPDATE_FINE)) {
+                bind(ps, params);
+                if (ps.executeUpdate() > 0) return;
+            }
+            try (PreparedStatement ps = con.prepareStatement(INSERT_FINE)) {
+                bind(ps, params);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    public List<BookRequest> loadBookRequests(IntFunction<Member> members) throws SQLException {
+        List<BookRequest> requests = new ArrayList<>();
+        try (Connection con = pool.getConnection();
+             PreparedStatement ps = con.prepareStatement(
+                     "SELECT id, member_id, book_title, author_name, reason, request_date, status "
+                             + "FROM book_requests ORDER BY id");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                BookRequest r = new BookRequest(rs.getInt(1), members.apply(rs.getInt(2)), rs.getString(3),
+                        nullToEmpty(rs.getString(4)), nullToEmpty(rs.getString(5)));
+                LocalDate requestDate = toLocalDate(rs.getDate(6));
+                if (requestDate != null) r.setRequestDate(requestDate);
+                r.setStatus(rs.getString(7));
+                requests.add(r);
+            }
+        }
+        return requests;
+    }
+
+    public void insertBookRequest(BookRequest request) throws SQLException {
+        execute(INSERT_REQUEST, requestParams(request));
+    }
+
+    public void updateBookRequestStatus(int requestId, String status) throws SQLException {
+        execute(UPDATE_REQUEST_STATUS, status, requestId);
+    }
+
+    static Object[] bookParams(Book b) {
+        return new Object[]{
+                b.getTitle(), b.getAuthor(), blankToNull(b.getIsbn()), b.isAvailable(), b.getSection(), b.getGenre(),
+                b.getShelf(), b.getQuantity(), b.getAvailableQuantity(), b.getId()
+        };
+    }
+
+    static Object[] memberParams(Member m) {
+        return new Object[]{m.getName(), m.getEmail(), m.getPhone(), toSqlDate(m.getMemberSince()), m.getId()};
+    }
+
+    static Object[] transactionParams(Transaction t) {
+        return new Object[]{
+                t.getBook().getId(), t.getMember().getId(), toSqlDate(t.getBorrowDate()),
+                toSqlDate(t.getDueDate()), toSqlDate(t.getReturnDate()), t.getId()
+        };
+    }
+
+    static Object[] fineParams(Transaction t) {
+        BigDecimal amount = BigDecimal.valueOf(t.getFineCents(LibraryClock.today()), 2);
+        return new Object[]{amount, t.isFinePaid(), t.getId()};
+    }
+
+    static Object[] requestParams(BookRequest r) {
+        return new Object[]{
+                r.getRequestedBy().getId(), r.getBookTitle(), r.getAuthorName(), r.getReason(),
+                toSqlDate(r.getRequestDate()), r.getStatus(), r.getId()
+        };
+    }
+
+    static void bind(PreparedStatement ps, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            if (params[i] == null) ps.setNull(i + 1, Types.NULL);
+            else ps.setObject(i + 1, params[i]);
+        }
+    }
+
+    private void execute(String sql, Object... params) throws SQLException {
+        try (Connection con = pool.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            bind(ps, params);
+            ps.executeUpdate();
+        }
+    }
+
+    private static Date toSqlDate(LocalDate date) {
+        return date != null ? Date.valueOf(date) : null;
+    }
+
+    static LocalDate toLocalDate(Date date) {
+        return date != null ? date.toLocalDate() : null;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value;
+    }
+}
@@ -0,0 +1,128 @@
+package main.java.library.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Brings the database schema up to date with the versioned scripts in
+ * {@code resources/db}. A script is named {@code V<version>__<description>.sql}
+ * and is listed in {@link #MIGRATIONS}. Every pending script runs in its own
+ * transaction and is recorded in {@code schema_version} with a checksum, so it
+ * is applied exactly once. An advisory lock keeps two starting clients from
+ * migrating at the same time. Applied scripts must never be edited; add a new
+ * version instead.
+ */
+public class SchemaMigrator {
+    static final String[] MIGRATIONS = {
+            "V1__baseline.sql",
+            "V2__loan_indexes.sql",
+            "V3__unique_isbn.sql",
+    };
+
+    private static final String LOCATION = "/main/java/library/resources/db/";
+    private static final long LOCK_KEY = 0x4C49425241525931L;
+
+    private final ConnectionPool pool;
+
+    public SchemaMigrator(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /** Applies every pending migration and returns how many were applied. */
+    public int migrate() throws SQLException {
+        try (Connection con = pool.getConnection()) {
+            try (Statement st = con.createStatement()) {
+                st.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                        + "version INT PRIMARY KEY, "
+                        + "description VARCHAR(200) NOT NULL, "
+                        + "checksum BIGINT NOT NULL, "
+                        + "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+                st.execute("SELECT pg_advisory_lock(" + LOCK_KEY + ")");
+            }
+            try {
+                return applyPending(con);
+            } finally {
+                con.setAutoCommit(true);
+                try (Statement st = con.createStatement()) {
+                    st.execute("SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+                }
+            }
+        }
+    }
+
+    private int applyPending(Connection con) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+
+        int count = 0;
+        for (String name : MIGRATIONS) {
+            int version = version(name);
+            String script = read(name);
+            long checksum = checksum(script);
+            Long recorded = applied.get(version);
+            if (recorded != null) {
+                if (recorded != checksum) {
+                    System.out.println("Migration " + name + " was changed after it was applied");
+                }
+                continue;
+            }
+
+            con.setAutoCommit(false);
+            try (Statement st = con.createStatement();
+                 PreparedStatement record = con.prepareStatement(
+                         "INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)")) {
+                st.execute(script);
+                record.setInt(1, version);
+                record.setString(2, description(name));
+                record.setLong(3, checksum);
+                record.executeUpdate();
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw new SQLException("Migration " + name + " failed: " + e.getMessage(), e.getSQLState(), e);
+            }
+            System.out.println("Applied migration " + name);
+            count++;
+        }
+        return count;
+    }
+
+    static int version(String name) {
+        return Integer.parseInt(name.substring(1, name.indexOf("__")));
+    }
+
+    static String description(String name) {
+        return name.substring(name.indexOf("__") + 2, name.length() - ".sql".length()).replace('_', ' ');
+    }
+
+    static String read(String name) throws SQLException {
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream(LOCATION + name)) {
+            if (in == null) {
+                throw new SQLException("Migration script " + name + " not found on the classpath");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Could not read migration script " + name, e);
+        }
+    }
+
+    private static long checksum(String script) {
+        CRC32 crc = new CRC32();
+        crc.update(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
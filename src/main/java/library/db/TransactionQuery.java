@@ -0,0 +1,73 @@
+package main.java.library.db;
+
+import main.java.library.models.Transaction;
+import main.java.library.utils.LibraryClock;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TransactionQuery {
+    private final int memberId;
+    private final int bookId;
+    private final boolean activeOnly;
+    private final boolean overdueOnly;
+
+    private TransactionQuery(int memberId, int bookId, boolean activeOnly, boolean overdueOnly) {
+        this.memberId = memberId;
+        this.bookId = bookId;
+        this.activeOnly = activeOnly;
+        this.overdueOnly = overdueOnly;
+    }
+
+    public static TransactionQuery all() {
+        return new TransactionQuery(0, 0, false, false);
+    }
+
+    public TransactionQuery forMember(int memberId) {
+        return new TransactionQuery(memberId, bookId, activeOnly, overdueOnly);
+    }
+
+    public TransactionQuery forBook(int bookId) {
+        return new TransactionQuery(memberId, bookId, activeOnly, overdueOnly);
+    }
+
+    public TransactionQuery activeOnly() {
+        return new TransactionQuery(memberId, bookId, true, overdueOnly);
+    }
+
+    public TransactionQuery overdueOnly() {
+        return new TransactionQuery(memberId, bookId, true, true);
+    }
+
+    public int getMemberId() { return memberId; }
+    public int getBookId() { return bookId; }
+    public boolean isActiveOnly() { return activeOnly; }
+    public boolean isOverdueOnly() { return overdueOnly; }
+
+    public boolean matches(Transaction t, long today) {
+        if (memberId != 0 && t.getMember().getId() != memberId) return false;
+        if (bookId != 0 && t.getBook().getId() != bookId) return false;
+        if (activeOnly && t.isReturned()) return false;
+        return !overdueOnly || t.isOverdue(today);
+    }
+
+    // Overdue is judged by the app's clock, like the in-memory filter, not the database server's.
+    String where(List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (memberId != 0) {
+            conditions.add("t.member_id = ?");
+            params.add(memberId);
+        }
+        if (bookId != 0) {
+            conditions.add("t.book_id = ?");
+            params.add(bookId);
+        }
+        if (activeOnly) conditions.add("t.return_date IS NULL");
+        if (overdueOnly) {
+            conditions.add("t.due_date < ?");
+            params.add(Date.valueOf(LibraryClock.todayDate()));
+        }
+        return conditions.isEmpty() ? "TRUE" : String.join(" AND ", conditions);
+    }
+}
@@ -0,0 +1,282 @@
+package main.java.library.db;
+
+import main.java.library.models.Book;
+import main.java.library.models.BookRequest;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers DataManager mutations and writes them to the database in JDBC batches.
+ * <p>
+ * Ordering: writes to the same row are coalesced so only the latest state is sent.
+ * Each flush runs in one transaction. Inserts and updates go parent tables first
+ * (books, members, transactions, book_requests, fines), and deletes go in reverse.
+ * <p>
+ * Durability: a mutation is durable only after the flush that carries it commits.
+ * That happens every flush interval, as soon as the batch size is reached, on
+ * {@link #flush()}, and from a JVM shutdown hook. A crash can lose at most the
+ * writes queued since the last successful flush. If the database cannot be
+ * reached (SQLState class 08), the batch is re-queued ahead of newer writes and
+ * retried on the next tick. Any other failure is a rejection: the batch is
+ * replayed one write at a time, the accepted writes commit, and {@link #flush()}
+ * then throws with every rejected write attached, since a rejected write is never
+ * retried. DataManager checks the constraints it knows of, such as the loan
+ * history a delete would orphan, before it changes memory, so a rejection means
+ * memory and the database disagree.
+ * <p>
+ * A full queue asks for one flush; further writes do not stack more flushes
+ * behind it while the database is down.
+ */
+public class WriteBehindQueue implements AutoCloseable {
+    private enum Table { BOOKS, MEMBERS, TRANSACTIONS, BOOK_REQUESTS, FINES }
+    private enum Kind { INSERT, UPDATE, REPLACE, DELETE }
+
+    private final ConnectionPool pool;
+    private final int batchSize;
+    private final ScheduledExecutorService flusher;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Object lock = new Object();
+    private final Thread shutdownHook;
+    private LinkedHashMap<Long, Write> pending = new LinkedHashMap<>();
+
+    public WriteBehindQueue(ConnectionPool pool, long flushIntervalMillis, int batchSize) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        shutdownHook = new Thread(this::close, "db-write-behind-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public void bookInserted(Book b) { enqueue(Table.BOOKS, b.getId(), Kind.INSERT, LibraryRepository.bookParams(b)); }
+    public void bookUpdated(Book b) { enqueue(Table.BOOKS, b.getId(), Kind.UPDATE, LibraryRepository.bookParams(b)); }
+    public void bookDeleted(int bookId) { enqueue(Table.BOOKS, bookId, Kind.DELETE, new Object[]{bookId}); }
+
+    public void memberInserted(Member m) { enqueue(Table.MEMBERS, m.getId(), Kind.INSERT, LibraryRepository.memberParams(m)); }
+    public void memberUpdated(Member m) { enqueue(Table.MEMBERS, m.getId(), Kind.UPDATE, LibraryRepository.memberParams(m)); }
+    public void memberDeleted(int memberId) { enqueue(Table.MEMBERS, memberId, Kind.DELETE, new Object[]{memberId}); }
+
+    public void transactionInserted(Transaction t) { enqueue(Table.TRANSACTIONS, t.getId(), Kind.INSERT, LibraryRepository.transactionParams(t)); }
+    public void transactionUpdated(Transaction t) { enqueue(Table.TRANSACTIONS, t.getId(), Kind.UPDATE, LibraryRepository.transactionParams(t)); }
+
+    public void fineSaved(Transaction t) { enqueue(Table.FINES, t.getId(), Kind.REPLACE, LibraryRepository.fineParams(t)); }
+
+    public void requestInserted(BookRequest r) { enqueue(Table.BOOK_REQUESTS, r.getId(), Kind.INSERT, LibraryRepository.requestParams(r)); }
+    public void requestUpdated(BookRequest r) { enqueue(Table.BOOK_REQUESTS, r.getId(), Kind.UPDATE, LibraryRepository.requestParams(r)); }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    private void enqueue(Table table, int id, Kind kind, Object[] params) {
+        boolean full;
+        synchronized (lock) {
+            merge(pending, new Write(table, id, kind, params));
+            full = pending.size() >= batchSize;
+        }
+        if (full && !flusher.isShutdown() && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    private static void merge(Map<Long, Write> target, Write newer) {
+        Write existing = target.get(newer.key());
+        if (existing == null) {
+            target.put(newer.key(), newer);
+        } else if (newer.kind == Kind.DELETE && existing.kind == Kind.INSERT) {
+            target.remove(newer.key());
+        } else if (existing.kind == Kind.INSERT) {
+            existing.params = newer.params;
+        } else {
+            existing.kind = newer.kind;
+            existing.params = newer.params;
+        }
+    }
+
+    public void flush() throws SQLException {
+        flushLock.lock();
+        try {
+            LinkedHashMap<Long, Write> batch;
+            synchronized (lock) {
+                if (pending.isEmpty()) return;
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            }
+            SQLException rejected = null;
+            try {
+                try {
+                    write(batch.values());
+                } catch (SQLException e) {
+                    if (isConnectionFailure(e)) throw e;
+                    rejected = writeIndividually(batch);
+                }
+            } catch (SQLException e) {
+                synchronized (lock) {
+                    for (Write newer : pending.values()) {
+                        merge(batch, newer);
+                    }
+                    pending = batch;
+                }
+                throw e;
+            }
+            if (rejected != null) throw rejected;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Writes what the database accepts and returns the rejections, each suppressed
+    // in one exception, or null. Leaves the unwritten rest in the batch if the
+    // connection fails part way.
+    private SQLException writeIndividually(Map<Long, Write> batch) throws SQLException {
+        SQLException rejected = null;
+        Iterator<Write> it = batch.values().iterator();
+        while (it.hasNext()) {
+            Write w = it.next();
+            try {
+                write(List.of(w));
+            } catch (SQLException e) {
+                if (isConnectionFailure(e)) throw e;
+                if (rejected == null) rejected = new SQLException("The database rejected writes that memory already holds");
+                rejected.addSuppressed(new SQLException(w.kind + " " + w.table + " id " + w.id + ": " + e.getMessage(),
+                        e.getSQLState(), e));
+            }
+            it.remove();
+        }
+        return rejected;
+    }
+
+    private static boolean isConnectionFailure(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void write(Collection<Write> writes) throws SQLException {
+        try (Connection con = pool.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                for (Table table : Table.values()) {
+                    executeBatch(con, table, Kind.INSERT, writes);
+                    executeBatch(con, table, Kind.UPDATE, writes);
+                    executeBatch(con, table, Kind.REPLACE, writes);
+                }
+                Table[] tables = Table.values();
+                for (int i = tables.length - 1; i >= 0; i--) {
+                    executeBatch(con, tables[i], Kind.DELETE, writes);
+                }
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void executeBatch(Connection con, Table table, Kind kind, Collection<Write> writes) throws SQLException {
+        List<Write> selected = new ArrayList<>();
+        for (Write w : writes) {
+            if (w.table == table && w.kind == kind) selected.add(w);
+        }
+        if (selected.isEmpty()) return;
+
+        if (kind == Kind.REPLACE) {
+            try (PreparedStatement ps = con.prepareStatement(LibraryRepository.DELETE_FINES)) {
+                for (Write w : selected) {
+                    ps.setInt(1, w.id);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+        try (PreparedStatement ps = con.prepareStatement(sql(table, kind))) {
+            for (Write w : selected) {
+                LibraryRepository.bind(ps, w.params);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static String sql(Table table, Kind kind) {
+        switch (table) {
+            case BOOKS:
+                return kind == Kind.INSERT ? LibraryRepository.INSERT_BOOK
+                        : kind == Kind.UPDATE ? LibraryRepository.UPDATE_BOOK : LibraryRepository.DELETE_BOOK;
+            case MEMBERS:
+                return kind == Kind.INSERT ? LibraryRepository.INSERT_MEMBER
+                        : kind == Kind.UPDATE ? LibraryRepository.UPDATE_MEMBER : LibraryRepository.DELETE_MEMBER;
+            case TRANSACTIONS:
+                return kind == Kind.INSERT ? LibraryRepository.INSERT_TRANSACTION : LibraryRepository.UPDATE_TRANSACTION;
+            case BOOK_REQUESTS:
+                return kind == Kind.INSERT ? LibraryRepository.INSERT_REQUEST : LibraryRepository.UPDATE_REQUEST;
+            default:
+                return LibraryRepository.INSERT_FINE;
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ignored) {
+        }
+    }
+
+    private static class Write {
+        final Table table;
+        final int id;
+        Kind kind;
+        Object[] params;
+
+        Write(Table table, int id, Kind kind, Object[] params) {
+            this.table = table;
+            this.id = id;
+            this.kind = kind;
+            this.params = params;
+        }
+
+        long key() {
+            return ((long) table.ordinal() << 32) | (id & 0xFFFFFFFFL);
+        }
+    }
+}
@@ -1,16 +1,29 @@
 package main.java.library.models;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 public class Book {
+    private static final VarHandle AVAILABLE_QUANTITY;
+
+    static {
+        try {
+            AVAILABLE_QUANTITY = MethodHandles.lookup().findVarHandle(Book.class, "availableQuantity", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private int id;
     private String title;
     private String author;
     private String isbn;
-    private boolean available;
     private String section;
     private String genre;
     private String shelf;
-    private int quantity;
-    private int availableQuantity;
+    private volatile int quantity;
+    // Changed only through AVAILABLE_QUANTITY so concurrent borrows never block or oversell.
+    private volatile int availableQuantity;
 
     public Book(int id, String title, String author, String isbn, boolean available) {
         this(id, title, author, isbn, available, "General", "General", "A1", 1, 1);
@@ -22,7 +35,6 @@ public class Book {
         this.title = title;
         this.author = author;
         this.isbn = isbn;
-        this.available = available;
         this.section = section;
         this.genre = genre;
         this.shelf = shelf;
@@ -43,7 +55,6 @@ public class Book {
     public void setIsbn(String isbn) { this.isbn = isbn; }
 
     public boolean isAvailable() { return availableQuantity > 0; }
-    public void setAvailable(boolean available) { this.available = available; }
 
     public String getSection() { return section; }
     public void setSection(String section) { this.section = section; }
@@ -58,33 +69,41 @@ public class Book {
     public void setQuantity(int quantity) { this.quantity = quantity; }
 
     public int getAvailableQuantity() { return availableQuantity; }
-    public void setAvailableQuantity(int availableQuantity) {
-        this.availableQuantity = availableQuantity;
-        this.available = availableQuantity > 0;
-    }
+    public void setAvailableQuantity(int availableQuantity) { this.availableQuantity = availableQuantity; }
 
     public String getLocation() {
         return section + " - Shelf " + shelf;
     }
 
     public String getStatus() {
-        if (availableQuantity > 0) {
-            return "Available (" + availableQuantity + "/" + quantity + ")";
+        int copies = availableQuantity;
+        if (copies > 0) {
+            return "Available (" + copies + "/" + quantity + ")";
         }
         return "All Borrowed";
     }
 
-    public void borrowCopy() {
-        if (availableQuantity > 0) {
-            availableQuantity--;
-            available = availableQuantity > 0;
+    public boolean borrowCopy() {
+        int copies = availableQuantity;
+        while (copies > 0) {
+            int witness = (int) AVAILABLE_QUANTITY.compareAndExchange(this, copies, copies - 1);
+            if (witness == copies) {
+                return true;
+            }
+            copies = witness;
         }
+        return false;
     }
 
-    public void returnCopy() {
-        if (availableQuantity < quantity) {
-            availableQuantity++;
-            available = true;
+    public boolean returnCopy() {
+        int copies = availableQuantity;
+        while (copies < quantity) {
+            int witness = (int) AVAILABLE_QUANTITY.compareAndExchange(this, copies, copies + 1);
+            if (witness == copies) {
+                return true;
+            }
+            copies = witness;
         }
+        return false;
     }
 }
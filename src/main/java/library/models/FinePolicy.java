@@ -0,0 +1,15 @@
+package main.java.library.models;
+
+/**
+ * Decides how much an overdue loan owes. Amounts are whole cents so totals add up
+ * exactly. Implementations must be immutable; install a new one with
+ * {@link Transaction#setFinePolicy(FinePolicy)} to change the rules.
+ */
+public interface FinePolicy {
+    /**
+     * The fine for {@code t} when it is charged through {@code endDay} inclusive.
+     * {@code endDay} is an epoch day after the due day: today for an open loan, or
+     * the return day.
+     */
+    long fineCents(Transaction t, long endDay);
+}
@@ -1,5 +1,11 @@
 package main.java.library.models;
 
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
 public class LibraryInfo {
     private String name;
     private String address;
@@ -9,6 +15,11 @@ public class LibraryInfo {
     private String saturday;
     private String sunday;
     private int maxBooksPerStudent;
+    private long finePerDayCents;
+    private Map<String, Long> genreFinePerDayCents;
+    private int fineGraceDays;
+    private long maxFineCents;
+    private Set<LocalDate> closedDates;
 
     public LibraryInfo() {
         this.name = "Central Public Library";
@@ -19,6 +30,11 @@ public class LibraryInfo {
         this.saturday = "9:00 AM - 5:00 PM";
         this.sunday = "Closed";
         this.maxBooksPerStudent = 5;
+        this.finePerDayCents = 200;
+        this.genreFinePerDayCents = new HashMap<>();
+        this.fineGraceDays = 0;
+        this.maxFineCents = 0;
+        this.closedDates = new LinkedHashSet<>();
     }
 
     public String getName() { return name; }
@@ -44,4 +60,20 @@ public class LibraryInfo {
 
     public int getMaxBooksPerStudent() { return maxBooksPerStudent; }
     public void setMaxBooksPerStudent(int maxBooksPerStudent) { this.maxBooksPerStudent = maxBooksPerStudent; }
+
+    public long getFinePerDayCents() { return finePerDayCents; }
+    public void setFinePerDayCents(long finePerDayCents) { this.finePerDayCents = finePerDayCents; }
+
+    public Map<String, Long> getGenreFinePerDayCents() { return genreFinePerDayCents; }
+    public void setGenreFinePerDayCents(Map<String, Long> genreFinePerDayCents) { this.genreFinePerDayCents = genreFinePerDayCents; }
+
+    public int getFineGraceDays() { return fineGraceDays; }
+    public void setFineGraceDays(int fineGraceDays) { this.fineGraceDays = fineGraceDays; }
+
+    // 0 means no cap.
+    public long getMaxFineCents() { return maxFineCents; }
+    public void setMaxFineCents(long maxFineCents) { this.maxFineCents = maxFineCents; }
+
+    public Set<LocalDate> getClosedDates() { return closedDates; }
+    public void setClosedDates(Set<LocalDate> closedDates) { this.closedDates = closedDates; }
 }
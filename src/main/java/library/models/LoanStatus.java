@@ -0,0 +1,18 @@
+package main.java.library.models;
+
+public enum LoanStatus {
+    ACTIVE("Active"),
+    OVERDUE("Overdue"),
+    RETURNED("Returned");
+
+    private final String label;
+
+    LoanStatus(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
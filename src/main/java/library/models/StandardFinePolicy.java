@@ -0,0 +1,102 @@
+package main.java.library.models;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The fine rules from {@link LibraryInfo}. A daily rate applies, which can be set
+ * per genre. The first grace days after the due date are free. Days the library
+ * is closed are not charged: weekdays whose opening hours read "Closed", plus
+ * listed closed dates. The total is capped. Counting the charged days takes
+ * O(log closed dates), however long the loan is overdue.
+ */
+public class StandardFinePolicy implements FinePolicy {
+    private final long dailyRateCents;
+    private final Map<String, Long> genreRatesCents;
+    private final int graceDays;
+    private final long capCents;
+    private final boolean[] closedWeekdays = new boolean[7];
+    private final long[] closedDays;
+
+    public StandardFinePolicy(long dailyRateCents, Map<String, Long> genreRatesCents, int graceDays, long capCents,
+                              Iterable<DayOfWeek> closedWeekdays, Iterable<LocalDate> closedDates) {
+        this.dailyRateCents = dailyRateCents;
+        this.genreRatesCents = new HashMap<>();
+        genreRatesCents.forEach((genre, rate) -> this.genreRatesCents.put(genre.toLowerCase(), rate));
+        this.graceDays = graceDays;
+        this.capCents = capCents;
+        for (DayOfWeek day : closedWeekdays) {
+            this.closedWeekdays[day.ordinal()] = true;
+        }
+        long[] days = new long[16];
+        int n = 0;
+        for (LocalDate date : closedDates) {
+            if (this.closedWeekdays[date.getDayOfWeek().ordinal()]) continue;
+            if (n == days.length) days = Arrays.copyOf(days, n * 2);
+            days[n++] = date.toEpochDay();
+        }
+        this.closedDays = Arrays.stream(days, 0, n).sorted().distinct().toArray();
+    }
+
+    public static StandardFinePolicy from(LibraryInfo info) {
+        List<DayOfWeek> closed = new ArrayList<>();
+        if (isClosed(info.getMondayToFriday())) {
+            closed.addAll(Arrays.asList(DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY,
+                    DayOfWeek.THURSDAY, DayOfWeek.FRIDAY));
+        }
+        if (isClosed(info.getSaturday())) closed.add(DayOfWeek.SATURDAY);
+        if (isClosed(info.getSunday())) closed.add(DayOfWeek.SUNDAY);
+        return new StandardFinePolicy(info.getFinePerDayCents(), info.getGenreFinePerDayCents(),
+                info.getFineGraceDays(), info.getMaxFineCents(), closed, info.getClosedDates());
+    }
+
+    private static boolean isClosed(String hours) {
+        return hours == null || hours.trim().equalsIgnoreCase("Closed");
+    }
+
+    @Override
+    public long fineCents(Transaction t, long endDay) {
+        long first = t.getDueDay() + 1 + graceDays;
+        if (endDay < first) return 0;
+        long cents = openDays(first, endDay) * rateFor(t);
+        return capCents > 0 ? Math.min(cents, capCents) : cents;
+    }
+
+    private long rateFor(Transaction t) {
+        if (genreRatesCents.isEmpty()) return dailyRateCents;
+        String genre = t.getBook().getGenre();
+        Long rate = genre != null ? genreRatesCents.get(genre.toLowerCase()) : null;
+        return rate != null ? rate : dailyRateCents;
+    }
+
+    // Days in [from, to] the library is open.
+    long openDays(long from, long to) {
+        long days = to - from + 1;
+        for (int dow = 0; dow < 7; dow++) {
+            if (closedWeekdays[dow]) days -= countWeekday(from, to, dow);
+        }
+        return days - (upperBound(closedDays, to) - upperBound(closedDays, from - 1));
+    }
+
+    // Epoch day 0 (1970-01-01) was a Thursday, DayOfWeek ordinal 3.
+    private static long countWeekday(long from, long to, int dow) {
+        long first = Math.floorMod(dow - 3, 7);
+        return Math.floorDiv(to - first, 7) - Math.floorDiv(from - 1 - first, 7);
+    }
+
+    private static int upperBound(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= value) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
@@ -1,7 +1,8 @@
 package main.java.library.models;
 
+import main.java.library.utils.LibraryClock;
+
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 
 public class Transaction {
     private int id;
@@ -10,18 +11,19 @@ public class Transaction {
     private LocalDate borrowDate;
     private LocalDate dueDate;
     private LocalDate returnDate;
-    private double fine;
+    private long dueDay;
+    private long returnDay = NOT_RETURNED;
     private boolean finePaid;
-    private static final double FINE_PER_DAY = 2.0;
+    private volatile FineAccrual accrual;
+    private static final long NOT_RETURNED = Long.MAX_VALUE;
+    private static volatile FinePolicy finePolicy = StandardFinePolicy.from(new LibraryInfo());
 
     public Transaction(int id, Book book, Member member, LocalDate borrowDate, LocalDate dueDate) {
         this.id = id;
         this.book = book;
         this.member = member;
         this.borrowDate = borrowDate;
-        this.dueDate = dueDate;
-        this.returnDate = null;
-        this.fine = 0.0;
+        setDueDate(dueDate);
         this.finePaid = false;
     }
 
@@ -38,46 +40,97 @@ public class Transaction {
     public void setBorrowDate(LocalDate borrowDate) { this.borrowDate = borrowDate; }
 
     public LocalDate getDueDate() { return dueDate; }
-    public void setDueDate(LocalDate dueDate) { this.dueDate = dueDate; }
+    public void setDueDate(LocalDate dueDate) {
+        this.dueDate = dueDate;
+        this.dueDay = dueDate.toEpochDay();
+        this.accrual = null;
+    }
 
     public LocalDate getReturnDate() { return returnDate; }
-    public void setReturnDate(LocalDate returnDate) { this.returnDate = returnDate; }
+    public void setReturnDate(LocalDate returnDate) {
+        this.returnDate = returnDate;
+        this.returnDay = returnDate != null ? returnDate.toEpochDay() : NOT_RETURNED;
+        this.accrual = null;
+    }
+
+    public long getDueDay() { return dueDay; }
 
     public boolean isReturned() {
-        return returnDate != null;
+        return returnDay != NOT_RETURNED;
     }
 
     public boolean isOverdue() {
-        if (isReturned()) return false;
-        return LocalDate.now().isAfter(dueDate);
+        return isOverdue(LibraryClock.today());
+    }
+
+    public boolean isOverdue(long today) {
+        return returnDay == NOT_RETURNED && today > dueDay;
     }
 
     public double calculateFine() {
-        if (isReturned()) {
-            if (returnDate.isAfter(dueDate)) {
-                long daysOverdue = ChronoUnit.DAYS.between(dueDate, returnDate);
-                return daysOverdue * FINE_PER_DAY;
-            }
-            return 0.0;
+        return getFineCents(LibraryClock.today()) / 100.0;
+    }
+
+    public double calculateFine(long today) {
+        return getFineCents(today) / 100.0;
+    }
+
+    /** The fine in cents as of {@code today}, computed once per day and policy and then cached. */
+    public long getFineCents(long today) {
+        return accrual(today).cents;
+    }
+
+    /**
+     * The fine as of {@code today} for display, such as "$1.25", or "-" for none.
+     * The text is built once per cached fine, so table cells can ask on every render.
+     */
+    public String getFineText(long today) {
+        FineAccrual cached = accrual(today);
+        String text = cached.text;
+        if (text == null) {
+            text = cached.cents > 0 ? "$" + cached.cents / 100 + (cached.cents % 100 < 10 ? ".0" : ".") + cached.cents % 100 : "-";
+            cached.text = text;
         }
-        if (LocalDate.now().isAfter(dueDate)) {
-            long daysOverdue = ChronoUnit.DAYS.between(dueDate, LocalDate.now());
-            return daysOverdue * FINE_PER_DAY;
+        return text;
+    }
+
+    private FineAccrual accrual(long today) {
+        FinePolicy policy = finePolicy;
+        FineAccrual cached = accrual;
+        if (cached != null && cached.day == today && cached.policy == policy) {
+            return cached;
         }
-        return 0.0;
+        long end = Math.min(returnDay, today);
+        long cents = end > dueDay ? policy.fineCents(this, end) : 0;
+        cached = new FineAccrual(policy, today, cents);
+        accrual = cached;
+        return cached;
     }
 
+    public static FinePolicy getFinePolicy() { return finePolicy; }
+    public static void setFinePolicy(FinePolicy policy) { finePolicy = policy; }
+
     public boolean isFinePaid() { return finePaid; }
     public void setFinePaid(boolean finePaid) { this.finePaid = finePaid; }
 
     public void payFine() { this.finePaid = true; }
 
-    public String getStatus() {
-        if (isReturned()) return "Returned";
-        if (isOverdue()) {
-            double fineAmount = calculateFine();
-            return String.format("Overdue (Fine: $%.2f)", fineAmount);
+    public LoanStatus getStatus() {
+        if (isReturned()) return LoanStatus.RETURNED;
+        return isOverdue() ? LoanStatus.OVERDUE : LoanStatus.ACTIVE;
+    }
+
+    private static final class FineAccrual {
+        final FinePolicy policy;
+        final long day;
+        final long cents;
+        // Built on first display. Racing threads build the same string, so no lock is needed.
+        String text;
+
+        FineAccrual(FinePolicy policy, long day, long cents) {
+            this.policy = policy;
+            this.day = day;
+            this.cents = cents;
         }
-        return "Active";
     }
 }
@@ -0,0 +1,73 @@
+package main.java.library.panels;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+public class ListTableModel<T> extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<Function<T, Object>> columnValues = new ArrayList<>();
+    private List<T> rows = Collections.emptyList();
+
+    public ListTableModel<T> addColumn(String name, Function<T, Object> value) {
+        columnNames.add(name);
+        columnValues.add(value);
+        return this;
+    }
+
+    public void setRows(List<T> rows) {
+        this.rows = rows;
+        fireTableDataChanged();
+    }
+
+    public T getRow(int row) {
+        return rows.get(row);
+    }
+
+    public void rowInserted(List<T> rows, int row) {
+        this.rows = rows;
+        fireTableRowsInserted(row, row);
+    }
+
+    public void rowsInserted(int first, int last) {
+        fireTableRowsInserted(first, last);
+    }
+
+    public void rowUpdated(int row) {
+        fireTableRowsUpdated(row, row);
+    }
+
+    public void rowDeleted(List<T> rows, int row) {
+        this.rows = rows;
+        fireTableRowsDeleted(row, row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames.get(column);
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return columnValues.get(column).apply(rows.get(row));
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+}
@@ -1,32 +1,44 @@
 package main.java.library.panels;
 
+import main.java.library.db.TransactionQuery;
 import main.java.library.models.Book;
 import main.java.library.models.BookRequest;
 import main.java.library.models.LibraryInfo;
+import main.java.library.models.LoanStatus;
 import main.java.library.models.Member;
 import main.java.library.models.Transaction;
 import main.java.library.utils.BackgroundPanel;
+import main.java.library.utils.CatalogueImporter;
+import main.java.library.utils.CirculationHistory;
 import main.java.library.utils.DataManager;
+import main.java.library.utils.LibraryClock;
+import main.java.library.utils.ReportExporter;
+import main.java.library.utils.RosterImporter;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableModel;
 import java.awt.*;
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
 
 public class StaffPanel extends JPanel {
     private DataManager dataManager;
     private JTabbedPane tabbedPane;
     private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-    private DefaultTableModel booksTableModel;
-    private DefaultTableModel membersTableModel;
-    private DefaultTableModel transactionsTableModel;
-    private DefaultTableModel requestsTableModel;
+    private ListTableModel<Book> booksTableModel;
+    private ListTableModel<Member> membersTableModel;
+    private ListTableModel<Transaction> transactionsTableModel;
+    private ListTableModel<BookRequest> requestsTableModel;
+    private TransactionPager transactionsPager;
 
     private JPanel reportsPanel;
 
@@ -78,21 +90,29 @@ public class StaffPanel extends JPanel {
         JButton addBtn = createButton("Add Book", AVAILABLE_COLOR);
         JButton editBtn = createButton("Edit Book", SECONDARY_COLOR);
         JButton deleteBtn = createButton("Delete Book", DANGER_COLOR);
+        JButton importBtn = createButton("Import Books", PRIMARY_COLOR);
 
         buttonPanel.add(addBtn);
         buttonPanel.add(editBtn);
         buttonPanel.add(deleteBtn);
-
-        String[] columns = {"ID", "Title", "Author", "ISBN", "Genre", "Section", "Shelf", "Qty", "Available"};
-        booksTableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) { return false; }
-        };
+        buttonPanel.add(importBtn);
+
+        booksTableModel = new ListTableModel<Book>()
+                .addColumn("ID", Book::getId)
+                .addColumn("Title", Book::getTitle)
+                .addColumn("Author", Book::getAuthor)
+                .addColumn("ISBN", Book::getIsbn)
+                .addColumn("Genre", Book::getGenre)
+                .addColumn("Section", Book::getSection)
+                .addColumn("Shelf", Book::getShelf)
+                .addColumn("Qty", Book::getQuantity)
+                .addColumn("Available", Book::getAvailableQuantity);
         JTable table = createStyledTable(booksTableModel);
 
         addBtn.addActionListener(e -> showAddBookDialog());
         editBtn.addActionListener(e -> showEditBookDialog(table));
         deleteBtn.addActionListener(e -> deleteSelectedBook(table));
+        importBtn.addActionListener(e -> importBooks());
 
         refreshBooksTable();
 
@@ -103,14 +123,7 @@ public class StaffPanel extends JPanel {
 
     private void refreshBooksTable() {
         if (booksTableModel == null) return;
-        booksTableModel.setRowCount(0);
-        for (Book book : dataManager.getBooks()) {
-            booksTableModel.addRow(new Object[]{
-                    book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(),
-                    book.getGenre(), book.getSection(), book.getShelf(),
-                    book.getQuantity(), book.getAvailableQuantity()
-            });
-        }
+        booksTableModel.setRows(dataManager.getBooks());
     }
 
     private void showAddBookDialog() {
@@ -165,8 +178,11 @@ public class StaffPanel extends JPanel {
             int qty = (int) quantitySpinner.getValue();
             Book book = new Book(0, title, author, isbnField.getText().trim(), true,
                     sectionField.getText().trim(), genre, shelfField.getText().trim(), qty, qty);
-            dataManager.addBook(book);
-            refreshBooksTable();
+            if (!dataManager.addBook(book)) {
+                showIsbnTaken(dialog, book.getIsbn());
+                return;
+            }
+            booksTableModel.rowInserted(dataManager.getBooks(), booksTableModel.getRowCount());
             dialog.dispose();
         });
 
@@ -179,14 +195,95 @@ public class StaffPanel extends JPanel {
         dialog.setVisible(true);
     }
 
+    private void importBooks() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Import Books");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV files (*.csv)", "csv"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = fileChooser.getSelectedFile();
+
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        JButton cancelBtn = createButton("Cancel", DANGER_COLOR);
+        JDialog dialog = createProgressDialog("Importing Books", "Reading " + file.getName(), progressBar, cancelBtn);
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        SwingWorker<CatalogueImporter.Result, Void> worker = new SwingWorker<CatalogueImporter.Result, Void>() {
+            @Override
+            protected CatalogueImporter.Result doInBackground() throws IOException {
+                return new CatalogueImporter(dataManager).importFile(file.toPath(), percent -> {
+                    setProgress(percent);
+                    return !cancelled.get();
+                });
+            }
+
+            @Override
+            protected void done() {
+                dialog.dispose();
+                try {
+                    CatalogueImporter.Result result = get();
+                    refreshBooksTable();
+                    String summary = String.format("%s %,d of %,d books.", result.isCancelled() ? "Import cancelled after adding" : "Imported",
+                            result.getImported(), result.getRows());
+                    showImportSummary("Import Books", summary, result.getProblems());
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(StaffPanel.this, "Error importing books: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) progressBar.setValue((Integer) e.getNewValue());
+        });
+        cancelBtn.addActionListener(e -> cancelled.set(true));
+        worker.execute();
+        dialog.setVisible(true);
+    }
+
+    // One summary for a whole import, listing the rejected rows with an option to save them.
+    private void showImportSummary(String title, String summary, List<CatalogueImporter.Problem> problems) {
+        if (problems.isEmpty()) {
+            JOptionPane.showMessageDialog(this, summary, title, JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        StringBuilder text = new StringBuilder();
+        int shown = Math.min(problems.size(), 1000);
+        for (int i = 0; i < shown; i++) {
+            text.append("Row ").append(problems.get(i).getRow()).append(": ").append(problems.get(i).getMessage()).append('\n');
+        }
+        if (shown < problems.size()) {
+            text.append(String.format("... and %,d more; save the error report to see them all.%n", problems.size() - shown));
+        }
+        JTextArea area = new JTextArea(text.toString(), 12, 50);
+        area.setEditable(false);
+        area.setCaretPosition(0);
+
+        JPanel message = new JPanel(new BorderLayout(10, 10));
+        message.add(new JLabel(summary + String.format(" %,d rows were skipped:", problems.size())), BorderLayout.NORTH);
+        message.add(new JScrollPane(area), BorderLayout.CENTER);
+        Object[] options = {"Save Error Report", "Close"};
+        int choice = JOptionPane.showOptionDialog(this, message, title, JOptionPane.DEFAULT_OPTION,
+                JOptionPane.WARNING_MESSAGE, null, options, options[1]);
+        if (choice != 0) return;
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Save Error Report");
+        fileChooser.setSelectedFile(new File("import_errors_" + LibraryClock.todayDate().format(dateFormatter) + ".csv"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        try {
+            CatalogueImporter.writeReport(fileChooser.getSelectedFile().toPath(), problems);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(this, "Error saving report: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void showEditBookDialog(JTable table) {
         int row = table.getSelectedRow();
         if (row < 0) {
             JOptionPane.showMessageDialog(this, "Please select a book to edit", "No Selection", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        int bookId = (int) booksTableModel.getValueAt(row, 0);
-        Book book = dataManager.getBookById(bookId);
+        Book book = booksTableModel.getRow(row);
 
         JDialog dialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Edit Book", true);
         dialog.setLayout(new BorderLayout(10, 10));
@@ -229,17 +326,26 @@ public class StaffPanel extends JPanel {
         JButton cancelBtn = createButton("Cancel", new Color(0x99, 0x99, 0x99));
 
         saveBtn.addActionListener(e -> {
+            String isbn = isbnField.getText().trim();
+            Book holder = dataManager.findBookByIsbn(isbn);
+            if (holder != null && holder.getId() != book.getId()) {
+                showIsbnTaken(dialog, isbn);
+                return;
+            }
             book.setTitle(titleField.getText().trim());
             book.setAuthor(authorField.getText().trim());
-            book.setIsbn(isbnField.getText().trim());
+            book.setIsbn(isbn);
             String genre = ((String) genreCombo.getSelectedItem()).trim();
             if (genre.isEmpty()) genre = "General";
             book.setGenre(genre);
             book.setSection(sectionField.getText().trim());
             book.setShelf(shelfField.getText().trim());
             book.setQuantity((int) quantitySpinner.getValue());
-            dataManager.updateBook(book);
-            refreshBooksTable();
+            if (!dataManager.updateBook(book)) {
+                showIsbnTaken(dialog, isbn);
+                return;
+            }
+            booksTableModel.rowUpdated(row);
             dialog.dispose();
         });
 
@@ -252,18 +358,27 @@ public class StaffPanel extends JPanel {
         dialog.setVisible(true);
     }
 
+    private void showIsbnTaken(JDialog dialog, String isbn) {
+        Book holder = dataManager.findBookByIsbn(isbn);
+        String title = holder != null ? " by \"" + holder.getTitle() + "\"" : "";
+        JOptionPane.showMessageDialog(dialog, "ISBN " + isbn + " is already used" + title, "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
     private void deleteSelectedBook(JTable table) {
         int row = table.getSelectedRow();
         if (row < 0) {
             JOptionPane.showMessageDialog(this, "Please select a book to delete", "No Selection", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        int bookId = (int) booksTableModel.getValueAt(row, 0);
-        String title = (String) booksTableModel.getValueAt(row, 1);
-        int confirm = JOptionPane.showConfirmDialog(this, "Delete \"" + title + "\"?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
+        Book book = booksTableModel.getRow(row);
+        int confirm = JOptionPane.showConfirmDialog(this, "Delete \"" + book.getTitle() + "\"?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            dataManager.deleteBook(bookId);
-            refreshBooksTable();
+            if (!dataManager.deleteBook(book.getId())) {
+                JOptionPane.showMessageDialog(this, "\"" + book.getTitle() + "\" has loans on record and cannot be deleted.",
+                        "Cannot Delete", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            booksTableModel.rowDeleted(dataManager.getBooks(), row);
         }
     }
 
@@ -276,21 +391,26 @@ public class StaffPanel extends JPanel {
         JButton addBtn = createButton("Add Member", AVAILABLE_COLOR);
         JButton editBtn = createButton("Edit Member", SECONDARY_COLOR);
         JButton deleteBtn = createButton("Delete Member", DANGER_COLOR);
+        JButton rosterBtn = createButton("Import Roster", PRIMARY_COLOR);
 
         buttonPanel.add(addBtn);
         buttonPanel.add(editBtn);
         buttonPanel.add(deleteBtn);
-
-        String[] columns = {"ID", "Name", "Email", "Phone", "Member Since", "Books Borrowed"};
-        membersTableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) { return false; }
-        };
+        buttonPanel.add(rosterBtn);
+
+        membersTableModel = new ListTableModel<Member>()
+                .addColumn("ID", Member::getId)
+                .addColumn("Name", Member::getName)
+                .addColumn("Email", Member::getEmail)
+                .addColumn("Phone", Member::getPhone)
+                .addColumn("Member Since", m -> m.getMemberSince().format(dateFormatter))
+                .addColumn("Books Borrowed", m -> dataManager.getMemberBorrowedCount(m));
         JTable table = createStyledTable(membersTableModel);
 
         addBtn.addActionListener(e -> showAddMemberDialog());
         editBtn.addActionListener(e -> showEditMemberDialog(table));
         deleteBtn.addActionListener(e -> deleteSelectedMember(table));
+        rosterBtn.addActionListener(e -> importRoster());
 
         refreshMembersTable();
 
@@ -301,14 +421,7 @@ public class StaffPanel extends JPanel {
 
     private void refreshMembersTable() {
         if (membersTableModel == null) return;
-        membersTableModel.setRowCount(0);
-        for (Member member : dataManager.getMembers()) {
-            membersTableModel.addRow(new Object[]{
-                    member.getId(), member.getName(), member.getEmail(), member.getPhone(),
-                    member.getMemberSince().format(dateFormatter),
-                    dataManager.getMemberBorrowedCount(member)
-            });
-        }
+        membersTableModel.setRows(dataManager.getMembers());
     }
 
     private void showAddMemberDialog() {
@@ -345,7 +458,7 @@ public class StaffPanel extends JPanel {
             }
             Member member = new Member(0, name, emailField.getText().trim(), phoneField.getText().trim(), LocalDate.now());
             dataManager.addMember(member);
-            refreshMembersTable();
+            membersTableModel.rowInserted(dataManager.getMembers(), membersTableModel.getRowCount());
             dialog.dispose();
         });
 
@@ -358,14 +471,74 @@ public class StaffPanel extends JPanel {
         dialog.setVisible(true);
     }
 
+    private void importRoster() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Import Roster");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV files (*.csv)", "csv"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File file = fileChooser.getSelectedFile();
+
+        Object[] options = {"Add and Update", "Full Sync", "Cancel"};
+        int mode = JOptionPane.showOptionDialog(this,
+                "Members are matched by email. Add and Update adds new members and updates the rest.\n"
+                        + "Full Sync also removes members who are not on the roster, unless they have books out or fines unpaid.",
+                "Import Roster", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+        if (mode != 0 && mode != 1) return;
+        boolean removeMissing = mode == 1;
+
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        JButton cancelBtn = createButton("Cancel", DANGER_COLOR);
+        JDialog dialog = createProgressDialog("Importing Roster", "Reading " + file.getName(), progressBar, cancelBtn);
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        SwingWorker<RosterImporter.Result, Void> worker = new SwingWorker<RosterImporter.Result, Void>() {
+            @Override
+            protected RosterImporter.Result doInBackground() throws IOException {
+                return new RosterImporter(dataManager).importFile(file.toPath(), removeMissing, percent -> {
+                    setProgress(percent);
+                    return !cancelled.get();
+                });
+            }
+
+            @Override
+            protected void done() {
+                dialog.dispose();
+                try {
+                    RosterImporter.Result result = get();
+                    if (result.isCancelled()) {
+                        JOptionPane.showMessageDialog(StaffPanel.this, "Import cancelled; no members were changed", "Info", JOptionPane.INFORMATION_MESSAGE);
+                        return;
+                    }
+                    refreshMembersTable();
+                    RosterImporter.Changes changes = result.getChanges();
+                    String summary = String.format("%,d roster rows: %,d members added, %,d updated", result.getRows(),
+                            changes.getAdded().size(), changes.getUpdated().size());
+                    if (removeMissing) {
+                        summary += String.format(", %,d removed, %,d kept for loans, fines or requests on record",
+                                changes.getRemoved().size(), changes.getKept().size());
+                    }
+                    showImportSummary("Import Roster", summary + ".", result.getProblems());
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(StaffPanel.this, "Error importing roster: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) progressBar.setValue((Integer) e.getNewValue());
+        });
+        cancelBtn.addActionListener(e -> cancelled.set(true));
+        worker.execute();
+        dialog.setVisible(true);
+    }
+
     private void showEditMemberDialog(JTable table) {
         int row = table.getSelectedRow();
         if (row < 0) {
             JOptionPane.showMessageDialog(this, "Please select a member to edit", "No Selection", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        int memberId = (int) membersTableModel.getValueAt(row, 0);
-        Member member = dataManager.getMemberById(memberId);
+        Member member = membersTableModel.getRow(row);
 
         JDialog dialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), "Edit Member", true);
         dialog.setLayout(new BorderLayout(10, 10));
@@ -397,7 +570,7 @@ public class StaffPanel extends JPanel {
             member.setEmail(emailField.getText().trim());
             member.setPhone(phoneField.getText().trim());
             dataManager.updateMember(member);
-            refreshMembersTable();
+            membersTableModel.rowUpdated(row);
             dialog.dispose();
         });
 
@@ -416,12 +589,15 @@ public class StaffPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Please select a member to delete", "No Selection", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        int memberId = (int) membersTableModel.getValueAt(row, 0);
-        String name = (String) membersTableModel.getValueAt(row, 1);
-        int confirm = JOptionPane.showConfirmDialog(this, "Delete member \"" + name + "\"?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
+        Member member = membersTableModel.getRow(row);
+        int confirm = JOptionPane.showConfirmDialog(this, "Delete member \"" + member.getName() + "\"?", "Confirm Delete", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            dataManager.deleteMember(memberId);
-            refreshMembersTable();
+            if (!dataManager.deleteMember(member.getId())) {
+                JOptionPane.showMessageDialog(this, member.getName() + " has loans or book requests on record and cannot be deleted.",
+                        "Cannot Delete", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            membersTableModel.rowDeleted(dataManager.getMembers(), row);
         }
     }
 
@@ -454,11 +630,15 @@ public class StaffPanel extends JPanel {
         topPanel.add(buttonPanel, BorderLayout.WEST);
         topPanel.add(filterPanel, BorderLayout.EAST);
 
-        String[] columns = {"ID", "Book", "Member", "Borrow Date", "Due Date", "Return Date", "Fine", "Status"};
-        transactionsTableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) { return false; }
-        };
+        transactionsTableModel = new ListTableModel<Transaction>()
+                .addColumn("ID", Transaction::getId)
+                .addColumn("Book", t -> t.getBook().getTitle())
+                .addColumn("Member", t -> t.getMember().getName())
+                .addColumn("Borrow Date", t -> t.getBorrowDate().format(dateFormatter))
+                .addColumn("Due Date", t -> t.getDueDate().format(dateFormatter))
+                .addColumn("Return Date", t -> t.getReturnDate() != null ? t.getReturnDate().format(dateFormatter) : "-")
+                .addColumn("Fine", t -> t.getFineText(LibraryClock.today()))
+                .addColumn("Status", Transaction::getStatus);
         JTable table = createStyledTable(transactionsTableModel);
 
         table.getColumnModel().getColumn(7).setCellRenderer(new DefaultTableCellRenderer() {
@@ -467,32 +647,22 @@ public class StaffPanel extends JPanel {
                                                            boolean isSelected, boolean hasFocus, int row, int column) {
                 Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
                 if (!isSelected) {
-                    String status = (String) value;
-                    if (status.startsWith("Active")) c.setForeground(SECONDARY_COLOR);
-                    else if (status.startsWith("Overdue")) c.setForeground(WARNING_COLOR);
-                    else if (status.startsWith("Returned")) c.setForeground(AVAILABLE_COLOR);
+                    if (value == LoanStatus.ACTIVE) c.setForeground(SECONDARY_COLOR);
+                    else if (value == LoanStatus.OVERDUE) c.setForeground(WARNING_COLOR);
+                    else if (value == LoanStatus.RETURNED) c.setForeground(AVAILABLE_COLOR);
                 }
                 setHorizontalAlignment(CENTER);
                 return c;
             }
         });
 
+        JScrollPane scrollPane = new JScrollPane(table);
+        transactionsPager = new TransactionPager(dataManager, transactionsTableModel, scrollPane);
+
         Runnable refreshFiltered = () -> {
-            transactionsTableModel.setRowCount(0);
-            List<Transaction> list;
-            if (showOverdueOnly.isSelected()) list = dataManager.getOverdueTransactions();
-            else if (showActiveOnly.isSelected()) list = dataManager.getActiveTransactions();
-            else list = dataManager.getTransactions();
-            for (Transaction t : list) {
-                double fine = t.calculateFine();
-                String fineStr = fine > 0 ? String.format("$%.2f", fine) : "-";
-                transactionsTableModel.addRow(new Object[]{
-                        t.getId(), t.getBook().getTitle(), t.getMember().getName(),
-                        t.getBorrowDate().format(dateFormatter), t.getDueDate().format(dateFormatter),
-                        t.getReturnDate() != null ? t.getReturnDate().format(dateFormatter) : "-",
-                        fineStr, t.getStatus()
-                });
-            }
+            if (showOverdueOnly.isSelected()) transactionsPager.reset(TransactionQuery.all().overdueOnly());
+            else if (showActiveOnly.isSelected()) transactionsPager.reset(TransactionQuery.all().activeOnly());
+            else transactionsPager.reset(TransactionQuery.all());
         };
 
         showActiveOnly.addActionListener(e -> { if (showActiveOnly.isSelected()) showOverdueOnly.setSelected(false); refreshFiltered.run(); });
@@ -500,28 +670,18 @@ public class StaffPanel extends JPanel {
 
         issueBtn.addActionListener(e -> showIssueBookDialog(refreshFiltered));
         returnBtn.addActionListener(e -> returnSelectedBook(table, refreshFiltered));
-        collectFineBtn.addActionListener(e -> collectFine(table, refreshFiltered));
+        collectFineBtn.addActionListener(e -> collectFine(table, transactionsTableModel::rowUpdated));
 
         refreshFiltered.run();
 
         panel.add(topPanel, BorderLayout.NORTH);
-        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+        panel.add(scrollPane, BorderLayout.CENTER);
         return panel;
     }
 
     private void refreshTransactionsTable() {
-        if (transactionsTableModel == null) return;
-        transactionsTableModel.setRowCount(0);
-        for (Transaction t : dataManager.getTransactions()) {
-            double fine = t.calculateFine();
-            String fineStr = fine > 0 ? String.format("$%.2f", fine) : "-";
-            transactionsTableModel.addRow(new Object[]{
-                    t.getId(), t.getBook().getTitle(), t.getMember().getName(),
-                    t.getBorrowDate().format(dateFormatter), t.getDueDate().format(dateFormatter),
-                    t.getReturnDate() != null ? t.getReturnDate().format(dateFormatter) : "-",
-                    fineStr, t.getStatus()
-            });
-        }
+        if (transactionsPager == null) return;
+        transactionsPager.reload();
     }
 
     private void showIssueBookDialog(Runnable onComplete) {
@@ -556,8 +716,8 @@ public class StaffPanel extends JPanel {
         formPanel.add(new JLabel("Loan Days:"));
         formPanel.add(daysSpinner);
         formPanel.add(new JLabel("Due Date:"));
-        JLabel dueLabel = new JLabel(LocalDate.now().plusDays(14).format(dateFormatter));
-        daysSpinner.addChangeListener(e -> dueLabel.setText(LocalDate.now().plusDays((int)daysSpinner.getValue()).format(dateFormatter)));
+        JLabel dueLabel = new JLabel(LibraryClock.todayDate().plusDays(14).format(dateFormatter));
+        daysSpinner.addChangeListener(e -> dueLabel.setText(LibraryClock.todayDate().plusDays((int)daysSpinner.getValue()).format(dateFormatter)));
         formPanel.add(dueLabel);
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
@@ -571,8 +731,15 @@ public class StaffPanel extends JPanel {
             Member member = dataManager.getMemberById(memberId);
             int days = (int) daysSpinner.getValue();
 
-            Transaction t = new Transaction(0, book, member, LocalDate.now(), LocalDate.now().plusDays(days));
-            dataManager.addTransaction(t);
+            LocalDate today = LibraryClock.todayDate();
+            Transaction t = new Transaction(0, book, member, today, today.plusDays(days));
+            if (!dataManager.addTransaction(t, dataManager.getLibraryInfo().getMaxBooksPerStudent())) {
+                String reason = dataManager.getRemainingBorrowLimit(member) <= 0
+                        ? member.getName() + " has reached the borrowing limit."
+                        : "No copies of \"" + book.getTitle() + "\" are available any more.";
+                JOptionPane.showMessageDialog(dialog, reason, "Cannot Issue", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
             onComplete.run();
             dialog.dispose();
             JOptionPane.showMessageDialog(this, "Book issued successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
@@ -593,29 +760,24 @@ public class StaffPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Please select a transaction", "No Selection", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        String status = (String) transactionsTableModel.getValueAt(row, 7);
-        if (status.startsWith("Returned")) {
+        Transaction t = transactionsTableModel.getRow(row);
+        if (t.isReturned()) {
             JOptionPane.showMessageDialog(this, "Book already returned", "Error", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        int transactionId = (int) transactionsTableModel.getValueAt(row, 0);
-        Transaction t = dataManager.getTransactions().stream().filter(tr -> tr.getId() == transactionId).findFirst().orElse(null);
-        if (t != null) {
-            dataManager.returnBook(t);
+        if (dataManager.returnBook(t)) {
             onComplete.run();
             JOptionPane.showMessageDialog(this, "Book returned successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
         }
     }
 
-    private void collectFine(JTable table, Runnable onComplete) {
+    private void collectFine(JTable table, IntConsumer onComplete) {
         int row = table.getSelectedRow();
         if (row < 0) {
             JOptionPane.showMessageDialog(this, "Please select a transaction", "No Selection", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        int transactionId = (int) transactionsTableModel.getValueAt(row, 0);
-        Transaction t = dataManager.getTransactions().stream().filter(tr -> tr.getId() == transactionId).findFirst().orElse(null);
-        if (t == null) return;
+        Transaction t = transactionsTableModel.getRow(row);
 
         double fine = t.calculateFine();
         if (fine <= 0) {
@@ -630,9 +792,11 @@ public class StaffPanel extends JPanel {
                 String.format("Collect fine of $%.2f from %s?", fine, t.getMember().getName()),
                 "Collect Fine", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            dataManager.collectFine(t.getId());
-            t.payFine();
-            onComplete.run();
+            if (!dataManager.collectFine(t.getId())) {
+                JOptionPane.showMessageDialog(this, "Fine already collected", "Info", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            onComplete.accept(row);
             JOptionPane.showMessageDialog(this, "Fine collected successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
         }
     }
@@ -649,11 +813,13 @@ public class StaffPanel extends JPanel {
         buttonPanel.add(approveBtn);
         buttonPanel.add(rejectBtn);
 
-        String[] columns = {"ID", "Requested By", "Book Title", "Author", "Date", "Status"};
-        requestsTableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) { return false; }
-        };
+        requestsTableModel = new ListTableModel<BookRequest>()
+                .addColumn("ID", BookRequest::getId)
+                .addColumn("Requested By", r -> r.getRequestedBy().getName())
+                .addColumn("Book Title", BookRequest::getBookTitle)
+                .addColumn("Author", BookRequest::getAuthorName)
+                .addColumn("Date", r -> r.getRequestDate().format(dateFormatter))
+                .addColumn("Status", BookRequest::getStatus);
         JTable table = createStyledTable(requestsTableModel);
 
         approveBtn.addActionListener(e -> handleRequest(table, true));
@@ -668,13 +834,7 @@ public class StaffPanel extends JPanel {
 
     private void refreshRequestsTable() {
         if (requestsTableModel == null) return;
-        requestsTableModel.setRowCount(0);
-        for (BookRequest r : dataManager.getBookRequests()) {
-            requestsTableModel.addRow(new Object[]{
-                    r.getId(), r.getRequestedBy().getName(), r.getBookTitle(), r.getAuthorName(),
-                    r.getRequestDate().format(dateFormatter), r.getStatus()
-            });
-        }
+        requestsTableModel.setRows(dataManager.getBookRequests());
     }
 
     private void handleRequest(JTable table, boolean approve) {
@@ -683,12 +843,9 @@ public class StaffPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Please select a request", "No Selection", JOptionPane.WARNING_MESSAGE);
             return;
         }
-        int requestId = (int) requestsTableModel.getValueAt(row, 0);
-        String currentStatus = (String) requestsTableModel.getValueAt(row, 5);
-        if ("Pending".equals(currentStatus)) {
-            String newStatus = approve ? "Approved" : "Rejected";
-            dataManager.updateBookRequestStatus(requestId, newStatus);
-            refreshRequestsTable();
+        BookRequest request = requestsTableModel.getRow(row);
+        if (dataManager.decideBookRequest(request.getId(), approve)) {
+            requestsTableModel.rowUpdated(row);
             JOptionPane.showMessageDialog(this, "Request " + (approve ? "approved" : "rejected") + "!", "Success", JOptionPane.INFORMATION_MESSAGE);
         }
     }
@@ -722,55 +879,128 @@ public class StaffPanel extends JPanel {
         exportBtn.addActionListener(e -> exportReport());
         bottomPanel.add(exportBtn);
 
+        JLabel circulationLabel = new JLabel(circulationSummary(), SwingConstants.CENTER);
+        circulationLabel.setFont(new Font("SansSerif", Font.PLAIN, 14));
+        circulationLabel.setForeground(new Color(0x44, 0x44, 0x44));
+
+        JPanel southPanel = new JPanel(new BorderLayout(10, 10));
+        southPanel.setOpaque(false);
+        southPanel.add(circulationLabel, BorderLayout.NORTH);
+        southPanel.add(bottomPanel, BorderLayout.CENTER);
+
         reportsPanel.add(cardsPanel, BorderLayout.CENTER);
-        reportsPanel.add(bottomPanel, BorderLayout.SOUTH);
+        reportsPanel.add(southPanel, BorderLayout.SOUTH);
         reportsPanel.revalidate();
         reportsPanel.repaint();
     }
 
+    private String circulationSummary() {
+        CirculationHistory history = dataManager.getCirculationHistory();
+        long today = LibraryClock.today();
+        List<CirculationHistory.Group> sections = history.groupBy(CirculationHistory.Dimension.SECTION, today - 365, today + 1);
+        int returned = 0;
+        for (CirculationHistory.Group g : sections) {
+            returned += g.getLoans();
+        }
+        if (returned == 0) return "Past year: no loans returned yet";
+        int[] lengths = history.loanDurationPercentiles(today - 365, today + 1, 0.5, 0.9);
+        StringBuilder busiest = new StringBuilder();
+        for (int i = 0; i < Math.min(3, sections.size()); i++) {
+            if (i > 0) busiest.append(", ");
+            busiest.append(sections.get(i).getKey()).append(" (").append(sections.get(i).getLoans()).append(")");
+        }
+        return String.format("Past year: %,d loans returned, median loan %d days, 90%% back within %d days. Busiest sections: %s",
+                returned, lengths[0], lengths[1], busiest);
+    }
+
     private void exportReport() {
+        String baseName = "library_report_" + LibraryClock.todayDate().format(dateFormatter);
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Save Report");
-        fileChooser.setSelectedFile(new java.io.File("library_report_" + LocalDate.now().format(dateFormatter) + ".txt"));
-        int result = fileChooser.showSaveDialog(this);
-        if (result == JFileChooser.APPROVE_OPTION) {
-            try (FileWriter writer = new FileWriter(fileChooser.getSelectedFile())) {
-                writer.write("=== Library Report ===\n");
-                writer.write("Date: " + LocalDate.now().format(dateFormatter) + "\n\n");
-                writer.write("Total Books: " + dataManager.getTotalBooks() + "\n");
-                writer.write("Total Members: " + dataManager.getTotalMembers() + "\n");
-                writer.write("Active Loans: " + dataManager.getActiveLoansCount() + "\n");
-                writer.write("Overdue Books: " + dataManager.getOverdueCount() + "\n");
-                writer.write(String.format("Total Fines Collected: $%.2f\n", dataManager.getTotalFinesCollected()));
-                writer.write(String.format("Outstanding Fines: $%.2f\n", dataManager.getTotalOutstandingFines()));
-                writer.write("\n=== Books ===\n");
-                for (Book b : dataManager.getBooks()) {
-                    writer.write(String.format("  %d. %s by %s [%s] - %s, Shelf %s (Qty: %d, Available: %d)\n",
-                            b.getId(), b.getTitle(), b.getAuthor(), b.getGenre(),
-                            b.getSection(), b.getShelf(), b.getQuantity(), b.getAvailableQuantity()));
-                }
-                writer.write("\n=== Members ===\n");
-                for (Member m : dataManager.getMembers()) {
-                    writer.write(String.format("  %d. %s (%s) - Borrowed: %d\n",
-                            m.getId(), m.getName(), m.getEmail(), dataManager.getMemberBorrowedCount(m)));
-                }
-                writer.write("\n=== Active Transactions ===\n");
-                for (Transaction t : dataManager.getActiveTransactions()) {
-                    writer.write(String.format("  %d. %s -> %s (Due: %s)\n",
-                            t.getId(), t.getBook().getTitle(), t.getMember().getName(),
-                            t.getDueDate().format(dateFormatter)));
+        fileChooser.setAcceptAllFileFilterUsed(false);
+        ReportExporter.Format[] formats = ReportExporter.Format.values();
+        FileNameExtensionFilter[] filters = new FileNameExtensionFilter[formats.length];
+        for (int i = 0; i < formats.length; i++) {
+            filters[i] = new FileNameExtensionFilter(
+                    formats[i].getDescription() + " (*." + formats[i].getExtension() + ")", formats[i].getExtension());
+            fileChooser.addChoosableFileFilter(filters[i]);
+        }
+        fileChooser.setFileFilter(filters[0]);
+        fileChooser.setSelectedFile(new File(baseName + "." + formats[0].getExtension()));
+        fileChooser.addPropertyChangeListener(JFileChooser.FILE_FILTER_CHANGED_PROPERTY, e -> {
+            int chosen = Arrays.asList(filters).indexOf(e.getNewValue());
+            if (chosen >= 0) fileChooser.setSelectedFile(new File(baseName + "." + formats[chosen].getExtension()));
+        });
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+        // An extension typed into the name wins; otherwise the chosen filter decides and its extension is added.
+        File file = fileChooser.getSelectedFile();
+        ReportExporter.Format format = ReportExporter.Format.forFileName(file.getName());
+        if (format == null) {
+            format = formats[Math.max(0, Arrays.asList(filters).indexOf(fileChooser.getFileFilter()))];
+            file = new File(file.getPath() + "." + format.getExtension());
+        }
+        runExport(file, format);
+    }
+
+    // Writes the report on a background thread while a small window shows progress and offers Cancel.
+    private void runExport(File file, ReportExporter.Format format) {
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        JButton cancelBtn = createButton("Cancel", DANGER_COLOR);
+        JDialog dialog = createProgressDialog("Exporting Report", "Writing " + file.getName(), progressBar, cancelBtn);
+
+        SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() throws IOException {
+                return new ReportExporter(dataManager).export(file.toPath(), format, percent -> {
+                    setProgress(percent);
+                    return !isCancelled();
+                });
+            }
+
+            @Override
+            protected void done() {
+                dialog.dispose();
+                if (isCancelled()) {
+                    JOptionPane.showMessageDialog(StaffPanel.this, "Export cancelled", "Info", JOptionPane.INFORMATION_MESSAGE);
+                    return;
                 }
-                writer.write("\n=== Overdue Transactions ===\n");
-                for (Transaction t : dataManager.getOverdueTransactions()) {
-                    writer.write(String.format("  %d. %s -> %s (Due: %s, Fine: $%.2f)\n",
-                            t.getId(), t.getBook().getTitle(), t.getMember().getName(),
-                            t.getDueDate().format(dateFormatter), t.calculateFine()));
+                try {
+                    if (get()) {
+                        JOptionPane.showMessageDialog(StaffPanel.this, "Report exported successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                    }
+                } catch (Exception ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(StaffPanel.this, "Error exporting report: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 }
-                JOptionPane.showMessageDialog(this, "Report exported successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(this, "Error exporting report: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
-        }
+        };
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) progressBar.setValue((Integer) e.getNewValue());
+        });
+        cancelBtn.addActionListener(e -> worker.cancel(false));
+        worker.execute();
+        dialog.setVisible(true);
+    }
+
+    // A small modeless window with a message, a progress bar and a Cancel button, for work done on a SwingWorker.
+    private JDialog createProgressDialog(String title, String message, JProgressBar progressBar, JButton cancelBtn) {
+        JDialog dialog = new JDialog(SwingUtilities.getWindowAncestor(this), title, Dialog.ModalityType.MODELESS);
+        progressBar.setStringPainted(true);
+
+        JPanel content = new JPanel(new BorderLayout(10, 10));
+        content.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        content.add(new JLabel(message), BorderLayout.NORTH);
+        content.add(progressBar, BorderLayout.CENTER);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(cancelBtn);
+        content.add(buttons, BorderLayout.SOUTH);
+        dialog.setContentPane(content);
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        dialog.pack();
+        dialog.setSize(Math.max(dialog.getWidth(), 380), dialog.getHeight());
+        dialog.setLocationRelativeTo(this);
+        return dialog;
     }
 
     private JPanel createStatCard(String title, String value, Color color) {
@@ -799,7 +1029,7 @@ public class StaffPanel extends JPanel {
 
         LibraryInfo info = dataManager.getLibraryInfo();
 
-        JPanel formPanel = new JPanel(new GridLayout(8, 2, 10, 10));
+        JPanel formPanel = new JPanel(new GridLayout(11, 2, 10, 10));
         formPanel.setOpaque(false);
 
         JTextField nameField = new JTextField(info.getName());
@@ -810,6 +1040,9 @@ public class StaffPanel extends JPanel {
         JTextField satField = new JTextField(info.getSaturday());
         JTextField sunField = new JTextField(info.getSunday());
         JSpinner maxBooksSpinner = new JSpinner(new SpinnerNumberModel(info.getMaxBooksPerStudent(), 1, 20, 1));
+        JSpinner finePerDaySpinner = new JSpinner(new SpinnerNumberModel(info.getFinePerDayCents() / 100.0, 0.0, 100.0, 0.25));
+        JSpinner graceDaysSpinner = new JSpinner(new SpinnerNumberModel(info.getFineGraceDays(), 0, 30, 1));
+        JSpinner maxFineSpinner = new JSpinner(new SpinnerNumberModel(info.getMaxFineCents() / 100.0, 0.0, 1000.0, 1.0));
 
         formPanel.add(new JLabel("Library Name:"));
         formPanel.add(nameField);
@@ -827,6 +1060,12 @@ public class StaffPanel extends JPanel {
         formPanel.add(sunField);
         formPanel.add(new JLabel("Max Books/Student:"));
         formPanel.add(maxBooksSpinner);
+        formPanel.add(new JLabel("Fine per Day ($):"));
+        formPanel.add(finePerDaySpinner);
+        formPanel.add(new JLabel("Grace Days:"));
+        formPanel.add(graceDaysSpinner);
+        formPanel.add(new JLabel("Max Fine ($, 0 = no cap):"));
+        formPanel.add(maxFineSpinner);
 
         JButton saveBtn = createButton("Save Settings", AVAILABLE_COLOR);
         saveBtn.addActionListener(e -> {
@@ -838,6 +1077,9 @@ public class StaffPanel extends JPanel {
             info.setSaturday(satField.getText().trim());
             info.setSunday(sunField.getText().trim());
             info.setMaxBooksPerStudent((int) maxBooksSpinner.getValue());
+            info.setFinePerDayCents(Math.round((double) finePerDaySpinner.getValue() * 100));
+            info.setFineGraceDays((int) graceDaysSpinner.getValue());
+            info.setMaxFineCents(Math.round((double) maxFineSpinner.getValue() * 100));
             dataManager.updateLibraryInfo(info);
             JOptionPane.showMessageDialog(panel, "Settings saved!", "Success", JOptionPane.INFORMATION_MESSAGE);
         });
@@ -866,7 +1108,7 @@ public class StaffPanel extends JPanel {
         return button;
     }
 
-    private JTable createStyledTable(DefaultTableModel model) {
+    private JTable createStyledTable(TableModel model) {
         JTable table = new JTable(model);
         table.setRowHeight(28);
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -1,19 +1,26 @@
 package main.java.library.panels;
 
+import main.java.library.db.TransactionQuery;
 import main.java.library.models.Book;
 import main.java.library.models.BookRequest;
 import main.java.library.models.LibraryInfo;
+import main.java.library.models.LoanStatus;
 import main.java.library.models.Member;
 import main.java.library.models.Transaction;
 import main.java.library.utils.BackgroundPanel;
 import main.java.library.utils.DataManager;
+import main.java.library.utils.LibraryClock;
+import main.java.library.utils.SearchResults;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableModel;
 import java.awt.*;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public class StudentPanel extends JPanel {
     private DataManager dataManager;
@@ -26,6 +33,13 @@ public class StudentPanel extends JPanel {
     private static final Color WARNING_COLOR = new Color(0xFF, 0x98, 0x00);
     private static final Color DANGER_COLOR = new Color(0xE5, 0x39, 0x35);
     private static final Color BACKGROUND_COLOR = new Color(0xF0, 0xF0, 0xF0);
+    private static final int SEARCH_DELAY_MS = 250;
+    private static final int SEARCH_PAGE_SIZE = 100;
+
+    private SwingWorker<SearchResults, Void> pendingSearch;
+    private String searchQuery = "";
+    private String searchBy = "All";
+    private int searchOffset;
 
     public StudentPanel() {
         dataManager = DataManager.getInstance();
@@ -63,11 +77,15 @@ public class StudentPanel extends JPanel {
         searchPanel.add(searchBtn);
         searchPanel.add(clearBtn);
 
-        String[] columns = {"ID", "Title", "Author", "Genre", "Section", "Shelf", "Available", "Status"};
-        DefaultTableModel tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) { return false; }
-        };
+        ListTableModel<Book> tableModel = new ListTableModel<Book>()
+                .addColumn("ID", Book::getId)
+                .addColumn("Title", Book::getTitle)
+                .addColumn("Author", Book::getAuthor)
+                .addColumn("Genre", Book::getGenre)
+                .addColumn("Section", Book::getSection)
+                .addColumn("Shelf", Book::getShelf)
+                .addColumn("Available", b -> b.getAvailableQuantity() + "/" + b.getQuantity())
+                .addColumn("Status", Book::getStatus);
         JTable table = createStyledTable(tableModel);
 
         table.getColumnModel().getColumn(7).setCellRenderer(new DefaultTableCellRenderer() {
@@ -83,32 +101,82 @@ public class StudentPanel extends JPanel {
             }
         });
 
-        Runnable refreshTable = () -> {
-            tableModel.setRowCount(0);
-            String query = searchField.getText().trim();
-            String field = (String) fieldCombo.getSelectedItem();
-            List<Book> books;
-            if (query.isEmpty()) {
-                books = dataManager.getBooks();
-            } else {
-                books = dataManager.searchBooksByField(query, field);
-            }
-            for (Book book : books) {
-                tableModel.addRow(new Object[]{
-                        book.getId(), book.getTitle(), book.getAuthor(),
-                        book.getGenre(), book.getSection(), book.getShelf(),
-                        book.getAvailableQuantity() + "/" + book.getQuantity(),
-                        book.getStatus()
-                });
+        JPanel pagePanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        pagePanel.setOpaque(false);
+        JButton prevBtn = createButton("Previous", SECONDARY_COLOR);
+        JButton nextBtn = createButton("Next", SECONDARY_COLOR);
+        JLabel pageLabel = new JLabel();
+        pagePanel.add(pageLabel);
+        pagePanel.add(prevBtn);
+        pagePanel.add(nextBtn);
+
+        Consumer<SearchResults> showPage = results -> {
+            int from = results.getOffset();
+            int to = from + results.getBooks().size();
+            tableModel.setRows(results.getBooks());
+            pageLabel.setText(results.getTotal() == 0 ? "No books found"
+                    : "Showing " + (from + 1) + "-" + to + " of " + results.getTotal());
+            prevBtn.setEnabled(from > 0);
+            nextBtn.setEnabled(to < results.getTotal());
+            searchOffset = from;
+        };
+
+        // Ranks only as far as the requested page; a newer request cancels the search still running.
+        IntConsumer fetchPage = offset -> {
+            if (pendingSearch != null) {
+                pendingSearch.cancel(true);
             }
+            String query = searchQuery;
+            String field = searchBy;
+            SwingWorker<SearchResults, Void> search = new SwingWorker<SearchResults, Void>() {
+                @Override
+                protected SearchResults doInBackground() {
+                    return dataManager.searchBooks(query, field, offset, SEARCH_PAGE_SIZE);
+                }
+
+                @Override
+                protected void done() {
+                    if (isCancelled() || pendingSearch != this) return;
+                    try {
+                        showPage.accept(get());
+                    } catch (Exception ex) {
+                        ex.printStackTrace();
+                    }
+                }
+            };
+            pendingSearch = search;
+            search.execute();
+        };
+
+        Runnable refreshTable = () -> {
+            searchQuery = searchField.getText().trim();
+            searchBy = (String) fieldCombo.getSelectedItem();
+            fetchPage.accept(0);
         };
 
-        searchBtn.addActionListener(e -> refreshTable.run());
-        clearBtn.addActionListener(e -> { searchField.setText(""); fieldCombo.setSelectedIndex(0); refreshTable.run(); });
+        Timer debounce = new Timer(SEARCH_DELAY_MS, e -> refreshTable.run());
+        debounce.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { debounce.restart(); }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) { debounce.restart(); }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) { debounce.restart(); }
+        });
+        fieldCombo.addActionListener(e -> debounce.restart());
+
+        prevBtn.addActionListener(e -> fetchPage.accept(Math.max(0, searchOffset - SEARCH_PAGE_SIZE)));
+        nextBtn.addActionListener(e -> fetchPage.accept(searchOffset + SEARCH_PAGE_SIZE));
+        searchBtn.addActionListener(e -> { debounce.stop(); refreshTable.run(); });
+        clearBtn.addActionListener(e -> { searchField.setText(""); fieldCombo.setSelectedIndex(0); debounce.stop(); refreshTable.run(); });
         refreshTable.run();
 
         panel.add(searchPanel, BorderLayout.NORTH);
         panel.add(new JScrollPane(table), BorderLayout.CENTER);
+        panel.add(pagePanel, BorderLayout.SOUTH);
         return panel;
     }
 
@@ -129,11 +197,13 @@ public class StudentPanel extends JPanel {
         Color finesColor = totalFines > 0 ? DANGER_COLOR : AVAILABLE_COLOR;
         infoPanel.add(createInfoLabel(String.format("Outstanding Fines: $%.2f", totalFines), finesColor));
 
-        String[] columns = {"Book Title", "Author", "Borrow Date", "Due Date", "Status"};
-        DefaultTableModel tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) { return false; }
-        };
+        ListTableModel<Transaction> tableModel = new ListTableModel<Transaction>()
+                .addColumn("Book Title", t -> t.getBook().getTitle())
+                .addColumn("Author", t -> t.getBook().getAuthor())
+                .addColumn("Borrow Date", t -> t.getBorrowDate().format(dateFormatter))
+                .addColumn("Due Date", t -> t.getDueDate().format(dateFormatter))
+                .addColumn("Status", Transaction::getStatus)
+                .addColumn("Fine", t -> t.getFineText(LibraryClock.today()));
         JTable table = createStyledTable(tableModel);
 
         table.getColumnModel().getColumn(4).setCellRenderer(new DefaultTableCellRenderer() {
@@ -142,9 +212,8 @@ public class StudentPanel extends JPanel {
                                                            boolean isSelected, boolean hasFocus, int row, int column) {
                 Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
                 if (!isSelected) {
-                    String status = (String) value;
-                    if (status.startsWith("Overdue")) c.setForeground(WARNING_COLOR);
-                    else if ("Active".equals(status)) c.setForeground(SECONDARY_COLOR);
+                    if (value == LoanStatus.OVERDUE) c.setForeground(WARNING_COLOR);
+                    else if (value == LoanStatus.ACTIVE) c.setForeground(SECONDARY_COLOR);
                     else c.setForeground(AVAILABLE_COLOR);
                 }
                 setHorizontalAlignment(CENTER);
@@ -152,15 +221,7 @@ public class StudentPanel extends JPanel {
             }
         });
 
-        List<Transaction> myTransactions = dataManager.getMemberActiveTransactions(currentUser);
-        for (Transaction t : myTransactions) {
-            tableModel.addRow(new Object[]{
-                    t.getBook().getTitle(), t.getBook().getAuthor(),
-                    t.getBorrowDate().format(dateFormatter),
-                    t.getDueDate().format(dateFormatter),
-                    t.getStatus()
-            });
-        }
+        tableModel.setRows(dataManager.getMemberActiveTransactions(currentUser));
 
         panel.add(infoPanel, BorderLayout.NORTH);
         panel.add(new JScrollPane(table), BorderLayout.CENTER);
@@ -171,11 +232,14 @@ public class StudentPanel extends JPanel {
         JPanel panel = new BackgroundPanel(new BorderLayout(10, 10));
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        String[] columns = {"Book Title", "Author", "Borrow Date", "Due Date", "Return Date", "Status", "Fine"};
-        DefaultTableModel tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) { return false; }
-        };
+        ListTableModel<Transaction> tableModel = new ListTableModel<Transaction>()
+                .addColumn("Book Title", t -> t.getBook().getTitle())
+                .addColumn("Author", t -> t.getBook().getAuthor())
+                .addColumn("Borrow Date", t -> t.getBorrowDate().format(dateFormatter))
+                .addColumn("Due Date", t -> t.getDueDate().format(dateFormatter))
+                .addColumn("Return Date", t -> t.isReturned() ? t.getReturnDate().format(dateFormatter) : "-")
+                .addColumn("Status", Transaction::getStatus)
+                .addColumn("Fine", t -> t.getFineText(LibraryClock.today()));
         JTable table = createStyledTable(tableModel);
 
         table.getColumnModel().getColumn(5).setCellRenderer(new DefaultTableCellRenderer() {
@@ -184,10 +248,9 @@ public class StudentPanel extends JPanel {
                                                            boolean isSelected, boolean hasFocus, int row, int column) {
                 Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
                 if (!isSelected) {
-                    String status = (String) value;
-                    if (status.startsWith("Overdue")) c.setForeground(WARNING_COLOR);
-                    else if ("Returned".equals(status)) c.setForeground(AVAILABLE_COLOR);
-                    else if ("Active".equals(status)) c.setForeground(SECONDARY_COLOR);
+                    if (value == LoanStatus.OVERDUE) c.setForeground(WARNING_COLOR);
+                    else if (value == LoanStatus.RETURNED) c.setForeground(AVAILABLE_COLOR);
+                    else if (value == LoanStatus.ACTIVE) c.setForeground(SECONDARY_COLOR);
                     else c.setForeground(Color.BLACK);
                 }
                 setHorizontalAlignment(CENTER);
@@ -210,26 +273,16 @@ public class StudentPanel extends JPanel {
             }
         });
 
-        Member currentUser = dataManager.getCurrentUser();
-        List<Transaction> allTransactions = dataManager.getMemberAllTransactions(currentUser);
-        for (Transaction t : allTransactions) {
-            double fine = t.calculateFine();
-            tableModel.addRow(new Object[]{
-                    t.getBook().getTitle(), t.getBook().getAuthor(),
-                    t.getBorrowDate().format(dateFormatter),
-                    t.getDueDate().format(dateFormatter),
-                    t.isReturned() ? t.getReturnDate().format(dateFormatter) : "-",
-                    t.getStatus(),
-                    fine > 0 ? String.format("$%.2f", fine) : "-"
-            });
-        }
+        JScrollPane scrollPane = new JScrollPane(table);
+        TransactionPager pager = new TransactionPager(dataManager, tableModel, scrollPane);
+        pager.reset(TransactionQuery.all().forMember(dataManager.getCurrentUser().getId()));
 
         JLabel headerLabel = new JLabel("Complete Borrowing History");
         headerLabel.setFont(new Font("SansSerif", Font.BOLD, 16));
         headerLabel.setHorizontalAlignment(SwingConstants.CENTER);
 
         panel.add(headerLabel, BorderLayout.NORTH);
-        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+        panel.add(scrollPane, BorderLayout.CENTER);
         return panel;
     }
 
@@ -289,11 +342,13 @@ public class StudentPanel extends JPanel {
         myRequestsLabel.setBorder(BorderFactory.createEmptyBorder(5, 0, 5, 0));
         bottomSection.add(myRequestsLabel, BorderLayout.NORTH);
 
-        String[] columns = {"ID", "Book Title", "Author", "Reason", "Date", "Status"};
-        DefaultTableModel requestsTableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) { return false; }
-        };
+        ListTableModel<BookRequest> requestsTableModel = new ListTableModel<BookRequest>()
+                .addColumn("ID", BookRequest::getId)
+                .addColumn("Book Title", BookRequest::getBookTitle)
+                .addColumn("Author", BookRequest::getAuthorName)
+                .addColumn("Reason", r -> r.getReason().isEmpty() ? "-" : r.getReason())
+                .addColumn("Date", r -> r.getRequestDate().format(dateFormatter))
+                .addColumn("Status", BookRequest::getStatus);
         JTable requestsTable = createStyledTable(requestsTableModel);
 
         requestsTable.getColumnModel().getColumn(5).setCellRenderer(new DefaultTableCellRenderer() {
@@ -312,17 +367,8 @@ public class StudentPanel extends JPanel {
             }
         });
 
-        Runnable refreshRequests = () -> {
-            requestsTableModel.setRowCount(0);
-            List<BookRequest> myRequests = dataManager.getMemberBookRequests(dataManager.getCurrentUser());
-            for (BookRequest r : myRequests) {
-                requestsTableModel.addRow(new Object[]{
-                        r.getId(), r.getBookTitle(), r.getAuthorName(),
-                        r.getReason().isEmpty() ? "-" : r.getReason(),
-                        r.getRequestDate().format(dateFormatter), r.getStatus()
-                });
-            }
-        };
+        Runnable refreshRequests = () ->
+                requestsTableModel.setRows(dataManager.getMemberBookRequests(dataManager.getCurrentUser()));
 
         refreshRequests.run();
 
@@ -434,7 +480,7 @@ public class StudentPanel extends JPanel {
         return button;
     }
 
-    private JTable createStyledTable(DefaultTableModel model) {
+    private JTable createStyledTable(TableModel model) {
         JTable table = new JTable(model);
         table.setRowHeight(28);
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -0,0 +1,89 @@
+package main.java.library.panels;
+
+import main.java.library.db.TransactionQuery;
+import main.java.library.models.Transaction;
+import main.java.library.utils.DataManager;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TransactionPager {
+    private static final int PAGE_SIZE = 200;
+
+    private final DataManager dataManager;
+    private final ListTableModel<Transaction> model;
+    private final JScrollBar scrollBar;
+    private final List<Transaction> rows = new ArrayList<>();
+    private TransactionQuery query = TransactionQuery.all();
+    private SwingWorker<List<Transaction>, Void> loading;
+    private int lastId;
+    private boolean exhausted;
+
+    public TransactionPager(DataManager dataManager, ListTableModel<Transaction> model, JScrollPane scrollPane) {
+        this.dataManager = dataManager;
+        this.model = model;
+        this.scrollBar = scrollPane.getVerticalScrollBar();
+        scrollBar.addAdjustmentListener(e -> {
+            if (!e.getValueIsAdjusting() && nearBottom()) loadMore();
+        });
+    }
+
+    public void reset(TransactionQuery query) {
+        this.query = query;
+        reload();
+    }
+
+    public void reload() {
+        if (loading != null) {
+            loading.cancel(true);
+            loading = null;
+        }
+        rows.clear();
+        lastId = 0;
+        exhausted = false;
+        model.setRows(rows);
+        loadMore();
+    }
+
+    private boolean nearBottom() {
+        return scrollBar.getValue() + 2 * scrollBar.getVisibleAmount() >= scrollBar.getMaximum();
+    }
+
+    private void loadMore() {
+        if (loading != null || exhausted) return;
+        TransactionQuery pageQuery = query;
+        int afterId = lastId;
+        SwingWorker<List<Transaction>, Void> worker = new SwingWorker<List<Transaction>, Void>() {
+            @Override
+            protected List<Transaction> doInBackground() {
+                return dataManager.getTransactionsPage(pageQuery, afterId, PAGE_SIZE);
+            }
+
+            @Override
+            protected void done() {
+                if (loading != this) return;
+                loading = null;
+                List<Transaction> page;
+                try {
+                    page = get();
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                    return;
+                }
+                exhausted = page.size() < PAGE_SIZE;
+                if (!page.isEmpty()) {
+                    int first = rows.size();
+                    rows.addAll(page);
+                    lastId = page.get(page.size() - 1).getId();
+                    model.rowsInserted(first, rows.size() - 1);
+                }
+                SwingUtilities.invokeLater(() -> {
+                    if (nearBottom()) loadMore();
+                });
+            }
+        };
+        loading = worker;
+        worker.execute();
+    }
+}
@@ -0,0 +1,47 @@
+CREATE TABLE IF NOT EXISTS books (
+                       id SERIAL PRIMARY KEY,
+                       title VARCHAR(200) NOT NULL,
+                       author VARCHAR(150) NOT NULL,
+                       isbn VARCHAR(50),
+                       available BOOLEAN DEFAULT TRUE,
+                       section VARCHAR(50),
+                       genre VARCHAR(100),
+                       shelf VARCHAR(50),
+                       total_quantity INT DEFAULT 1,
+                       available_quantity INT DEFAULT 1
+);
+
+CREATE TABLE IF NOT EXISTS members (
+                         id SERIAL PRIMARY KEY,
+                         name VARCHAR(150) NOT NULL,
+                         email VARCHAR(150),
+                         phone VARCHAR(50),
+                         join_date DATE DEFAULT CURRENT_DATE
+);
+
+CREATE TABLE IF NOT EXISTS transactions (
+                              id SERIAL PRIMARY KEY,
+                              book_id INT REFERENCES books(id),
+                              member_id INT REFERENCES members(id),
+                              borrow_date DATE DEFAULT CURRENT_DATE,
+                              due_date DATE,
+                              return_date DATE
+);
+
+CREATE TABLE IF NOT EXISTS fines (
+                       id SERIAL PRIMARY KEY,
+                       transaction_id INT REFERENCES transactions(id),
+                       amount DECIMAL(10,2),
+                       paid BOOLEAN DEFAULT FALSE
+);
+
+CREATE TABLE IF NOT EXISTS book_requests (
+                               id SERIAL PRIMARY KEY,
+                               member_id INT REFERENCES members(id),
+                               book_title VARCHAR(200),
+                               status VARCHAR(50) DEFAULT 'Pending'
+);
+
+ALTER TABLE book_requests ADD COLUMN IF NOT EXISTS author_name VARCHAR(150);
+ALTER TABLE book_requests ADD COLUMN IF NOT EXISTS reason TEXT;
+ALTER TABLE book_requests ADD COLUMN IF NOT EXISTS request_date DATE DEFAULT CURRENT_DATE;
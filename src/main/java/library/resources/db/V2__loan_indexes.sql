@@ -0,0 +1,14 @@
+-- Overdue scan: return_date IS NULL AND due_date < CURRENT_DATE. Only open loans are indexed.
+CREATE INDEX IF NOT EXISTS transactions_open_due_idx ON transactions (due_date) WHERE return_date IS NULL;
+
+-- Per-member and per-book history, paged with id > ? ORDER BY id.
+CREATE INDEX IF NOT EXISTS transactions_member_id_idx ON transactions (member_id, id);
+CREATE INDEX IF NOT EXISTS transactions_book_id_idx ON transactions (book_id, id);
+
+-- Open loans of one member (borrow limit checks, "My Books").
+CREATE INDEX IF NOT EXISTS transactions_member_open_idx ON transactions (member_id) WHERE return_date IS NULL;
+
+-- The paid/unpaid lookup correlated into every transaction query.
+CREATE INDEX IF NOT EXISTS fines_transaction_id_idx ON fines (transaction_id);
+
+CREATE INDEX IF NOT EXISTS book_requests_member_id_idx ON book_requests (member_id);
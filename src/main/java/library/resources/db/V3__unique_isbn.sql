@@ -0,0 +1,4 @@
+-- A blank ISBN means "unknown"; store it as NULL so it does not collide with other blanks.
+UPDATE books SET isbn = NULL WHERE TRIM(isbn) = '';
+
+CREATE UNIQUE INDEX IF NOT EXISTS books_isbn_key ON books (isbn);
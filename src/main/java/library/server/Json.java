@@ -0,0 +1,202 @@
+package main.java.library.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the service: a writer for the responses and a reader for
+ * flat request bodies such as {@code {"bookId": 12, "memberId": 3}}. Nested
+ * objects and arrays in a request body are rejected.
+ */
+final class Json {
+    private final StringBuilder sb = new StringBuilder();
+    private boolean needsComma;
+
+    Json beginObject() {
+        comma();
+        sb.append('{');
+        needsComma = false;
+        return this;
+    }
+
+    Json endObject() {
+        sb.append('}');
+        needsComma = true;
+        return this;
+    }
+
+    Json beginArray(String name) {
+        key(name);
+        sb.append('[');
+        needsComma = false;
+        return this;
+    }
+
+    Json endArray() {
+        sb.append(']');
+        needsComma = true;
+        return this;
+    }
+
+    Json field(String name, String value) {
+        key(name);
+        if (value == null) sb.append("null");
+        else quote(value);
+        needsComma = true;
+        return this;
+    }
+
+    Json field(String name, long value) {
+        key(name);
+        sb.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    Json field(String name, boolean value) {
+        key(name);
+        sb.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    // Money goes out as a number with exactly two decimals, built from whole cents so no float rounding creeps in.
+    Json money(String name, long cents) {
+        key(name);
+        sb.append(cents < 0 ? "-" : "").append(Math.abs(cents) / 100).append('.');
+        long fraction = Math.abs(cents) % 100;
+        sb.append(fraction < 10 ? "0" : "").append(fraction);
+        needsComma = true;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+
+    private void key(String name) {
+        comma();
+        if (name != null) {
+            quote(name);
+            sb.append(':');
+        }
+    }
+
+    private void comma() {
+        if (needsComma) sb.append(',');
+    }
+
+    private void quote(String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    static String error(String message) {
+        return new Json().beginObject().field("error", message).endObject().toString();
+    }
+
+    /** Reads a flat object. Values come back as strings, with null for JSON null. */
+    static Map<String, String> parseObject(String text) {
+        Reader r = new Reader(text);
+        Map<String, String> values = new LinkedHashMap<>();
+        r.skipSpace();
+        r.expect('{');
+        r.skipSpace();
+        if (r.peek() == '}') {
+            r.pos++;
+            return values;
+        }
+        while (true) {
+            r.skipSpace();
+            String key = r.string();
+            r.skipSpace();
+            r.expect(':');
+            r.skipSpace();
+            values.put(key, r.value());
+            r.skipSpace();
+            if (r.peek() == ',') {
+                r.pos++;
+            } else {
+                r.expect('}');
+                return values;
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final String text;
+        private int pos;
+
+        Reader(String text) {
+            this.text = text;
+        }
+
+        char peek() {
+            if (pos >= text.length()) throw new IllegalArgumentException("Unexpected end of JSON");
+            return text.charAt(pos);
+        }
+
+        void expect(char c) {
+            if (peek() != c) throw new IllegalArgumentException("Expected '" + c + "' at " + pos);
+            pos++;
+        }
+
+        void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        String value() {
+            char c = peek();
+            if (c == '"') return string();
+            if (c == '{' || c == '[') throw new IllegalArgumentException("Nested values are not supported");
+            int start = pos;
+            while (pos < text.length() && ",} \t\r\n".indexOf(text.charAt(pos)) < 0) pos++;
+            String literal = text.substring(start, pos);
+            if (literal.isEmpty()) throw new IllegalArgumentException("Expected a value at " + start);
+            return "null".equals(literal) ? null : literal;
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = peek();
+                pos++;
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = peek();
+                pos++;
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) throw new IllegalArgumentException("Bad \\u escape");
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: sb.append(e);
+                }
+            }
+        }
+    }
+}
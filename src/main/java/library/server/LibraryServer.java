@@ -0,0 +1,342 @@
+package main.java.library.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import main.java.library.models.Book;
+import main.java.library.models.BookRequest;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+import main.java.library.utils.DataManager;
+import main.java.library.utils.LibraryClock;
+import main.java.library.utils.SearchResults;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the shared DataManager over HTTP/JSON, so any number of circulation desks
+ * and self-checkout kiosks can work against one library instead of each running
+ * its own copy. It uses the JDK's built-in HTTP server, and every request runs on
+ * its own virtual thread. A request that waits on a DataManager lock or a database
+ * round trip parks cheaply instead of tying up a platform thread.
+ * <pre>
+ * GET  /api/books?q=&amp;field=All&amp;offset=0&amp;limit=50   search the catalogue
+ * GET  /api/books/{id}
+ * GET  /api/members/{id}/loans            open loans with their fines
+ * POST /api/loans                         {"bookId", "memberId", "days"?} issue, days 1..365
+ * POST /api/loans/{id}/return
+ * POST /api/loans/{id}/fine               collect the fine
+ * GET  /api/requests?status=Pending
+ * POST /api/requests                      {"memberId", "title", "author"?, "reason"?}
+ * POST /api/requests/{id}/approve | /reject
+ * GET  /api/stats                         the Reports totals
+ * </pre>
+ * Needs JDK 21 for the virtual threads; Maven compiles this package only there.
+ * Usage: {@code LibraryServer [port]}. The port defaults to
+ * {@code library.server.port} or 8080. Set {@code library.db.enabled} as for the
+ * desktop app to serve the PostgreSQL-backed library.
+ */
+public class LibraryServer {
+    private static final int MAX_PAGE = 500;
+    private static final int DEFAULT_LOAN_DAYS = 14;
+    private static final int MAX_LOAN_DAYS = 365;
+
+    private final DataManager dm;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public LibraryServer(DataManager dm, int port) throws IOException {
+        this.dm = dm;
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/api/books", exchange -> handle(exchange, this::books));
+        server.createContext("/api/members", exchange -> handle(exchange, this::members));
+        server.createContext("/api/loans", exchange -> handle(exchange, this::loans));
+        server.createContext("/api/requests", exchange -> handle(exchange, this::requests));
+        server.createContext("/api/stats", exchange -> handle(exchange, this::stats));
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("library.server.port", 8080);
+        LibraryServer server = new LibraryServer(DataManager.getInstance(), port);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "server-shutdown"));
+        server.start();
+        System.out.println("Library service listening on http://localhost:" + server.getPort() + "/api");
+    }
+
+    private interface Handler {
+        Response handle(Call call);
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(Json json) { return new Response(200, json.toString()); }
+        static Response created(Json json) { return new Response(201, json.toString()); }
+        static Response error(int status, String message) { return new Response(status, Json.error(message)); }
+    }
+
+    // One request: the method, the path segments after the context, the query and the body.
+    private static final class Call {
+        final String method;
+        final String[] path;
+        final Map<String, String> query;
+        final String body;
+
+        Call(String method, String[] path, Map<String, String> query, String body) {
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            this.body = body;
+        }
+
+        boolean is(String method, int segments) {
+            return this.method.equals(method) && path.length == segments;
+        }
+
+        int intPath(int index) {
+            return Integer.parseInt(path[index]);
+        }
+
+        Map<String, String> json() {
+            return Json.parseObject(body);
+        }
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        Response response;
+        try {
+            String context = exchange.getHttpContext().getPath();
+            String rest = exchange.getRequestURI().getPath().substring(context.length());
+            String[] path = rest.isEmpty() || "/".equals(rest) ? new String[0] : rest.substring(1).split("/");
+            String body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            Call call = new Call(exchange.getRequestMethod(), path, parseQuery(exchange.getRequestURI().getRawQuery()), body);
+            response = handler.handle(call);
+        } catch (NumberFormatException e) {
+            response = Response.error(400, "Expected a number: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            response = Response.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            response = Response.error(500, "Internal error");
+        }
+        byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String raw) {
+        Map<String, String> query = new HashMap<>();
+        if (raw == null || raw.isEmpty()) return query;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private Response books(Call call) {
+        if (call.is("GET", 0)) {
+            String q = call.query.getOrDefault("q", "");
+            String field = call.query.getOrDefault("field", "All");
+            int offset = Math.max(0, Integer.parseInt(call.query.getOrDefault("offset", "0")));
+            int limit = Math.max(0, Math.min(MAX_PAGE, Integer.parseInt(call.query.getOrDefault("limit", "50"))));
+            SearchResults results = dm.searchBooks(q, field, offset, limit);
+            Json json = new Json().beginObject().field("total", results.getTotal()).beginArray("books");
+            for (Book b : results.getBooks()) {
+                book(json, b);
+            }
+            return Response.ok(json.endArray().endObject());
+        }
+        if (call.is("GET", 1)) {
+            Book book = dm.getBookById(call.intPath(0));
+            return book != null ? Response.ok(book(new Json(), book)) : Response.error(404, "No such book");
+        }
+        return Response.error(405, "Unsupported");
+    }
+
+    private Response members(Call call) {
+        if (call.is("GET", 2) && "loans".equals(call.path[1])) {
+            Member member = dm.getMemberById(call.intPath(0));
+            if (member == null) return Response.error(404, "No such member");
+            long today = LibraryClock.today();
+            Json json = new Json().beginObject().field("memberId", member.getId()).beginArray("loans");
+            for (Transaction t : dm.getMemberActiveTransactions(member)) {
+                loan(json, t, today);
+            }
+            json.endArray()
+                    .field("remainingBorrowLimit", dm.getRemainingBorrowLimit(member))
+                    .money("outstandingFines", Math.round(dm.getMemberTotalFines(member) * 100));
+            return Response.ok(json.endObject());
+        }
+        return Response.error(405, "Unsupported");
+    }
+
+    private Response loans(Call call) {
+        if (call.is("POST", 0)) {
+            Map<String, String> body = call.json();
+            Book book = dm.getBookById(Integer.parseInt(required(body, "bookId")));
+            Member member = dm.getMemberById(Integer.parseInt(required(body, "memberId")));
+            if (book == null || member == null) return Response.error(404, book == null ? "No such book" : "No such member");
+            int days = body.get("days") != null ? Integer.parseInt(body.get("days")) : DEFAULT_LOAN_DAYS;
+            if (days < 1 || days > MAX_LOAN_DAYS) {
+                throw new IllegalArgumentException("\"days\" must be between 1 and " + MAX_LOAN_DAYS);
+            }
+            LocalDate today = LibraryClock.todayDate();
+            Transaction t = new Transaction(0, book, member, today, today.plusDays(days));
+            if (!dm.addTransaction(t, dm.getLibraryInfo().getMaxBooksPerStudent())) {
+                return Response.error(409, dm.getRemainingBorrowLimit(member) <= 0
+                        ? "Member has reached the borrowing limit" : "No copies available");
+            }
+            return Response.created(loan(new Json(), t, LibraryClock.today()));
+        }
+        if (call.is("POST", 2)) {
+            Transaction t = dm.getTransactionById(call.intPath(0));
+            if (t == null) return Response.error(404, "No such loan");
+            switch (call.path[1]) {
+                case "return":
+                    if (!dm.returnBook(t)) return Response.error(409, "Book already returned");
+                    return Response.ok(loan(new Json(), t, LibraryClock.today()));
+                case "fine":
+                    long cents = t.getFineCents(LibraryClock.today());
+                    if (cents <= 0) return Response.error(409, "No fine on this loan");
+                    if (!dm.collectFine(t.getId())) return Response.error(409, "Fine already collected");
+                    return Response.ok(new Json().beginObject().field("loanId", t.getId()).money("collected", cents).endObject());
+                default:
+                    return Response.error(404, "Unknown action");
+            }
+        }
+        if (call.is("GET", 1)) {
+            Transaction t = dm.getTransactionById(call.intPath(0));
+            return t != null ? Response.ok(loan(new Json(), t, LibraryClock.today())) : Response.error(404, "No such loan");
+        }
+        return Response.error(405, "Unsupported");
+    }
+
+    private Response requests(Call call) {
+        if (call.is("GET", 0)) {
+            String status = call.query.get("status");
+            Json json = new Json().beginObject().beginArray("requests");
+            for (BookRequest r : "Pending".equals(status) ? dm.getPendingRequests() : dm.getBookRequests()) {
+                if (status == null || status.equals(r.getStatus())) request(json, r);
+            }
+            return Response.ok(json.endArray().endObject());
+        }
+        if (call.is("POST", 0)) {
+            Map<String, String> body = call.json();
+            Member member = dm.getMemberById(Integer.parseInt(required(body, "memberId")));
+            if (member == null) return Response.error(404, "No such member");
+            BookRequest r = new BookRequest(0, member, required(body, "title"),
+                    body.getOrDefault("author", ""), body.getOrDefault("reason", ""));
+            r.setRequestDate(LibraryClock.todayDate());
+            dm.addBookRequest(r);
+            return Response.created(request(new Json(), r));
+        }
+        if (call.is("POST", 2)) {
+            BookRequest r = dm.getBookRequestById(call.intPath(0));
+            if (r == null) return Response.error(404, "No such request");
+            String action = call.path[1];
+            if (!"approve".equals(action) && !"reject".equals(action)) return Response.error(404, "Unknown action");
+            if (!dm.decideBookRequest(r.getId(), "approve".equals(action))) {
+                return Response.error(409, "Request already " + r.getStatus().toLowerCase());
+            }
+            return Response.ok(request(new Json(), r));
+        }
+        return Response.error(405, "Unsupported");
+    }
+
+    private Response stats(Call call) {
+        if (!call.is("GET", 0)) return Response.error(405, "Unsupported");
+        return Response.ok(new Json().beginObject()
+                .field("totalBooks", dm.getTotalBooks())
+                .field("totalMembers", dm.getTotalMembers())
+                .field("activeLoans", dm.getActiveLoansCount())
+                .field("overdueLoans", dm.getOverdueCount())
+                .money("finesCollected", Math.round(dm.getTotalFinesCollected() * 100))
+                .money("finesOutstanding", Math.round(dm.getTotalOutstandingFines() * 100))
+                .endObject());
+    }
+
+    private static String required(Map<String, String> body, String key) {
+        String value = body.get(key);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("Missing \"" + key + "\"");
+        return value;
+    }
+
+    private static Json book(Json json, Book b) {
+        return json.beginObject()
+                .field("id", b.getId())
+                .field("title", b.getTitle())
+                .field("author", b.getAuthor())
+                .field("isbn", b.getIsbn())
+                .field("section", b.getSection())
+                .field("genre", b.getGenre())
+                .field("shelf", b.getShelf())
+                .field("quantity", b.getQuantity())
+                .field("available", b.getAvailableQuantity())
+                .endObject();
+    }
+
+    private static Json loan(Json json, Transaction t, long today) {
+        return json.beginObject()
+                .field("id", t.getId())
+                .field("bookId", t.getBook().getId())
+                .field("title", t.getBook().getTitle())
+                .field("memberId", t.getMember().getId())
+                .field("borrowDate", t.getBorrowDate().toString())
+                .field("dueDate", t.getDueDate().toString())
+                .field("returnDate", t.getReturnDate() != null ? t.getReturnDate().toString() : null)
+                .field("status", t.getStatus().toString())
+                .money("fine", t.getFineCents(today))
+                .field("finePaid", t.isFinePaid())
+                .endObject();
+    }
+
+    private static Json request(Json json, BookRequest r) {
+        return json.beginObject()
+                .field("id", r.getId())
+                .field("memberId", r.getRequestedBy().getId())
+                .field("title", r.getBookTitle())
+                .field("author", r.getAuthorName())
+                .field("reason", r.getReason())
+                .field("requestDate", r.getRequestDate().toString())
+                .field("status", r.getStatus())
+                .endObject();
+    }
+}
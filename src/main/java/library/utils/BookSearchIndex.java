@@ -0,0 +1,392 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.stream.IntStream;
+
+class BookSearchIndex {
+    static final String[] FIELDS = {"Title", "Author", "ISBN", "Section", "Genre"};
+    private static final int[] FIELD_WEIGHTS = {16, 8, 4, 2, 1};
+    private static final int MIN_GRAM = 2;
+    private static final int MAX_GRAM = 3;
+    // Removed books whose postings wait for the next compaction, at the least.
+    private static final int MIN_COMPACTION = 1024;
+    // Best first: higher score, then lower id.
+    private static final Comparator<Hit> RANK = (a, b) -> a.score != b.score
+            ? Integer.compare(b.score, a.score)
+            : Integer.compare(a.book.getId(), b.book.getId());
+
+    private final IntHashMap<IndexedBook> entries = new IntHashMap<>();
+    private final List<IntHashMap<Postings>> grams = new ArrayList<>();
+    // Exact ISBN lookups, keyed by the normalized ISBN. Books without one are left out.
+    private final Map<String, Book> byIsbn = new HashMap<>();
+    // Later books with an ISBN already in byIsbn, oldest first, to take over when its book goes.
+    private final Map<String, List<Book>> sharedIsbns = new HashMap<>();
+    private int removedSinceCompaction;
+
+    BookSearchIndex() {
+        for (int f = 0; f < FIELDS.length; f++) {
+            grams.add(new IntHashMap<>());
+        }
+    }
+
+    void add(Book book) {
+        IndexedBook entry = new IndexedBook(book);
+        entries.put(book.getId(), entry);
+        indexIsbn(entry);
+        for (int f = 0; f < FIELDS.length; f++) {
+            index(f, entry);
+        }
+    }
+
+    /** Adds many books at once, indexing each field on its own thread. Used when a whole catalogue is loaded. */
+    void addAll(List<Book> books) {
+        List<IndexedBook> added = new ArrayList<>(books.size());
+        for (Book book : books) {
+            IndexedBook entry = new IndexedBook(book);
+            entries.put(book.getId(), entry);
+            indexIsbn(entry);
+            added.add(entry);
+        }
+        IntStream.range(0, FIELDS.length).parallel().forEach(f -> {
+            for (IndexedBook entry : added) {
+                index(f, entry);
+            }
+        });
+    }
+
+    private void index(int f, IndexedBook entry) {
+        for (int key : gramKeys(entry.fields[f])) {
+            post(grams.get(f), key, entry.book.getId());
+        }
+    }
+
+    private static void post(IntHashMap<Postings> fieldGrams, int key, int id) {
+        Postings postings = fieldGrams.get(key);
+        if (postings == null) {
+            postings = new Postings();
+            fieldGrams.put(key, postings);
+        }
+        postings.add(id);
+    }
+
+    // Every gram of the value, once each, in ascending order.
+    private static int[] gramKeys(String value) {
+        int[] keys = new int[Math.max(0, 2 * value.length() - MIN_GRAM - MAX_GRAM + 2)];
+        int n = 0;
+        for (int gram = MIN_GRAM; gram <= MAX_GRAM; gram++) {
+            for (int i = 0; i + gram <= value.length(); i++) {
+                keys[n++] = gramKey(value, i, gram);
+            }
+        }
+        Arrays.sort(keys, 0, n);
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (unique == 0 || keys[unique - 1] != keys[i]) keys[unique++] = keys[i];
+        }
+        return Arrays.copyOf(keys, unique);
+    }
+
+    /**
+     * Packs a gram into an int, ten bits per character after the length. That is
+     * exact for Latin, Greek and Cyrillic text. Wider characters are folded in and
+     * may collide, which only adds candidates that scoring then rejects.
+     */
+    private static int gramKey(String value, int from, int length) {
+        int key = length;
+        for (int i = from; i < from + length; i++) {
+            char c = value.charAt(i);
+            key = (key << 10) | (c < 1024 ? c : 1023 ^ (c * 31 & 1023));
+        }
+        return key;
+    }
+
+    /**
+     * Forgets the book. Its ids stay in the postings, where search skips them, until
+     * a quarter of the catalogue has been removed; then one pass drops them all. A
+     * common gram, such as one from a section name, can list most of the
+     * catalogue, so removing the id from it every time would cost a pass per gram.
+     */
+    void remove(int bookId) {
+        IndexedBook entry = entries.remove(bookId);
+        if (entry == null) return;
+        unindexIsbn(entry);
+        if (++removedSinceCompaction > Math.max(MIN_COMPACTION, entries.size() / 4)) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        for (IntHashMap<Postings> fieldGrams : grams) {
+            fieldGrams.forEachValue(postings -> postings.retain(entries));
+        }
+        removedSinceCompaction = 0;
+    }
+
+    /** The book with this ISBN, ignoring hyphens, spaces and case, or null. */
+    Book findByIsbn(String isbn) {
+        String key = normalizeIsbn(isbn);
+        return key.isEmpty() ? null : byIsbn.get(key);
+    }
+
+    /** The ISBN without hyphens or spaces, upper-cased, or "" for none. */
+    static String normalizeIsbn(String isbn) {
+        if (isbn == null) return "";
+        boolean plain = true;
+        for (int i = 0; i < isbn.length() && plain; i++) {
+            char c = isbn.charAt(i);
+            plain = c != '-' && c != ' ' && Character.toUpperCase(c) == c;
+        }
+        if (plain) return isbn;
+        StringBuilder key = new StringBuilder(isbn.length());
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c != '-' && c != ' ') key.append(Character.toUpperCase(c));
+        }
+        return key.toString();
+    }
+
+    private void indexIsbn(IndexedBook entry) {
+        if (entry.isbn.isEmpty()) return;
+        if (byIsbn.putIfAbsent(entry.isbn, entry.book) != null) {
+            sharedIsbns.computeIfAbsent(entry.isbn, k -> new ArrayList<>()).add(entry.book);
+        }
+    }
+
+    // Hands the ISBN to the next book that shares it, if any.
+    private void unindexIsbn(IndexedBook entry) {
+        if (entry.isbn.isEmpty()) return;
+        List<Book> shared = sharedIsbns.get(entry.isbn);
+        if (byIsbn.get(entry.isbn) == entry.book) {
+            if (shared == null) {
+                byIsbn.remove(entry.isbn);
+            } else {
+                byIsbn.put(entry.isbn, shared.remove(0));
+            }
+        } else if (shared != null) {
+            shared.remove(entry.book);
+        }
+        if (shared != null && shared.isEmpty()) sharedIsbns.remove(entry.isbn);
+    }
+
+    /** Re-indexes an edited book, touching only the grams that its edit added or took away. */
+    void update(Book book) {
+        IndexedBook old = entries.get(book.getId());
+        if (old == null) {
+            add(book);
+            return;
+        }
+        IndexedBook entry = new IndexedBook(book);
+        entries.put(book.getId(), entry);
+        unindexIsbn(old);
+        indexIsbn(entry);
+        for (int f = 0; f < FIELDS.length; f++) {
+            if (!old.fields[f].equals(entry.fields[f])) {
+                reindex(grams.get(f), gramKeys(old.fields[f]), gramKeys(entry.fields[f]), book.getId());
+            }
+        }
+    }
+
+    // Walks both sorted gram lists together.
+    private static void reindex(IntHashMap<Postings> fieldGrams, int[] before, int[] after, int id) {
+        int i = 0;
+        int j = 0;
+        while (i < before.length || j < after.length) {
+            if (j == after.length || i < before.length && before[i] < after[j]) {
+                Postings postings = fieldGrams.get(before[i++]);
+                if (postings != null && postings.remove(id) && postings.size == 0) {
+                    fieldGrams.remove(before[i - 1]);
+                }
+            } else if (i == before.length || after[j] < before[i]) {
+                post(fieldGrams, after[j++], id);
+            } else {
+                i++;
+                j++;
+            }
+        }
+    }
+
+    List<Book> search(String query, String field) {
+        return search(query, field, 0, Integer.MAX_VALUE).getBooks();
+    }
+
+    /**
+     * The matches ranked {@code offset} to {@code offset + limit - 1}, and how many
+     * matched. Every candidate is scored, since a book's score adds up over its
+     * fields, but only the best {@code offset + limit} are kept, in a bounded heap,
+     * and only those are sorted. The scan checks the thread's interrupt flag, so a
+     * search cancelled with {@code cancel(true)} stops part way and throws
+     * {@link CancellationException}.
+     */
+    SearchResults search(String query, String field, int offset, int limit) {
+        String q = query.toLowerCase();
+        int only = -1;
+        if (!"All".equals(field)) {
+            only = Arrays.asList(FIELDS).indexOf(field);
+            if (only < 0) return new SearchResults(new ArrayList<>(), 0, offset);
+        }
+
+        IntHashMap<Hit> hits = new IntHashMap<>();
+        List<Hit> ordered = new ArrayList<>();
+        if (q.length() < MIN_GRAM) {
+            final int fieldIndex = only;
+            Thread thread = Thread.currentThread();
+            entries.forEachValue(entry -> {
+                if (thread.isInterrupted()) return;
+                for (int f = 0; f < FIELDS.length; f++) {
+                    if (fieldIndex < 0 || f == fieldIndex) {
+                        score(entry, f, q, hits, ordered);
+                    }
+                }
+            });
+        } else {
+            for (int f = 0; f < FIELDS.length; f++) {
+                if (only >= 0 && f != only) continue;
+                Postings candidates = rarestPostings(grams.get(f), q);
+                if (candidates == null) continue;
+                for (int i = 0; i < candidates.size; i++) {
+                    if ((i & 4095) == 0 && Thread.currentThread().isInterrupted()) break;
+                    IndexedBook entry = entries.get(candidates.ids[i]);
+                    if (entry != null) score(entry, f, q, hits, ordered);
+                }
+            }
+        }
+        if (Thread.currentThread().isInterrupted()) throw new CancellationException();
+        return new SearchResults(top(ordered, offset, limit), ordered.size(), offset);
+    }
+
+    private static List<Book> top(List<Hit> hits, int offset, int limit) {
+        int keep = (int) Math.min(hits.size(), (long) offset + limit);
+        if (offset >= keep) return new ArrayList<>();
+        Hit[] ranked;
+        if (keep == hits.size()) {
+            ranked = hits.toArray(new Hit[0]);
+        } else {
+            // The head is the worst hit kept so far.
+            PriorityQueue<Hit> best = new PriorityQueue<>(keep, RANK.reversed());
+            for (Hit hit : hits) {
+                if (best.size() < keep) {
+                    best.add(hit);
+                } else if (RANK.compare(hit, best.peek()) < 0) {
+                    best.poll();
+                    best.add(hit);
+                }
+            }
+            ranked = best.toArray(new Hit[0]);
+        }
+        Arrays.sort(ranked, RANK);
+        List<Book> page = new ArrayList<>(keep - offset);
+        for (int i = offset; i < keep; i++) {
+            page.add(ranked[i].book);
+        }
+        return page;
+    }
+
+    private static Postings rarestPostings(IntHashMap<Postings> fieldGrams, String q) {
+        int gram = Math.min(q.length(), MAX_GRAM);
+        Postings rarest = null;
+        for (int i = 0; i + gram <= q.length(); i++) {
+            Postings postings = fieldGrams.get(gramKey(q, i, gram));
+            if (postings == null) return null;
+            if (rarest == null || postings.size < rarest.size) {
+                rarest = postings;
+            }
+        }
+        return rarest;
+    }
+
+    private static void score(IndexedBook entry, int f, String q, IntHashMap<Hit> hits, List<Hit> ordered) {
+        String value = entry.fields[f];
+        int at = value.indexOf(q);
+        if (at < 0) return;
+
+        int quality;
+        if (value.length() == q.length()) quality = 4;
+        else if (at == 0) quality = 3;
+        else if (!Character.isLetterOrDigit(value.charAt(at - 1))) quality = 2;
+        else quality = 1;
+
+        int id = entry.book.getId();
+        Hit hit = hits.get(id);
+        if (hit == null) {
+            hit = new Hit(entry.book);
+            hits.put(id, hit);
+            ordered.add(hit);
+        }
+        hit.score += FIELD_WEIGHTS[f] * quality;
+    }
+
+    private static class IndexedBook {
+        final Book book;
+        final String[] fields;
+        final String isbn;
+
+        IndexedBook(Book book) {
+            this.book = book;
+            this.isbn = normalizeIsbn(book.getIsbn());
+            this.fields = new String[]{
+                    lower(book.getTitle()), lower(book.getAuthor()), lower(book.getIsbn()),
+                    lower(book.getSection()), lower(book.getGenre())
+            };
+        }
+
+        private static String lower(String value) {
+            return value == null ? "" : value.toLowerCase();
+        }
+    }
+
+    private static class Hit {
+        final Book book;
+        int score;
+
+        Hit(Book book) {
+            this.book = book;
+        }
+    }
+
+    // Book ids in ascending order. New books have the highest ids, so adding one
+    // appends; an edit that adds a gram to an older book inserts it in place.
+    private static class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            int at = size;
+            if (size > 0 && ids[size - 1] >= id) {
+                at = Arrays.binarySearch(ids, 0, size, id);
+                if (at >= 0) return;
+                at = -at - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) return false;
+            System.arraycopy(ids, at + 1, ids, at, --size - at);
+            return true;
+        }
+
+        // Keeps the ids of books still indexed.
+        void retain(IntHashMap<?> live) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (live.containsKey(ids[i])) ids[kept++] = ids[i];
+            }
+            size = kept;
+        }
+    }
+}
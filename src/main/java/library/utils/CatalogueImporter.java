@@ -0,0 +1,260 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Adds books in bulk from a CSV file with a header row. The columns are matched by
+ * name, in any order and any case: {@code title} and {@code author} are required,
+ * and {@code isbn}, {@code section}, {@code genre}, {@code shelf} and
+ * {@code quantity} (or {@code copies}) are optional, with the same defaults as the
+ * Add Book dialog. Other columns, such as the {@code id} and {@code available}
+ * columns of an exported report, are ignored. Fields may be quoted, with
+ * {@code ""} for a quote.
+ * <p>
+ * The file is read as a {@link CsvFile}, memory-mapped and cut into chunks of
+ * about a megabyte of whole rows, and the chunks are parsed and validated in
+ * parallel. Duplicate ISBNs within the file are found in file order, and the
+ * remaining rows are added through {@link DataManager#addBooks} in batches,
+ * which skips any ISBN already in the catalogue. Every rejected row is listed
+ * in the {@link Result}, with its row number, counting the header as row 1.
+ */
+public class CatalogueImporter {
+    /** Reports progress; returning false cancels the import. Books already added stay. */
+    public interface Progress {
+        boolean update(int percent);
+    }
+
+    /** A row that was not imported, and why. */
+    public static class Problem {
+        private final int row;
+        private final String message;
+
+        Problem(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public int getRow() { return row; }
+        public String getMessage() { return message; }
+    }
+
+    public static class Result {
+        private final int rows;
+        private final int imported;
+        private final List<Problem> problems;
+        private final boolean cancelled;
+
+        Result(int rows, int imported, List<Problem> problems, boolean cancelled) {
+            this.rows = rows;
+            this.imported = imported;
+            this.problems = problems;
+            this.cancelled = cancelled;
+        }
+
+        /** Data rows in the file, not counting the header or blank lines. */
+        public int getRows() { return rows; }
+        public int getImported() { return imported; }
+        /** Rejected rows, in file order. */
+        public List<Problem> getProblems() { return problems; }
+        public boolean isCancelled() { return cancelled; }
+
+        /** Writes the rejected rows as CSV: {@code row,error}. */
+        public void writeReport(Path file) throws IOException {
+            CatalogueImporter.writeReport(file, problems);
+        }
+    }
+
+    /** Writes rejected rows as CSV: {@code row,error}. */
+    public static void writeReport(Path file, List<Problem> problems) throws IOException {
+        try (Writer out = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.write("row,error\n");
+            for (Problem p : problems) {
+                out.write(p.row + ",\"" + p.message.replace("\"", "\"\"") + "\"\n");
+            }
+        }
+    }
+
+    static final int BATCH_SIZE = 10_000;
+    static final int MAX_QUANTITY = 100;
+    private static final String[] COLUMNS = {"title", "author", "isbn", "section", "genre", "shelf", "quantity|copies|qty"};
+    private static final int TITLE = 0, AUTHOR = 1, ISBN = 2, SECTION = 3, GENRE = 4, SHELF = 5, QUANTITY = 6;
+
+    private final DataManager dataManager;
+
+    public CatalogueImporter(DataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    /**
+     * Imports the file. Parsing takes the first half of the progress and adding
+     * the books the second. Throws {@link IOException} if the file cannot be read,
+     * is over 2 GB, or its header lacks a title or author column.
+     */
+    public Result importFile(Path file, Progress progress) throws IOException {
+        CsvFile csv = new CsvFile(file);
+        int[] columns = csv.columns(COLUMNS);
+        if (columns[TITLE] < 0 || columns[AUTHOR] < 0) {
+            throw new IOException("The first row must name the columns, including title and author");
+        }
+        List<CsvFile.Chunk> chunks = csv.chunks();
+
+        AtomicInteger parsed = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<Parsed> parts = chunks.parallelStream().map(chunk -> {
+            if (cancelled.get()) return new Parsed();
+            Parsed part = parse(csv.rows(chunk), columns);
+            synchronized (parsed) {
+                int percent = 50 * parsed.incrementAndGet() / chunks.size();
+                if (!cancelled.get() && !progress.update(percent)) cancelled.set(true);
+            }
+            return part;
+        }).collect(Collectors.toList());
+
+        int rows = 0;
+        List<Problem> problems = new ArrayList<>();
+        List<Book> accepted = new ArrayList<>();
+        List<Integer> acceptedRows = new ArrayList<>();
+        Map<String, Integer> firstRowByIsbn = new HashMap<>();
+        for (Parsed part : parts) {
+            rows += part.rows;
+            problems.addAll(part.problems);
+            for (int i = 0; i < part.books.size(); i++) {
+                Book book = part.books.get(i);
+                int row = part.bookRows.get(i);
+                String isbn = BookSearchIndex.normalizeIsbn(book.getIsbn());
+                if (!isbn.isEmpty()) {
+                    Integer first = firstRowByIsbn.putIfAbsent(isbn, row);
+                    if (first != null) {
+                        problems.add(new Problem(row, "Duplicate ISBN " + book.getIsbn() + ", first seen on row " + first));
+                        continue;
+                    }
+                }
+                accepted.add(book);
+                acceptedRows.add(row);
+            }
+        }
+
+        int imported = 0;
+        for (int from = 0; from < accepted.size() && !cancelled.get(); from += BATCH_SIZE) {
+            List<Book> batch = accepted.subList(from, Math.min(accepted.size(), from + BATCH_SIZE));
+            List<Book> skipped = dataManager.addBooks(new ArrayList<>(batch));
+            imported += batch.size() - skipped.size();
+            // Skipped books come back in batch order, so one walk finds their rows.
+            int at = from;
+            for (Book book : skipped) {
+                while (accepted.get(at) != book) at++;
+                Book existing = dataManager.findBookByIsbn(book.getIsbn());
+                problems.add(new Problem(acceptedRows.get(at), "ISBN " + book.getIsbn() + " is already in the catalogue"
+                        + (existing != null ? " as book #" + existing.getId() : "")));
+            }
+            if (!progress.update(50 + (int) (50L * (from + batch.size()) / accepted.size()))) cancelled.set(true);
+        }
+        if (!cancelled.get() && !progress.update(100)) cancelled.set(true);
+        problems.sort(Comparator.comparingInt(Problem::getRow));
+        return new Result(rows, imported, problems, cancelled.get());
+    }
+
+    private static class Parsed {
+        int rows;
+        final List<Book> books = new ArrayList<>();
+        final List<Integer> bookRows = new ArrayList<>();
+        final List<Problem> problems = new ArrayList<>();
+    }
+
+    private static Parsed parse(CsvFile.RowReader reader, int[] columns) {
+        Parsed parsed = new Parsed();
+        List<String> fields = new ArrayList<>();
+        int width = 0;
+        for (int c : columns) {
+            width = Math.max(width, c + 1);
+        }
+        while (reader.next(fields)) {
+            int row = reader.row();
+            if (fields.size() == 1 && fields.get(0).isEmpty()) continue;
+            parsed.rows++;
+            if (fields.size() < width) {
+                parsed.problems.add(new Problem(row, "Expected at least " + width + " fields but found " + fields.size()));
+                continue;
+            }
+            String title = field(fields, columns[TITLE], "");
+            String author = field(fields, columns[AUTHOR], "");
+            if (title.isEmpty() || author.isEmpty()) {
+                parsed.problems.add(new Problem(row, "Title and Author are required"));
+                continue;
+            }
+            String isbn = field(fields, columns[ISBN], "");
+            if (!isbn.isEmpty() && !validIsbn(BookSearchIndex.normalizeIsbn(isbn))) {
+                parsed.problems.add(new Problem(row, "Invalid ISBN " + isbn));
+                continue;
+            }
+            int quantity = quantity(field(fields, columns[QUANTITY], "1"));
+            if (quantity < 0) {
+                parsed.problems.add(new Problem(row, "Quantity must be a whole number from 1 to " + MAX_QUANTITY));
+                continue;
+            }
+            parsed.books.add(new Book(0, title, author, isbn, true, field(fields, columns[SECTION], "General"),
+                    field(fields, columns[GENRE], "General"), field(fields, columns[SHELF], "A1"), quantity, quantity));
+            parsed.bookRows.add(row);
+        }
+        return parsed;
+    }
+
+    private static String field(List<String> fields, int column, String missing) {
+        if (column < 0) return missing;
+        String value = fields.get(column).trim();
+        return value.isEmpty() ? missing : value;
+    }
+
+    // The quantity, or -1 if it is not a whole number in range.
+    private static int quantity(String value) {
+        if (value.isEmpty() || value.length() > 3) return -1;
+        int n = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = n * 10 + (c - '0');
+        }
+        return n >= 1 && n <= MAX_QUANTITY ? n : -1;
+    }
+
+    /** Checks the length and check digit of a normalized ISBN-10 or ISBN-13. */
+    static boolean validIsbn(String isbn) {
+        if (isbn.length() == 13) {
+            int sum = 0;
+            for (int i = 0; i < 13; i++) {
+                char c = isbn.charAt(i);
+                if (c < '0' || c > '9') return false;
+                sum += (c - '0') * (i % 2 == 0 ? 1 : 3);
+            }
+            return sum % 10 == 0;
+        }
+        if (isbn.length() == 10) {
+            int sum = 0;
+            for (int i = 0; i < 10; i++) {
+                char c = isbn.charAt(i);
+                int digit;
+                if (c >= '0' && c <= '9') digit = c - '0';
+                else if (c == 'X' && i == 9) digit = 10;
+                else return false;
+                sum += digit * (10 - i);
+            }
+            return sum % 11 == 0;
+        }
+        return false;
+    }
+}
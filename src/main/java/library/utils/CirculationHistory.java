@@ -0,0 +1,323 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import main.java.library.models.Transaction;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Closed loans for the circulation reports, kept column by column in int arrays:
+ * book, member, borrow, due and return epoch days, the fine in cents, and the
+ * genre and section. Genre and section are codes into small dictionaries, taken
+ * from the book when the loan closes, so a later edit of the book does not rewrite
+ * history. A row costs 32 bytes, where a returned {@link Transaction} with its
+ * three dates costs well over a hundred, and keeps its book and member alive.
+ * <p>
+ * Queries take a range of return days, half-open, and make one pass over the
+ * arrays without touching any object. Each pass is a tight indexed loop over a
+ * few columns, and millions of rows take milliseconds.
+ */
+public class CirculationHistory {
+    public enum Dimension { GENRE, SECTION, MONTH }
+
+    /** Totals for one key of a {@link #groupBy} query. */
+    public static class Group {
+        private final String key;
+        private final int loans;
+        private final long fineCents;
+        private final long loanDays;
+
+        Group(String key, int loans, long fineCents, long loanDays) {
+            this.key = key;
+            this.loans = loans;
+            this.fineCents = fineCents;
+            this.loanDays = loanDays;
+        }
+
+        public String getKey() { return key; }
+        public int getLoans() { return loans; }
+        public long getFineCents() { return fineCents; }
+        public double getAverageLoanDays() { return loans > 0 ? (double) loanDays / loans : 0; }
+    }
+
+    /** Loan counts by two dimensions at once, such as genre by month. */
+    public static class Table {
+        private final List<String> rows;
+        private final List<String> columns;
+        private final int[][] loans;
+
+        Table(List<String> rows, List<String> columns, int[][] loans) {
+            this.rows = rows;
+            this.columns = columns;
+            this.loans = loans;
+        }
+
+        public List<String> getRows() { return rows; }
+        public List<String> getColumns() { return columns; }
+        public int getLoans(int row, int column) { return loans[row][column]; }
+    }
+
+    private int size;
+    private int[] bookIds = new int[1024];
+    private int[] memberIds = new int[1024];
+    private int[] borrowDays = new int[1024];
+    private int[] dueDays = new int[1024];
+    private int[] returnDays = new int[1024];
+    private int[] fineCents = new int[1024];
+    private int[] genres = new int[1024];
+    private int[] sections = new int[1024];
+    private final Dictionary genreNames = new Dictionary();
+    private final Dictionary sectionNames = new Dictionary();
+    private int firstReturnDay = Integer.MAX_VALUE;
+    private int lastReturnDay = Integer.MIN_VALUE;
+    private int longestLoan;
+
+    synchronized void append(Transaction t, long fine) {
+        if (size == bookIds.length) grow();
+        Book book = t.getBook();
+        int returned = (int) t.getReturnDate().toEpochDay();
+        int borrowed = (int) t.getBorrowDate().toEpochDay();
+        bookIds[size] = book != null ? book.getId() : 0;
+        memberIds[size] = t.getMember() != null ? t.getMember().getId() : 0;
+        borrowDays[size] = borrowed;
+        dueDays[size] = (int) t.getDueDay();
+        returnDays[size] = returned;
+        fineCents[size] = (int) Math.min(Integer.MAX_VALUE, fine);
+        genres[size] = genreNames.code(book != null ? book.getGenre() : null);
+        sections[size] = sectionNames.code(book != null ? book.getSection() : null);
+        size++;
+        firstReturnDay = Math.min(firstReturnDay, returned);
+        lastReturnDay = Math.max(lastReturnDay, returned);
+        longestLoan = Math.max(longestLoan, returned - borrowed);
+    }
+
+    /** Whether any closed loan was of this book. */
+    synchronized boolean hasBook(int bookId) {
+        return contains(bookIds, bookId);
+    }
+
+    /** Whether any closed loan was to this member. */
+    synchronized boolean hasMember(int memberId) {
+        return contains(memberIds, memberId);
+    }
+
+    /** The ids of every member with a closed loan. */
+    synchronized BitSet memberIds() {
+        BitSet ids = new BitSet();
+        for (int i = 0; i < size; i++) {
+            ids.set(memberIds[i]);
+        }
+        return ids;
+    }
+
+    private boolean contains(int[] column, int id) {
+        for (int i = 0; i < size; i++) {
+            if (column[i] == id) return true;
+        }
+        return false;
+    }
+
+    private void grow() {
+        int capacity = size * 2;
+        bookIds = Arrays.copyOf(bookIds, capacity);
+        memberIds = Arrays.copyOf(memberIds, capacity);
+        borrowDays = Arrays.copyOf(borrowDays, capacity);
+        dueDays = Arrays.copyOf(dueDays, capacity);
+        returnDays = Arrays.copyOf(returnDays, capacity);
+        fineCents = Arrays.copyOf(fineCents, capacity);
+        genres = Arrays.copyOf(genres, capacity);
+        sections = Arrays.copyOf(sections, capacity);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Heap used by the columns, in bytes. */
+    public synchronized long footprintBytes() {
+        return 8L * 4 * bookIds.length;
+    }
+
+    /** Loans returned in {@code [fromDay, toDay)}, grouped by one dimension, busiest first. */
+    public synchronized List<Group> groupBy(Dimension dimension, long fromDay, long toDay) {
+        Keys keys = keys(dimension, fromDay, toDay);
+        int from = keys.from;
+        int to = keys.to;
+        int[] key = keys.codes;
+        int[] counts = new int[keys.labels.size()];
+        long[] fines = new long[counts.length];
+        long[] days = new long[counts.length];
+        for (int i = 0; i < size; i++) {
+            int day = returnDays[i];
+            if (day >= from && day < to) {
+                int k = key[i];
+                counts[k]++;
+                fines[k] += fineCents[i];
+                days[k] += day - borrowDays[i];
+            }
+        }
+        List<Group> groups = new ArrayList<>();
+        for (int k = 0; k < counts.length; k++) {
+            if (counts[k] > 0) groups.add(new Group(keys.labels.get(k), counts[k], fines[k], days[k]));
+        }
+        if (dimension != Dimension.MONTH) {
+            groups.sort((a, b) -> a.loans != b.loans ? Integer.compare(b.loans, a.loans) : a.key.compareTo(b.key));
+        }
+        return groups;
+    }
+
+    /** Loans returned in {@code [fromDay, toDay)}, counted by two dimensions. Empty rows and columns are dropped. */
+    public synchronized Table countBy(Dimension rows, Dimension columns, long fromDay, long toDay) {
+        Keys rowKeys = keys(rows, fromDay, toDay);
+        Keys columnKeys = keys(columns, fromDay, toDay);
+        int from = rowKeys.from;
+        int to = rowKeys.to;
+        int[] r = rowKeys.codes;
+        int[] c = columnKeys.codes;
+        int width = columnKeys.labels.size();
+        int[] cells = new int[rowKeys.labels.size() * width];
+        for (int i = 0; i < size; i++) {
+            int day = returnDays[i];
+            if (day >= from && day < to) {
+                cells[r[i] * width + c[i]]++;
+            }
+        }
+
+        int[] rowTotals = new int[rowKeys.labels.size()];
+        int[] columnTotals = new int[width];
+        for (int i = 0; i < cells.length; i++) {
+            rowTotals[i / width] += cells[i];
+            columnTotals[i % width] += cells[i];
+        }
+        List<String> rowLabels = new ArrayList<>();
+        List<String> columnLabels = new ArrayList<>();
+        List<Integer> keptColumns = new ArrayList<>();
+        for (int j = 0; j < width; j++) {
+            if (columnTotals[j] > 0) {
+                columnLabels.add(columnKeys.labels.get(j));
+                keptColumns.add(j);
+            }
+        }
+        List<int[]> table = new ArrayList<>();
+        for (int i = 0; i < rowTotals.length; i++) {
+            if (rowTotals[i] == 0) continue;
+            rowLabels.add(rowKeys.labels.get(i));
+            int[] row = new int[keptColumns.size()];
+            for (int j = 0; j < row.length; j++) {
+                row[j] = cells[i * width + keptColumns.get(j)];
+            }
+            table.add(row);
+        }
+        return new Table(rowLabels, columnLabels, table.toArray(new int[0][]));
+    }
+
+    /**
+     * Loan lengths in days (borrow to return) at the given percentiles, each
+     * between 0 and 1, for loans returned in {@code [fromDay, toDay)}. Counts
+     * lengths into a histogram instead of sorting. Returns zeros when no loan matches.
+     */
+    public synchronized int[] loanDurationPercentiles(long fromDay, long toDay, double... percentiles) {
+        int from = clampDay(fromDay);
+        int to = clampDay(toDay);
+        int[] histogram = new int[longestLoan + 1];
+        int matched = 0;
+        for (int i = 0; i < size; i++) {
+            int day = returnDays[i];
+            if (day >= from && day < to) {
+                histogram[Math.max(0, day - borrowDays[i])]++;
+                matched++;
+            }
+        }
+        int[] result = new int[percentiles.length];
+        if (matched == 0) return result;
+        for (int p = 0; p < percentiles.length; p++) {
+            long rank = Math.max(1, (long) Math.ceil(percentiles[p] * matched));
+            long seen = 0;
+            int days = 0;
+            while (days < histogram.length - 1 && (seen += histogram[days]) < rank) {
+                days++;
+            }
+            result[p] = days;
+        }
+        return result;
+    }
+
+    // The key of every row for a dimension, with the labels the keys index, and the day range as ints.
+    private Keys keys(Dimension dimension, long fromDay, long toDay) {
+        Keys keys = new Keys();
+        keys.from = clampDay(fromDay);
+        keys.to = clampDay(toDay);
+        switch (dimension) {
+            case GENRE:
+                keys.codes = genres;
+                keys.labels = genreNames.names;
+                break;
+            case SECTION:
+                keys.codes = sections;
+                keys.labels = sectionNames.names;
+                break;
+            case MONTH:
+                monthKeys(keys);
+                break;
+        }
+        return keys;
+    }
+
+    // Months are numbered from the first month with a return in range. Each day is converted once, not each row.
+    private void monthKeys(Keys keys) {
+        int first = Math.max(keys.from, firstReturnDay);
+        int last = Math.min(keys.to - 1, lastReturnDay);
+        keys.codes = new int[size];
+        keys.labels = new ArrayList<>();
+        if (first > last) return;
+        LocalDate start = LocalDate.ofEpochDay(first).withDayOfMonth(1);
+        int[] monthOfDay = new int[last - first + 1];
+        LocalDate month = start;
+        for (int m = 0; ; m++) {
+            LocalDate next = month.plusMonths(1);
+            keys.labels.add(month.toString().substring(0, 7));
+            int begin = (int) Math.max(first, month.toEpochDay());
+            int end = (int) Math.min(last + 1L, next.toEpochDay());
+            Arrays.fill(monthOfDay, begin - first, end - first, m);
+            if (next.toEpochDay() > last) break;
+            month = next;
+        }
+        for (int i = 0; i < size; i++) {
+            int day = returnDays[i];
+            if (day >= first && day <= last) keys.codes[i] = monthOfDay[day - first];
+        }
+    }
+
+    private static int clampDay(long day) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, day));
+    }
+
+    private static class Keys {
+        int from;
+        int to;
+        int[] codes;
+        List<String> labels;
+    }
+
+    private static class Dictionary {
+        final Map<String, Integer> codes = new HashMap<>();
+        final List<String> names = new ArrayList<>();
+
+        int code(String name) {
+            String key = name != null && !name.isEmpty() ? name : "Unknown";
+            Integer code = codes.get(key);
+            if (code == null) {
+                code = names.size();
+                codes.put(key, code);
+                names.add(key);
+            }
+            return code;
+        }
+    }
+}
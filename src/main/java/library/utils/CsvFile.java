@@ -0,0 +1,169 @@
+package main.java.library.utils;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A UTF-8 CSV file with a header row, for the bulk imports. The file is
+ * memory-mapped and scanned once to cut it into chunks of about a megabyte of
+ * whole rows, which can then be read one after another or in parallel. Fields
+ * may be quoted, with {@code ""} for a quote. Rows are numbered from the header,
+ * which is row 1.
+ */
+class CsvFile {
+    static final int CHUNK_BYTES = 1 << 20;
+
+    private final MappedByteBuffer data;
+    private final List<Chunk> chunks;
+    private final List<String> header = new ArrayList<>();
+
+    CsvFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("The file is larger than 2 GB");
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        chunks = split(data);
+        if (chunks.isEmpty()) throw new IOException("The file is empty");
+        rows(chunks.remove(0)).next(header);
+    }
+
+    /** The chunks after the header, in file order. */
+    List<Chunk> chunks() {
+        return chunks;
+    }
+
+    /**
+     * For each name, the position of the column with that name, ignoring case, or
+     * -1. A name may list alternatives separated by {@code |}.
+     */
+    int[] columns(String... names) {
+        int[] columns = new int[names.length];
+        Arrays.fill(columns, -1);
+        for (int n = 0; n < names.length; n++) {
+            List<String> accepted = Arrays.asList(names[n].split("\\|"));
+            for (int i = 0; i < header.size() && columns[n] < 0; i++) {
+                if (accepted.contains(header.get(i).trim().toLowerCase(Locale.ROOT))) columns[n] = i;
+            }
+        }
+        return columns;
+    }
+
+    RowReader rows(Chunk chunk) {
+        byte[] bytes = new byte[chunk.end - chunk.start];
+        data.get(chunk.start, bytes);
+        return new RowReader(bytes, chunk.firstRow);
+    }
+
+    /** A run of whole rows, and the number of the first. */
+    static class Chunk {
+        final int start;
+        final int end;
+        final int firstRow;
+
+        Chunk(int start, int end, int firstRow) {
+            this.start = start;
+            this.end = end;
+            this.firstRow = firstRow;
+        }
+    }
+
+    /**
+     * Cuts the file into chunks of whole rows. The first chunk is the header row
+     * alone. A newline only ends a row outside quotes, and since a quote inside a
+     * quoted field is doubled, counting quotes is enough to know which is which.
+     */
+    private static List<Chunk> split(MappedByteBuffer data) {
+        List<Chunk> chunks = new ArrayList<>();
+        int size = data.limit();
+        int start = size >= 3 && data.get(0) == (byte) 0xEF && data.get(1) == (byte) 0xBB && data.get(2) == (byte) 0xBF ? 3 : 0;
+        int row = 1;
+        int firstRow = 1;
+        boolean quoted = false;
+        byte[] window = new byte[64 * 1024];
+        for (int base = start; base < size; base += window.length) {
+            int length = Math.min(window.length, size - base);
+            data.get(base, window, 0, length);
+            for (int i = 0; i < length; i++) {
+                byte b = window[i];
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    row++;
+                    int end = base + i + 1;
+                    if (chunks.isEmpty() || end - start >= CHUNK_BYTES) {
+                        chunks.add(new Chunk(start, end, firstRow));
+                        start = end;
+                        firstRow = row;
+                    }
+                }
+            }
+        }
+        if (start < size) chunks.add(new Chunk(start, size, firstRow));
+        return chunks;
+    }
+
+    /** Reads the rows of one chunk. A trailing \r before the newline is dropped. */
+    static class RowReader {
+        private final byte[] bytes;
+        private int at;
+        private int row;
+        private byte[] scratch = new byte[256];
+
+        RowReader(byte[] bytes, int firstRow) {
+            this.bytes = bytes;
+            this.row = firstRow - 1;
+        }
+
+        /** The number of the row last read. */
+        int row() {
+            return row;
+        }
+
+        /** Reads the next row into {@code fields}, or returns false at the end of the chunk. */
+        boolean next(List<String> fields) {
+            fields.clear();
+            if (at >= bytes.length) return false;
+            row++;
+            while (true) {
+                if (at < bytes.length && bytes[at] == '"') {
+                    at++;
+                    int length = 0;
+                    while (at < bytes.length) {
+                        byte b = bytes[at++];
+                        if (b == '"') {
+                            if (at < bytes.length && bytes[at] == '"') {
+                                at++;
+                            } else {
+                                break;
+                            }
+                        }
+                        if (length == scratch.length) scratch = Arrays.copyOf(scratch, length * 2);
+                        scratch[length++] = b;
+                    }
+                    int from = at;
+                    while (at < bytes.length && bytes[at] != ',' && bytes[at] != '\n') at++;
+                    String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                    int end = trimmedEnd(from, at);
+                    fields.add(end > from ? value + new String(bytes, from, end - from, StandardCharsets.UTF_8) : value);
+                } else {
+                    int from = at;
+                    while (at < bytes.length && bytes[at] != ',' && bytes[at] != '\n') at++;
+                    fields.add(new String(bytes, from, trimmedEnd(from, at) - from, StandardCharsets.UTF_8));
+                }
+                if (at >= bytes.length) return true;
+                if (bytes[at++] == '\n') return true;
+            }
+        }
+
+        private int trimmedEnd(int from, int end) {
+            return end > from && bytes[end - 1] == '\r' ? end - 1 : end;
+        }
+    }
+}
@@ -1,29 +1,32 @@
 package main.java.library.utils;
 
+import main.java.library.db.ConnectionPool;
+import main.java.library.db.DBConfig;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.SQLException;
 
 public class DBConnection {
+    private static final DBConfig CONFIG = DBConfig.fromEnvironment();
+    private static ConnectionPool pool;
 
-    private static final String URL =
-            "jdbc:postgresql://localhost:5432/library_db";
-
-    private static final String USER = "postgres";
-    private static final String PASSWORD = "admin123";
-
-    public static Connection getConnection() {
-        try {
-            Class.forName("org.postgresql.Driver");
+    public static DBConfig getConfig() {
+        return CONFIG;
+    }
 
-            Connection con = DriverManager.getConnection(URL, USER, PASSWORD);
-            System.out.println("✅ Connected to PostgreSQL!");
-            return con;
-        } catch (Exception e) {
-            System.out.println("❌ Connection Failed!");
-            e.printStackTrace();
-            return null;
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
+            try {
+                Class.forName("org.postgresql.Driver");
+            } catch (ClassNotFoundException e) {
+                System.out.println("PostgreSQL driver not found on the classpath");
+            }
+            pool = new ConnectionPool(CONFIG);
         }
+        return pool;
     }
-}
-
 
+    public static Connection getConnection() throws SQLException {
+        return getPool().getConnection();
+    }
+}
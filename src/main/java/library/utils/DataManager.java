@@ -1,46 +1,157 @@
 package main.java.library.utils;
 
+import main.java.library.db.DBConfig;
+import main.java.library.db.LibraryRepository;
+import main.java.library.db.SchemaMigrator;
+import main.java.library.db.TransactionQuery;
+import main.java.library.db.WriteBehindQueue;
 import main.java.library.models.Book;
 import main.java.library.models.BookRequest;
 import main.java.library.models.LibraryInfo;
 import main.java.library.models.Member;
+import main.java.library.models.StandardFinePolicy;
 import main.java.library.models.Transaction;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * Owns the in-memory library state. It is safe to call from any thread.
+ * <p>
+ * Each collection is guarded by its own read-write lock: the catalogue (books and
+ * the search index), members, loans (transactions, the per-member index and the
+ * statistics) and book requests. Readers of one collection never block writers of
+ * another. Only {@link #importRecords}, {@link #writeSnapshot} and
+ * {@link #syncMembers} hold more than one of these locks, and they take them in
+ * declaration order. A borrow first reserves a copy with a
+ * lock-free compare-and-set in {@link Book#borrowCopy()}. Only when it succeeds
+ * does it take the loans write lock to record the loan, so requests for a title
+ * with no copies left fail without blocking. Returns run under the loans write
+ * lock, so a loan can never be returned twice.
+ * <p>
+ * {@link #getBooks()}, {@link #getMembers()}, {@link #getTransactions()} and
+ * {@link #getBookRequests()} return immutable snapshots. These are shared, not
+ * copied, and taking one needs no lock. A snapshot never changes, so call the
+ * getter again to see later mutations.
+ * <p>
+ * Without a database, setting {@code library.journal.dir} keeps the state in an
+ * {@link EventJournal}. Every mutation appends an event while it still holds its
+ * write lock, so the journal order matches the order of the changes. A background
+ * thread writes a snapshot after every {@code library.journal.snapshotEvents}
+ * events. A restart loads the newest snapshot and replays only the events after it.
+ */
 public class DataManager {
-    private static DataManager instance;
-    private List<Book> books;
-    private List<Member> members;
-    private List<Transaction> transactions;
-    private List<BookRequest> bookRequests;
-    private LibraryInfo libraryInfo;
-    private Member currentUser;
+    private final ReadWriteLock catalogLock = new ReentrantReadWriteLock();
+    private final ReadWriteLock memberLock = new ReentrantReadWriteLock();
+    private final ReadWriteLock loanLock = new ReentrantReadWriteLock();
+    private final ReadWriteLock requestLock = new ReentrantReadWriteLock();
+    private SnapshotList<Book> books;
+    private SnapshotList<Member> members;
+    private SnapshotList<Transaction> transactions;
+    private SnapshotList<BookRequest> bookRequests;
+    private IntHashMap<Book> booksById;
+    private IntHashMap<Member> membersById;
+    // Members by lower-cased email, and the key each member is filed under, so a member edited in place can be re-filed.
+    private Map<String, Member> membersByEmail;
+    private IntHashMap<String> emailKeys;
+    private IntHashMap<Transaction> transactionsById;
+    private IntHashMap<BookRequest> requestsById;
+    private IntHashMap<MemberLoans> loansByMember;
+    private LibraryStatistics statistics;
+    private CirculationHistory history;
+    private BookSearchIndex searchIndex;
+    private LibraryRepository repository;
+    private WriteBehindQueue writes;
+    private EventJournal journal;
+    private SnapshotStore snapshots;
+    private long eventsAtSnapshot;
+    private IntHashMap<Book> retiredBooks = new IntHashMap<>();
+    private IntHashMap<Member> retiredMembers = new IntHashMap<>();
+    private volatile LibraryInfo libraryInfo;
+    private volatile Member currentUser;
     private int nextBookId = 1;
     private int nextMemberId = 1;
     private int nextTransactionId = 1;
     private int nextRequestId = 1;
 
     private DataManager() {
-        books = new ArrayList<>();
-        members = new ArrayList<>();
-        transactions = new ArrayList<>();
-        bookRequests = new ArrayList<>();
+        books = new SnapshotList<>();
+        members = new SnapshotList<>();
+        transactions = new SnapshotList<>();
+        bookRequests = new SnapshotList<>();
+        booksById = new IntHashMap<>();
+        membersById = new IntHashMap<>();
+        membersByEmail = new HashMap<>();
+        emailKeys = new IntHashMap<>();
+        transactionsById = new IntHashMap<>();
+        requestsById = new IntHashMap<>();
+        loansByMember = new IntHashMap<>();
+        statistics = new LibraryStatistics();
+        history = new CirculationHistory();
+        searchIndex = new BookSearchIndex();
         libraryInfo = new LibraryInfo();
-        loadSampleData();
+        Transaction.setFinePolicy(StandardFinePolicy.from(libraryInfo));
+        if (DBConnection.getConfig().isEnabled()) {
+            DBConfig config = DBConnection.getConfig();
+            if (config.isMigrate()) {
+                migrateSchema();
+            }
+            repository = new LibraryRepository(DBConnection.getPool(), config.getFetchSize());
+            loadFromDatabase();
+            writes = new WriteBehindQueue(DBConnection.getPool(), config.getFlushIntervalMillis(), config.getFlushBatchSize());
+        } else if (JournalConfig.fromEnvironment().isEnabled()) {
+            openJournal(JournalConfig.fromEnvironment());
+        } else {
+            loadSampleData();
+        }
         if (!members.isEmpty()) {
             currentUser = members.get(0);
         }
+        scheduleOverdueRefresh();
+    }
+
+    // Flips loans that fell due to overdue shortly after midnight, instead of on the first read of the day.
+    private void scheduleOverdueRefresh() {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "overdue-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalDateTime nextRun = LibraryClock.todayDate().plusDays(1).atStartOfDay().plusSeconds(1);
+        long delay = Duration.between(LocalDateTime.now(LibraryClock.getClock()), nextRun).toMillis();
+        scheduler.scheduleAtFixedRate(statistics::refresh, delay, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    private static class Holder {
+        static final DataManager INSTANCE = new DataManager();
     }
 
     public static DataManager getInstance() {
-        if (instance == null) {
-            instance = new DataManager();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
 
     private void loadSampleData() {
@@ -57,38 +168,378 @@ public class DataManager {
         addMember(new Member(0, "Bob Smith", "bob@university.edu", "+1-555-0102", LocalDate.of(2024, 9, 15)));
         addMember(new Member(0, "Carol Williams", "carol@university.edu", "+1-555-0103", LocalDate.of(2025, 1, 10)));
 
-        Transaction t1 = new Transaction(0, books.get(0), members.get(0), LocalDate.now().minusDays(10), LocalDate.now().plusDays(4));
+        LocalDate today = LibraryClock.todayDate();
+        Transaction t1 = new Transaction(0, books.get(0), members.get(0), today.minusDays(10), today.plusDays(4));
         addTransactionDirect(t1);
         books.get(0).borrowCopy();
 
-        Transaction t2 = new Transaction(0, books.get(5), members.get(1), LocalDate.now().minusDays(20), LocalDate.now().minusDays(6));
+        Transaction t2 = new Transaction(0, books.get(5), members.get(1), today.minusDays(20), today.minusDays(6));
         addTransactionDirect(t2);
         books.get(5).borrowCopy();
 
-        Transaction t3 = new Transaction(0, books.get(2), members.get(0), LocalDate.now().minusDays(30), LocalDate.now().minusDays(16));
-        t3.setReturnDate(LocalDate.now().minusDays(14));
+        Transaction t3 = new Transaction(0, books.get(2), members.get(0), today.minusDays(30), today.minusDays(16));
+        t3.setReturnDate(today.minusDays(14));
         addTransactionDirect(t3);
     }
 
+    private void migrateSchema() {
+        try {
+            new SchemaMigrator(DBConnection.getPool()).migrate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void loadFromDatabase() {
+        try {
+            for (Book book : repository.loadBooks()) {
+                registerBook(book);
+                nextBookId = Math.max(nextBookId, book.getId() + 1);
+            }
+            for (Member member : repository.loadMembers()) {
+                registerMember(member);
+                nextMemberId = Math.max(nextMemberId, member.getId() + 1);
+            }
+            repository.streamOpenTransactions(booksById::get, membersById::get, this::registerTransaction);
+            long today = LibraryClock.today();
+            // The fine policy needs the book, so loans of books deleted since count as unfined.
+            repository.streamClosedTransactions(booksById::get, membersById::get,
+                    t -> history.append(t, t.getBook() != null ? t.getFineCents(today) : 0));
+            nextTransactionId = repository.maxTransactionId() + 1;
+            statistics.addArchivedFinesCollected(repository.settledFinesCollectedCents());
+            for (BookRequest r : repository.loadBookRequests(membersById::get)) {
+                registerBookRequest(r);
+                nextRequestId = Math.max(nextRequestId, r.getId() + 1);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void openJournal(JournalConfig config) {
+        try {
+            Path dir = Paths.get(config.getDir());
+            snapshots = new SnapshotStore(dir);
+            SnapshotStore.Snapshot latest = snapshots.readLatest();
+            long from = 0;
+            if (latest != null) {
+                restoreState(latest.state);
+                from = latest.lsn;
+            }
+            journal = new EventJournal(dir, from, config.getSyncMillis(), this::applyEvent);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open the journal in " + config.getDir(), e);
+        }
+        recountCopies();
+        retiredBooks = null;
+        retiredMembers = null;
+        if (journal.position() == 0 && books.isEmpty() && members.isEmpty()) {
+            loadSampleData();
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long every = config.getSnapshotEvents();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                if (journal.eventCount() - eventsAtSnapshot >= every) {
+                    writeSnapshot();
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, 10, 10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Writes a snapshot of the whole state and drops the journal segments it makes
+     * redundant. The state is encoded under all four read locks, so it matches the
+     * journal position exactly. The file is written after the locks are released.
+     */
+    synchronized void writeSnapshot() {
+        JournalCodec.Out out = new JournalCodec.Out(1 << 20);
+        long lsn;
+        catalogLock.readLock().lock();
+        memberLock.readLock().lock();
+        loanLock.readLock().lock();
+        requestLock.readLock().lock();
+        try {
+            lsn = journal.position();
+            eventsAtSnapshot = journal.eventCount();
+            writeState(out);
+        } finally {
+            requestLock.readLock().unlock();
+            loanLock.readLock().unlock();
+            memberLock.readLock().unlock();
+            catalogLock.readLock().unlock();
+        }
+        try {
+            journal.deleteSegmentsBefore(snapshots.write(lsn, out.contents()));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Books and members that were deleted but are still named by a loan or a request are written separately.
+    private void writeState(JournalCodec.Out out) {
+        out.putInt(nextBookId).putInt(nextMemberId).putInt(nextTransactionId).putInt(nextRequestId);
+        JournalCodec.putInfo(out, libraryInfo);
+        List<Transaction> loans = transactions.snapshot();
+        List<BookRequest> requests = bookRequests.snapshot();
+        IntHashMap<Book> orphanBooks = new IntHashMap<>();
+        IntHashMap<Member> orphanMembers = new IntHashMap<>();
+        for (Transaction t : loans) {
+            if (!booksById.containsKey(t.getBook().getId())) orphanBooks.put(t.getBook().getId(), t.getBook());
+            if (!membersById.containsKey(t.getMember().getId())) orphanMembers.put(t.getMember().getId(), t.getMember());
+        }
+        for (BookRequest r : requests) {
+            Member m = r.getRequestedBy();
+            if (!membersById.containsKey(m.getId())) orphanMembers.put(m.getId(), m);
+        }
+
+        List<Book> catalogue = books.snapshot();
+        out.putInt(catalogue.size());
+        catalogue.forEach(b -> JournalCodec.putBook(out, b));
+        out.putInt(orphanBooks.size());
+        orphanBooks.forEachValue(b -> JournalCodec.putBook(out, b));
+        List<Member> roster = members.snapshot();
+        out.putInt(roster.size());
+        roster.forEach(m -> JournalCodec.putMember(out, m));
+        out.putInt(orphanMembers.size());
+        orphanMembers.forEachValue(m -> JournalCodec.putMember(out, m));
+        out.putInt(loans.size());
+        loans.forEach(t -> JournalCodec.putLoan(out, t));
+        out.putInt(requests.size());
+        requests.forEach(r -> JournalCodec.putRequest(out, r));
+    }
+
+    private void restoreState(ByteBuffer in) {
+        nextBookId = in.getInt();
+        nextMemberId = in.getInt();
+        nextTransactionId = in.getInt();
+        nextRequestId = in.getInt();
+        libraryInfo = JournalCodec.getInfo(in);
+        Transaction.setFinePolicy(StandardFinePolicy.from(libraryInfo));
+        List<Book> catalogue = new ArrayList<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            Book b = JournalCodec.getBook(in);
+            books.add(b);
+            booksById.put(b.getId(), b);
+            catalogue.add(b);
+        }
+        searchIndex.addAll(catalogue);
+        for (int i = in.getInt(); i > 0; i--) {
+            Book b = JournalCodec.getBook(in);
+            retiredBooks.put(b.getId(), b);
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            registerMember(JournalCodec.getMember(in));
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            Member m = JournalCodec.getMember(in);
+            retiredMembers.put(m.getId(), m);
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            registerTransaction(JournalCodec.getLoan(in, this::recoveredBook, this::recoveredMember));
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            registerBookRequest(JournalCodec.getRequest(in, this::recoveredMember));
+        }
+    }
+
+    private Book recoveredBook(int id) {
+        Book b = booksById.get(id);
+        return b != null ? b : retiredBooks.get(id);
+    }
+
+    private Member recoveredMember(int id) {
+        Member m = membersById.get(id);
+        return m != null ? m : retiredMembers.get(id);
+    }
+
+    // Replays one journal event. Runs single-threaded before the constructor returns, so it takes no locks.
+    private void applyEvent(byte type, ByteBuffer in) {
+        switch (type) {
+            case JournalCodec.BOOK_ADDED: {
+                Book b = JournalCodec.getBook(in);
+                registerBook(b);
+                nextBookId = Math.max(nextBookId, b.getId() + 1);
+                break;
+            }
+            case JournalCodec.BOOK_UPDATED: {
+                Book b = JournalCodec.getBook(in);
+                Book existing = booksById.get(b.getId());
+                if (existing != null) {
+                    existing.setTitle(b.getTitle());
+                    existing.setAuthor(b.getAuthor());
+                    existing.setIsbn(b.getIsbn());
+                    existing.setSection(b.getSection());
+                    existing.setGenre(b.getGenre());
+                    existing.setShelf(b.getShelf());
+                    existing.setQuantity(b.getQuantity());
+                    searchIndex.update(existing);
+                }
+                break;
+            }
+            case JournalCodec.BOOK_DELETED: {
+                Book existing = booksById.remove(in.getInt());
+                if (existing != null) {
+                    books.remove(existing);
+                    searchIndex.remove(existing.getId());
+                    retiredBooks.put(existing.getId(), existing);
+                }
+                break;
+            }
+            case JournalCodec.MEMBER_ADDED: {
+                Member m = JournalCodec.getMember(in);
+                registerMember(m);
+                nextMemberId = Math.max(nextMemberId, m.getId() + 1);
+                break;
+            }
+            case JournalCodec.MEMBER_UPDATED: {
+                Member m = JournalCodec.getMember(in);
+                Member existing = membersById.get(m.getId());
+                if (existing != null) {
+                    existing.setName(m.getName());
+                    existing.setEmail(m.getEmail());
+                    existing.setPhone(m.getPhone());
+                    existing.setMemberSince(m.getMemberSince());
+                    indexEmail(existing);
+                }
+                break;
+            }
+            case JournalCodec.MEMBER_DELETED: {
+                Member existing = membersById.remove(in.getInt());
+                if (existing != null) {
+                    members.remove(existing);
+                    unindexEmail(existing.getId());
+                    retiredMembers.put(existing.getId(), existing);
+                }
+                break;
+            }
+            case JournalCodec.LOAN_ISSUED: {
+                Transaction t = JournalCodec.getLoan(in, this::recoveredBook, this::recoveredMember);
+                if (t.getBook() != null && t.getMember() != null && !transactionsById.containsKey(t.getId())) {
+                    registerTransaction(t);
+                    nextTransactionId = Math.max(nextTransactionId, t.getId() + 1);
+                }
+                break;
+            }
+            case JournalCodec.LOAN_RETURNED: {
+                Transaction t = transactionsById.get(in.getInt());
+                LocalDate returned = JournalCodec.getDate(in);
+                if (t != null && !t.isReturned()) applyReturn(t, returned);
+                break;
+            }
+            case JournalCodec.FINE_PAID: {
+                Transaction t = transactionsById.get(in.getInt());
+                if (t != null && !t.isFinePaid()) applyFinePaid(t);
+                break;
+            }
+            case JournalCodec.REQUEST_ADDED: {
+                BookRequest r = JournalCodec.getRequest(in, this::recoveredMember);
+                if (r.getRequestedBy() != null) {
+                    registerBookRequest(r);
+                    nextRequestId = Math.max(nextRequestId, r.getId() + 1);
+                }
+                break;
+            }
+            case JournalCodec.REQUEST_STATUS_CHANGED: {
+                BookRequest r = requestsById.get(in.getInt());
+                String status = JournalCodec.getString(in);
+                if (r != null) r.setStatus(status);
+                break;
+            }
+            case JournalCodec.SETTINGS_CHANGED:
+                libraryInfo = JournalCodec.getInfo(in);
+                Transaction.setFinePolicy(StandardFinePolicy.from(libraryInfo));
+                statistics.rebuild(transactions.snapshot());
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal event type " + type);
+        }
+    }
+
+    // Free copies are never journaled: each title has its quantity less its open loans, kept within 0..quantity.
+    private void recountCopies() {
+        for (Book b : books.snapshot()) {
+            b.setAvailableQuantity(b.getQuantity());
+        }
+        List<Transaction> loans = transactions.snapshot();
+        for (Transaction t : loans) {
+            Book b = t.getBook();
+            if (!booksById.containsKey(b.getId())) b.setAvailableQuantity(b.getQuantity());
+        }
+        for (Transaction t : loans) {
+            Book b = t.getBook();
+            if (!t.isReturned() && b.getAvailableQuantity() > 0) {
+                b.setAvailableQuantity(b.getAvailableQuantity() - 1);
+            }
+        }
+    }
+
+    private void persist(Consumer<WriteBehindQueue> action) {
+        if (writes != null) {
+            action.accept(writes);
+        }
+    }
+
+    private void record(byte type, EventJournal.Body body) {
+        if (journal != null) {
+            journal.append(type, body);
+        }
+    }
+
     private void addTransactionDirect(Transaction t) {
         t.setId(nextTransactionId++);
+        registerTransaction(t);
+        record(JournalCodec.LOAN_ISSUED, out -> JournalCodec.putLoan(out, t));
+    }
+
+    private void registerTransaction(Transaction t) {
         transactions.add(t);
+        transactionsById.put(t.getId(), t);
+        indexMemberLoan(t);
+        statistics.addLoan(t);
+        if (t.isReturned()) {
+            history.append(t, t.getFineCents(LibraryClock.today()));
+        }
+    }
+
+    private void indexMemberLoan(Transaction t) {
+        int memberId = t.getMember().getId();
+        MemberLoans loans = loansByMember.get(memberId);
+        if (loans == null) {
+            loans = new MemberLoans();
+            loansByMember.put(memberId, loans);
+        }
+        loans.all.add(t);
+        if (!t.isReturned()) {
+            loans.active++;
+        }
+    }
+
+    private MemberLoans loansOf(Member member) {
+        MemberLoans loans = loansByMember.get(member.getId());
+        return loans != null ? loans : MemberLoans.EMPTY;
     }
 
     public List<Book> getBooks() {
-        return new ArrayList<>(books);
+        return books.snapshot();
     }
 
     public List<Member> getMembers() {
-        return new ArrayList<>(members);
+        return members.snapshot();
     }
 
     public List<Transaction> getTransactions() {
-        return new ArrayList<>(transactions);
+        return transactions.snapshot();
     }
 
     public List<BookRequest> getBookRequests() {
-        return new ArrayList<>(bookRequests);
+        return bookRequests.snapshot();
     }
 
     public LibraryInfo getLibraryInfo() {
@@ -98,111 +549,557 @@ public class DataManager {
     public Member getCurrentUser() { return currentUser; }
     public void setCurrentUser(Member user) { this.currentUser = user; }
 
-    public void addBook(Book book) {
-        book.setId(nextBookId++);
+    /**
+     * Adds the book and returns true, or returns false if another book already
+     * has its ISBN. The database keeps ISBNs unique, so the check comes first.
+     */
+    public boolean addBook(Book book) {
+        catalogLock.writeLock().lock();
+        try {
+            if (searchIndex.findByIsbn(book.getIsbn()) != null) return false;
+            book.setId(nextBookId++);
+            registerBook(book);
+            persist(w -> w.bookInserted(book));
+            record(JournalCodec.BOOK_ADDED, out -> JournalCodec.putBook(out, book));
+            return true;
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a batch of new books under one catalogue lock, with consecutive ids. A
+     * book whose ISBN is already in the catalogue, or earlier in the batch, is not
+     * added. The search index is built for the whole batch at once, and with a
+     * database the inserts go out in the write-behind batches. Returns the books
+     * that were skipped as duplicates.
+     */
+    public List<Book> addBooks(List<Book> newBooks) {
+        List<Book> skipped = new ArrayList<>();
+        List<Book> added = new ArrayList<>(newBooks.size());
+        Set<String> batchIsbns = new HashSet<>();
+        catalogLock.writeLock().lock();
+        try {
+            for (Book book : newBooks) {
+                String isbn = BookSearchIndex.normalizeIsbn(book.getIsbn());
+                if (!isbn.isEmpty() && (searchIndex.findByIsbn(isbn) != null || !batchIsbns.add(isbn))) {
+                    skipped.add(book);
+                    continue;
+                }
+                book.setId(nextBookId++);
+                books.add(book);
+                booksById.put(book.getId(), book);
+                added.add(book);
+                persist(w -> w.bookInserted(book));
+                record(JournalCodec.BOOK_ADDED, out -> JournalCodec.putBook(out, book));
+            }
+            searchIndex.addAll(added);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+        return skipped;
+    }
+
+    /** The book with this ISBN, ignoring hyphens, spaces and case, or null. */
+    public Book findBookByIsbn(String isbn) {
+        catalogLock.readLock().lock();
+        try {
+            return searchIndex.findByIsbn(isbn);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    private void registerBook(Book book) {
         books.add(book);
+        booksById.put(book.getId(), book);
+        searchIndex.add(book);
     }
 
-    public void updateBook(Book book) {
-        for (int i = 0; i < books.size(); i++) {
-            if (books.get(i).getId() == book.getId()) {
-                books.set(i, book);
-                break;
+    /**
+     * Saves the book and returns true, or returns false if there is no such book
+     * or another book already has its ISBN. An edit form should check
+     * {@link #findBookByIsbn} before it changes the book, since nothing is saved
+     * on false.
+     */
+    public boolean updateBook(Book book) {
+        catalogLock.writeLock().lock();
+        try {
+            Book existing = booksById.get(book.getId());
+            Book holder = searchIndex.findByIsbn(book.getIsbn());
+            if (existing == null || holder != null && holder.getId() != book.getId()) return false;
+            if (existing != book) {
+                books.set(books.indexOf(existing), book);
+                booksById.put(book.getId(), book);
             }
+            searchIndex.update(book);
+            persist(w -> w.bookUpdated(book));
+            record(JournalCodec.BOOK_UPDATED, out -> JournalCodec.putBook(out, book));
+            return true;
+        } finally {
+            catalogLock.writeLock().unlock();
         }
     }
 
-    public void deleteBook(int bookId) {
-        books.removeIf(b -> b.getId() == bookId);
+    /**
+     * Deletes the book and returns true, or returns false if there is no such book
+     * or it is kept. With a database, a book with any loan on record, open or
+     * returned, is kept, since the loan rows reference it and the database would
+     * reject the delete after memory had already dropped the book.
+     */
+    public boolean deleteBook(int bookId) {
+        catalogLock.writeLock().lock();
+        try {
+            Book existing = booksById.get(bookId);
+            if (existing == null || repository != null && hasLoans(existing)) return false;
+            booksById.remove(bookId);
+            books.remove(existing);
+            searchIndex.remove(bookId);
+            persist(w -> w.bookDeleted(bookId));
+            record(JournalCodec.BOOK_DELETED, out -> out.putInt(bookId));
+            return true;
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    private boolean hasLoans(Book book) {
+        loanLock.readLock().lock();
+        try {
+            for (Transaction t : transactions.snapshot()) {
+                if (t.getBook().getId() == book.getId()) return true;
+            }
+            return history.hasBook(book.getId());
+        } finally {
+            loanLock.readLock().unlock();
+        }
     }
 
     public void addMember(Member member) {
-        member.setId(nextMemberId++);
+        memberLock.writeLock().lock();
+        try {
+            member.setId(nextMemberId++);
+            registerMember(member);
+            persist(w -> w.memberInserted(member));
+            record(JournalCodec.MEMBER_ADDED, out -> JournalCodec.putMember(out, member));
+        } finally {
+            memberLock.writeLock().unlock();
+        }
+    }
+
+    private void registerMember(Member member) {
         members.add(member);
+        membersById.put(member.getId(), member);
+        indexEmail(member);
+    }
+
+    // Only the first member with an email is filed under it.
+    private void indexEmail(Member member) {
+        unindexEmail(member.getId());
+        String key = emailKey(member.getEmail());
+        if (!key.isEmpty() && membersByEmail.putIfAbsent(key, member) == null) {
+            emailKeys.put(member.getId(), key);
+        }
+    }
+
+    private void unindexEmail(int memberId) {
+        String key = emailKeys.remove(memberId);
+        if (key != null) membersByEmail.remove(key);
+    }
+
+    private static String emailKey(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** The member with this email, ignoring case, or null. */
+    public Member findMemberByEmail(String email) {
+        memberLock.readLock().lock();
+        try {
+            return membersByEmail.get(emailKey(email));
+        } finally {
+            memberLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Brings the members in line with a roster, matching by email and ignoring
+     * case, in one pass under the members lock. An entry with a new email is
+     * added. An entry whose name, email or phone differs updates the member in
+     * place, keeping its phone if the entry's is null. With
+     * {@code removeMissing}, members whose email is not on the roster are
+     * deleted, except those listed as kept: members with books out, fines unpaid
+     * or a book request pending, the signed-in member, and, with a database, any
+     * member whose loans or requests are on record, since those rows reference
+     * them. Members without an email are never removed, since no roster can name
+     * them. Each change is persisted and journalled like a single edit.
+     */
+    public RosterImporter.Changes syncMembers(List<Member> roster, boolean removeMissing) {
+        RosterImporter.Changes changes = new RosterImporter.Changes();
+        memberLock.writeLock().lock();
+        loanLock.readLock().lock();
+        try {
+            IntHashMap<Member> listed = new IntHashMap<>();
+            for (Member entry : roster) {
+                Member existing = membersByEmail.get(emailKey(entry.getEmail()));
+                if (existing == null) {
+                    if (entry.getPhone() == null) entry.setPhone("");
+                    entry.setId(nextMemberId++);
+                    registerMember(entry);
+                    persist(w -> w.memberInserted(entry));
+                    record(JournalCodec.MEMBER_ADDED, out -> JournalCodec.putMember(out, entry));
+                    listed.put(entry.getId(), entry);
+                    changes.added.add(entry);
+                    continue;
+                }
+                listed.put(existing.getId(), existing);
+                if (entry.getPhone() == null) entry.setPhone(existing.getPhone());
+                if (Objects.equals(existing.getName(), entry.getName()) && Objects.equals(existing.getEmail(), entry.getEmail())
+                        && Objects.equals(existing.getPhone(), entry.getPhone())) {
+                    continue;
+                }
+                existing.setName(entry.getName());
+                existing.setEmail(entry.getEmail());
+                existing.setPhone(entry.getPhone());
+                indexEmail(existing);
+                persist(w -> w.memberUpdated(existing));
+                record(JournalCodec.MEMBER_UPDATED, out -> JournalCodec.putMember(out, existing));
+                changes.updated.add(existing);
+            }
+            if (!removeMissing) return changes;
+
+            long today = LibraryClock.today();
+            BitSet referenced = repository != null ? history.memberIds() : new BitSet();
+            requestLock.readLock().lock();
+            try {
+                for (BookRequest r : bookRequests.snapshot()) {
+                    Member m = r.getRequestedBy();
+                    if (m != null && (r.isPending() || repository != null)) referenced.set(m.getId());
+                }
+            } finally {
+                requestLock.readLock().unlock();
+            }
+            IntHashMap<Member> leaving = new IntHashMap<>();
+            for (Member m : members.snapshot()) {
+                if (listed.containsKey(m.getId()) || emailKey(m.getEmail()).isEmpty()) continue;
+                if (m == currentUser || referenced.get(m.getId()) || owesLibrary(m, today)
+                        || repository != null && !loansOf(m).all.isEmpty()) {
+                    changes.kept.add(m);
+                } else {
+                    leaving.put(m.getId(), m);
+                    changes.removed.add(m);
+                }
+            }
+            members.removeIf(m -> leaving.containsKey(m.getId()));
+            for (Member m : changes.removed) {
+                int id = m.getId();
+                membersById.remove(id);
+                unindexEmail(id);
+                persist(w -> w.memberDeleted(id));
+                record(JournalCodec.MEMBER_DELETED, out -> out.putInt(id));
+            }
+            return changes;
+        } finally {
+            loanLock.readLock().unlock();
+            memberLock.writeLock().unlock();
+        }
+    }
+
+    // Books out or a fine unpaid. The caller holds the loans lock.
+    private boolean owesLibrary(Member member, long today) {
+        MemberLoans loans = loansOf(member);
+        if (loans.active > 0) return true;
+        for (Transaction t : loans.all) {
+            if (!t.isFinePaid() && t.getFineCents(today) > 0) return true;
+        }
+        return false;
     }
 
     public void updateMember(Member member) {
-        for (int i = 0; i < members.size(); i++) {
-            if (members.get(i).getId() == member.getId()) {
-                members.set(i, member);
-                break;
+        memberLock.writeLock().lock();
+        try {
+            Member existing = membersById.get(member.getId());
+            if (existing == null) return;
+            if (existing != member) {
+                members.set(members.indexOf(existing), member);
+                membersById.put(member.getId(), member);
             }
+            indexEmail(member);
+            persist(w -> w.memberUpdated(member));
+            record(JournalCodec.MEMBER_UPDATED, out -> JournalCodec.putMember(out, member));
+        } finally {
+            memberLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the member and returns true, or returns false if there is no such
+     * member or they are kept. With a database, a member with any loan or book
+     * request on record is kept, as {@link #deleteBook} keeps a book.
+     */
+    public boolean deleteMember(int memberId) {
+        memberLock.writeLock().lock();
+        try {
+            Member existing = membersById.get(memberId);
+            if (existing == null || repository != null && hasRecords(existing)) return false;
+            membersById.remove(memberId);
+            members.remove(existing);
+            unindexEmail(memberId);
+            persist(w -> w.memberDeleted(memberId));
+            record(JournalCodec.MEMBER_DELETED, out -> out.putInt(memberId));
+            return true;
+        } finally {
+            memberLock.writeLock().unlock();
         }
     }
 
-    public void deleteMember(int memberId) {
-        members.removeIf(m -> m.getId() == memberId);
+    // Loans or book requests whose rows reference the member. The caller holds the members lock.
+    private boolean hasRecords(Member member) {
+        loanLock.readLock().lock();
+        try {
+            if (!loansOf(member).all.isEmpty() || history.hasMember(member.getId())) return true;
+        } finally {
+            loanLock.readLock().unlock();
+        }
+        requestLock.readLock().lock();
+        try {
+            for (BookRequest r : bookRequests.snapshot()) {
+                if (r.getRequestedBy() != null && r.getRequestedBy().getId() == member.getId()) return true;
+            }
+            return false;
+        } finally {
+            requestLock.readLock().unlock();
+        }
     }
 
     public boolean addTransaction(Transaction transaction) {
         Book book = transaction.getBook();
-        if (book.getAvailableQuantity() <= 0) {
+        if (!book.borrowCopy()) {
             return false;
         }
-        transaction.setId(nextTransactionId++);
-        transactions.add(transaction);
-        book.borrowCopy();
-        return true;
+        loanLock.writeLock().lock();
+        try {
+            transaction.setId(nextTransactionId++);
+            registerTransaction(transaction);
+            persist(w -> {
+                w.transactionInserted(transaction);
+                w.bookUpdated(book);
+            });
+            record(JournalCodec.LOAN_ISSUED, out -> JournalCodec.putLoan(out, transaction));
+            return true;
+        } finally {
+            loanLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Issues the loan only if the member has fewer than {@code maxLoans} books out.
+     * The check and the insert happen under one lock, so two desks can never push a
+     * member past the limit together.
+     */
+    public boolean addTransaction(Transaction transaction, int maxLoans) {
+        loanLock.writeLock().lock();
+        try {
+            return loansOf(transaction.getMember()).active < maxLoans && addTransaction(transaction);
+        } finally {
+            loanLock.writeLock().unlock();
+        }
     }
 
     public boolean returnBook(Transaction transaction) {
-        if (transaction.isReturned()) {
-            return false;
+        loanLock.writeLock().lock();
+        try {
+            if (transaction.isReturned()) {
+                return false;
+            }
+            applyReturn(transaction, LibraryClock.todayDate());
+            transaction.getBook().returnCopy();
+            persist(w -> {
+                w.transactionUpdated(transaction);
+                w.bookUpdated(transaction.getBook());
+                if (transaction.calculateFine() > 0) w.fineSaved(transaction);
+            });
+            record(JournalCodec.LOAN_RETURNED, out -> out.putInt(transaction.getId()).putDate(transaction.getReturnDate()));
+            return true;
+        } finally {
+            loanLock.writeLock().unlock();
+        }
+    }
+
+    // Leaves the book's copies alone: returnBook puts the copy back, and recovery recounts them.
+    private void applyReturn(Transaction transaction, LocalDate returnDate) {
+        statistics.removeLoan(transaction);
+        transaction.setReturnDate(returnDate);
+        statistics.addLoan(transaction);
+        history.append(transaction, transaction.getFineCents(LibraryClock.today()));
+        MemberLoans loans = loansByMember.get(transaction.getMember().getId());
+        if (loans != null) {
+            loans.active--;
         }
-        transaction.setReturnDate(LocalDate.now());
-        transaction.getBook().returnCopy();
-        return true;
     }
 
     public void addBookRequest(BookRequest request) {
-        request.setId(nextRequestId++);
+        requestLock.writeLock().lock();
+        try {
+            request.setId(nextRequestId++);
+            registerBookRequest(request);
+            persist(w -> w.requestInserted(request));
+            record(JournalCodec.REQUEST_ADDED, out -> JournalCodec.putRequest(out, request));
+        } finally {
+            requestLock.writeLock().unlock();
+        }
+    }
+
+    private void registerBookRequest(BookRequest request) {
         bookRequests.add(request);
+        requestsById.put(request.getId(), request);
+    }
+
+    /**
+     * Adds a whole batch of records at once, giving each a fresh id. Loans keep their
+     * own dates and return state. The books' available counts must already exclude
+     * the open loans. Loans must come in borrow order so ids stay sorted by date.
+     */
+    void importRecords(List<Book> newBooks, List<Member> newMembers, List<Transaction> newLoans,
+                       List<BookRequest> newRequests) {
+        catalogLock.writeLock().lock();
+        memberLock.writeLock().lock();
+        loanLock.writeLock().lock();
+        requestLock.writeLock().lock();
+        try {
+            for (Book book : newBooks) {
+                book.setId(nextBookId++);
+                registerBook(book);
+                persist(w -> w.bookInserted(book));
+                record(JournalCodec.BOOK_ADDED, out -> JournalCodec.putBook(out, book));
+            }
+            for (Member member : newMembers) {
+                member.setId(nextMemberId++);
+                registerMember(member);
+                persist(w -> w.memberInserted(member));
+                record(JournalCodec.MEMBER_ADDED, out -> JournalCodec.putMember(out, member));
+            }
+            long today = LibraryClock.today();
+            for (Transaction t : newLoans) {
+                addTransactionDirect(t);
+                persist(w -> {
+                    w.transactionInserted(t);
+                    if (t.isReturned() && t.getFineCents(today) > 0) w.fineSaved(t);
+                });
+            }
+            for (BookRequest request : newRequests) {
+                request.setId(nextRequestId++);
+                registerBookRequest(request);
+                persist(w -> w.requestInserted(request));
+                record(JournalCodec.REQUEST_ADDED, out -> JournalCodec.putRequest(out, request));
+            }
+        } finally {
+            requestLock.writeLock().unlock();
+            loanLock.writeLock().unlock();
+            memberLock.writeLock().unlock();
+            catalogLock.writeLock().unlock();
+        }
     }
 
     public List<Book> searchBooks(String query) {
-        String q = query.toLowerCase();
-        return books.stream()
-                .filter(b -> b.getTitle().toLowerCase().contains(q) ||
-                        b.getAuthor().toLowerCase().contains(q) ||
-                        b.getIsbn().toLowerCase().contains(q) ||
-                        b.getSection().toLowerCase().contains(q) ||
-                        b.getGenre().toLowerCase().contains(q))
-                .collect(Collectors.toList());
+        return searchBooksByField(query, "All");
     }
 
     public List<Book> searchBooksByField(String query, String field) {
-        if ("All".equals(field)) return searchBooks(query);
-        String q = query.toLowerCase();
-        return books.stream()
-                .filter(b -> {
-                    switch (field) {
-                        case "Title": return b.getTitle().toLowerCase().contains(q);
-                        case "Author": return b.getAuthor().toLowerCase().contains(q);
-                        case "ISBN": return b.getIsbn().toLowerCase().contains(q);
-                        case "Section": return b.getSection().toLowerCase().contains(q);
-                        case "Genre": return b.getGenre().toLowerCase().contains(q);
-                        default: return false;
-                    }
-                })
-                .collect(Collectors.toList());
+        catalogLock.readLock().lock();
+        try {
+            return searchIndex.search(query, field);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One page of search results, ranked as {@link #searchBooksByField} ranks
+     * them, with the number of matches. Only the books up to the end of the page
+     * are ranked in full. A blank query pages through the catalogue in order.
+     */
+    public SearchResults searchBooks(String query, String field, int offset, int limit) {
+        if (query.trim().isEmpty()) {
+            List<Book> all = books.snapshot();
+            int from = Math.min(offset, all.size());
+            int to = (int) Math.min(all.size(), (long) from + limit);
+            return new SearchResults(all.subList(from, to), all.size(), offset);
+        }
+        catalogLock.readLock().lock();
+        try {
+            return searchIndex.search(query, field, offset, limit);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
     }
 
     public List<Book> getAvailableBooks() {
-        return books.stream()
+        return books.snapshot().stream()
                 .filter(b -> b.getAvailableQuantity() > 0)
                 .collect(Collectors.toList());
     }
 
     public List<Transaction> getActiveTransactions() {
-        return transactions.stream()
+        return transactions.snapshot().stream()
                 .filter(t -> !t.isReturned())
                 .collect(Collectors.toList());
     }
 
     public List<Transaction> getOverdueTransactions() {
-        return transactions.stream()
-                .filter(t -> !t.isReturned() && t.isOverdue())
-                .collect(Collectors.toList());
+        return statistics.getOverdueTransactions();
+    }
+
+    public List<Transaction> getTransactionsPage(TransactionQuery query, int afterId, int limit) {
+        if (repository != null) {
+            try {
+                writes.flush();
+                List<Transaction> page = repository.findTransactions(query, afterId, limit, this::bookOrStandIn, this::memberOrStandIn);
+                loanLock.readLock().lock();
+                try {
+                    for (int i = 0; i < page.size(); i++) {
+                        Transaction loaded = transactionsById.get(page.get(i).getId());
+                        if (loaded != null) page.set(i, loaded);
+                    }
+                } finally {
+                    loanLock.readLock().unlock();
+                }
+                return page;
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return new ArrayList<>();
+            }
+        }
+
+        loanLock.readLock().lock();
+        try {
+            List<Transaction> source = transactions.snapshot();
+            if (query.getMemberId() != 0) {
+                MemberLoans loans = loansByMember.get(query.getMemberId());
+                source = loans != null ? loans.all : MemberLoans.EMPTY.all;
+            } else if (query.isOverdueOnly()) {
+                source = statistics.getOverdueTransactions();
+            }
+            long today = LibraryClock.today();
+            List<Transaction> page = new ArrayList<>(limit);
+            for (int i = firstIndexAfter(source, afterId); i < source.size() && page.size() < limit; i++) {
+                Transaction t = source.get(i);
+                if (query.matches(t, today)) page.add(t);
+            }
+            return page;
+        } finally {
+            loanLock.readLock().unlock();
+        }
+    }
+
+    private static int firstIndexAfter(List<Transaction> sortedById, int afterId) {
+        int low = 0;
+        int high = sortedById.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedById.get(mid).getId() <= afterId) low = mid + 1;
+            else high = mid;
+        }
+        return low;
     }
 
     public List<Transaction> getMemberTransactions(Member member) {
@@ -210,21 +1107,37 @@ public class DataManager {
     }
 
     public List<Transaction> getMemberActiveTransactions(Member member) {
-        return transactions.stream()
-                .filter(t -> t.getMember().getId() == member.getId() && !t.isReturned())
-                .collect(Collectors.toList());
+        loanLock.readLock().lock();
+        try {
+            MemberLoans loans = loansOf(member);
+            List<Transaction> active = new ArrayList<>(loans.active);
+            for (Transaction t : loans.all) {
+                if (!t.isReturned()) {
+                    active.add(t);
+                }
+            }
+            return active;
+        } finally {
+            loanLock.readLock().unlock();
+        }
     }
 
     public List<Transaction> getMemberAllTransactions(Member member) {
-        return transactions.stream()
-                .filter(t -> t.getMember().getId() == member.getId())
-                .collect(Collectors.toList());
+        loanLock.readLock().lock();
+        try {
+            return new ArrayList<>(loansOf(member).all);
+        } finally {
+            loanLock.readLock().unlock();
+        }
     }
 
     public int getMemberBorrowedCount(Member member) {
-        return (int) transactions.stream()
-                .filter(t -> t.getMember().getId() == member.getId() && !t.isReturned())
-                .count();
+        loanLock.readLock().lock();
+        try {
+            return loansOf(member).active;
+        } finally {
+            loanLock.readLock().unlock();
+        }
     }
 
     public int getRemainingBorrowLimit(Member member) {
@@ -232,84 +1145,213 @@ public class DataManager {
     }
 
     public List<BookRequest> getPendingRequests() {
-        return bookRequests.stream()
+        return bookRequests.snapshot().stream()
                 .filter(BookRequest::isPending)
                 .collect(Collectors.toList());
     }
 
     public List<BookRequest> getMemberBookRequests(Member member) {
-        return bookRequests.stream()
+        return bookRequests.snapshot().stream()
                 .filter(r -> r.getRequestedBy().getId() == member.getId())
                 .collect(Collectors.toList());
     }
 
+    // A history row whose book or member is no longer in memory gets a stand-in, so
+    // the pages and exports that read its title or name still work.
+    private Book bookOrStandIn(int id) {
+        Book b = getBookById(id);
+        return b != null ? b : new Book(id, "(deleted book #" + id + ")", "", "", false, "", "", "", 0, 0);
+    }
+
+    private Member memberOrStandIn(int id) {
+        Member m = getMemberById(id);
+        return m != null ? m : new Member(id, "(deleted member #" + id + ")", "", "", LocalDate.EPOCH);
+    }
+
     public Book getBookById(int id) {
-        return books.stream().filter(b -> b.getId() == id).findFirst().orElse(null);
+        catalogLock.readLock().lock();
+        try {
+            return booksById.get(id);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
     }
 
     public Member getMemberById(int id) {
-        return members.stream().filter(m -> m.getId() == id).findFirst().orElse(null);
+        memberLock.readLock().lock();
+        try {
+            return membersById.get(id);
+        } finally {
+            memberLock.readLock().unlock();
+        }
+    }
+
+    public Transaction getTransactionById(int id) {
+        loanLock.readLock().lock();
+        try {
+            return transactionsById.get(id);
+        } finally {
+            loanLock.readLock().unlock();
+        }
+    }
+
+    public BookRequest getBookRequestById(int id) {
+        requestLock.readLock().lock();
+        try {
+            return requestsById.get(id);
+        } finally {
+            requestLock.readLock().unlock();
+        }
+    }
+
+    /** The highest loan id issued so far, including loans kept only in the database. */
+    public int getLastTransactionId() {
+        loanLock.readLock().lock();
+        try {
+            return nextTransactionId - 1;
+        } finally {
+            loanLock.readLock().unlock();
+        }
     }
 
     public int getTotalBooks() { return books.size(); }
     public int getTotalMembers() { return members.size(); }
 
     public int getActiveLoansCount() {
-        return (int) transactions.stream().filter(t -> !t.isReturned()).count();
+        return statistics.getActiveLoans();
     }
 
     public int getOverdueCount() {
-        return (int) transactions.stream().filter(t -> !t.isReturned() && t.isOverdue()).count();
+        return statistics.getOverdueLoans();
     }
 
     public double getMemberTotalFines(Member member) {
-        return getMemberAllTransactions(member).stream()
-                .filter(t -> t.calculateFine() > 0 && !t.isFinePaid())
-                .mapToDouble(Transaction::calculateFine)
-                .sum();
+        loanLock.readLock().lock();
+        try {
+            long today = LibraryClock.today();
+            long cents = 0;
+            for (Transaction t : loansOf(member).all) {
+                if (!t.isFinePaid()) {
+                    cents += t.getFineCents(today);
+                }
+            }
+            return cents / 100.0;
+        } finally {
+            loanLock.readLock().unlock();
+        }
     }
 
     public List<String> getGenres() {
-        return books.stream()
-                .map(Book::getGenre)
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+        return ReportMetrics.compute(books.snapshot(), 0, Collections.emptyList(), 0, 0, ForkJoinPool.commonPool())
+                .getGenres();
+    }
+
+    /** Every Reports-tab figure recomputed in one parallel pass, on the common pool. */
+    public ReportMetrics computeReportMetrics() {
+        return computeReportMetrics(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Every Reports-tab figure recomputed in one parallel pass on {@code pool}.
+     * Holds the loans read lock for the pass, so returns and fine payments wait
+     * for it to finish.
+     */
+    public ReportMetrics computeReportMetrics(ForkJoinPool pool) {
+        List<Book> bookSnapshot = books.snapshot();
+        int memberCount = members.size();
+        loanLock.readLock().lock();
+        try {
+            return ReportMetrics.compute(bookSnapshot, memberCount, transactions.snapshot(), LibraryClock.today(),
+                    statistics.getArchivedFinesCollectedCents(), pool);
+        } finally {
+            loanLock.readLock().unlock();
+        }
+    }
+
+    /** Every closed loan, in columns, for circulation reports over any span of years. */
+    public CirculationHistory getCirculationHistory() {
+        return history;
     }
 
     public double getTotalFinesCollected() {
-        return transactions.stream()
-                .filter(t -> t.calculateFine() > 0 && t.isFinePaid())
-                .mapToDouble(Transaction::calculateFine)
-                .sum();
+        return statistics.getFinesCollectedCents() / 100.0;
     }
 
     public double getTotalOutstandingFines() {
-        return transactions.stream()
-                .filter(t -> t.calculateFine() > 0 && !t.isFinePaid())
-                .mapToDouble(Transaction::calculateFine)
-                .sum();
+        return statistics.getFinesOutstandingCents() / 100.0;
     }
 
     public void updateLibraryInfo(LibraryInfo info) {
-        this.libraryInfo = info;
+        loanLock.writeLock().lock();
+        try {
+            this.libraryInfo = info;
+            Transaction.setFinePolicy(StandardFinePolicy.from(info));
+            statistics.rebuild(transactions.snapshot());
+            record(JournalCodec.SETTINGS_CHANGED, out -> JournalCodec.putInfo(out, info));
+        } finally {
+            loanLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Approves or rejects a pending request and returns true, or returns false if
+     * there is no such request or it was already decided.
+     */
+    public boolean decideBookRequest(int requestId, boolean approve) {
+        requestLock.writeLock().lock();
+        try {
+            BookRequest r = requestsById.get(requestId);
+            if (r == null || !r.isPending()) return false;
+            updateBookRequestStatus(requestId, approve ? "Approved" : "Rejected");
+            return true;
+        } finally {
+            requestLock.writeLock().unlock();
+        }
     }
 
     public void updateBookRequestStatus(int requestId, String status) {
-        for (BookRequest r : bookRequests) {
-            if (r.getId() == requestId) {
+        requestLock.writeLock().lock();
+        try {
+            BookRequest r = requestsById.get(requestId);
+            if (r != null) {
                 r.setStatus(status);
-                break;
+                persist(w -> w.requestUpdated(r));
+                record(JournalCodec.REQUEST_STATUS_CHANGED, out -> out.putInt(requestId).putString(status));
             }
+        } finally {
+            requestLock.writeLock().unlock();
         }
     }
 
-    public void collectFine(int transactionId) {
-        for (Transaction t : transactions) {
-            if (t.getId() == transactionId) {
-                t.payFine();
-                break;
-            }
+    /**
+     * Marks a loan's fine paid and returns true, or returns false if the loan has
+     * no fine or it was already paid. The check and the payment happen under one
+     * lock, so two desks can never both collect the same fine.
+     */
+    public boolean collectFine(int transactionId) {
+        loanLock.writeLock().lock();
+        try {
+            Transaction t = transactionsById.get(transactionId);
+            if (t == null || t.isFinePaid() || t.getFineCents(LibraryClock.today()) <= 0) return false;
+            applyFinePaid(t);
+            persist(w -> w.fineSaved(t));
+            record(JournalCodec.FINE_PAID, out -> out.putInt(transactionId));
+            return true;
+        } finally {
+            loanLock.writeLock().unlock();
         }
     }
+
+    private void applyFinePaid(Transaction t) {
+        statistics.removeLoan(t);
+        t.payFine();
+        statistics.addLoan(t);
+    }
+
+    private static class MemberLoans {
+        static final MemberLoans EMPTY = new MemberLoans();
+
+        final List<Transaction> all = new ArrayList<>();
+        int active;
+    }
 }
@@ -0,0 +1,241 @@
+package main.java.library.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of domain events, kept in memory-mapped segment files of
+ * {@link #SEGMENT_BYTES} each. A position in the log (LSN) is a byte offset
+ * across all segments. Segment files are named after the LSN they start at.
+ * <p>
+ * Record layout: int length (type byte plus payload), int CRC32 of those bytes,
+ * the type byte, then the payload. A zero length marks the end of a segment's data.
+ * A record never spans two segments.
+ * <p>
+ * Durability: an append is copied into the mapped segment, which already belongs
+ * to the OS page cache, so a JVM crash or kill loses nothing. A flusher thread
+ * forces the segment to disk every sync interval. One fsync covers every record
+ * appended since the last one, so a burst of writers pays for a single disk sync.
+ * A power failure can lose at most one sync interval. {@link #sync()} forces
+ * immediately. A record torn by a crash fails its CRC, and recovery truncates the
+ * log there.
+ */
+class EventJournal implements AutoCloseable {
+    static final long SEGMENT_BYTES = 64L << 20;
+    private static final int HEADER_BYTES = 8;
+
+    interface Handler {
+        void apply(byte type, ByteBuffer payload);
+    }
+
+    private final Path dir;
+    private final ScheduledExecutorService flusher;
+    private final Thread shutdownHook;
+    private final CRC32 crc = new CRC32();
+    private final JournalCodec.Out scratch = new JournalCodec.Out(256);
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private long appended;
+    private volatile long durable;
+    private long events;
+    private boolean torn;
+
+    /** Replays every record from {@code fromLsn} on, then opens the log for appends after the last good one. */
+    EventJournal(Path dir, long fromLsn, long syncMillis, Handler handler) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        long end = replay(fromLsn, handler);
+        openSegment(end - end % SEGMENT_BYTES);
+        segment.position((int) (end - segmentStart));
+        if (torn) wipeFrom(segment.position());
+        deleteSegmentsAfter(segmentStart);
+        appended = end;
+        durable = end;
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::syncQuietly, syncMillis, syncMillis, TimeUnit.MILLISECONDS);
+        shutdownHook = new Thread(this::close, "journal-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    private long replay(long from, Handler handler) throws IOException {
+        long lsn = from;
+        while (true) {
+            long start = lsn - lsn % SEGMENT_BYTES;
+            Path file = segmentFile(start);
+            if (!Files.exists(file)) return lsn;
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                map.position((int) (lsn - start));
+                CRC32 check = new CRC32();
+                while (map.remaining() >= HEADER_BYTES) {
+                    int length = map.getInt(map.position());
+                    if (length == 0) break;
+                    int expected = map.getInt(map.position() + 4);
+                    if (length < 0 || length > map.remaining() - HEADER_BYTES) {
+                        torn = true;
+                        return lsn;
+                    }
+                    ByteBuffer record = map.slice(map.position() + HEADER_BYTES, length);
+                    check.reset();
+                    check.update(record.duplicate());
+                    if ((int) check.getValue() != expected) {
+                        torn = true;
+                        return lsn;
+                    }
+                    handler.apply(record.get(), record);
+                    map.position(map.position() + HEADER_BYTES + length);
+                    lsn = start + map.position();
+                    events++;
+                }
+            }
+            // Reached the end of this segment's data; carry on only if a later segment exists.
+            if (!Files.exists(segmentFile(start + SEGMENT_BYTES))) return lsn;
+            lsn = start + SEGMENT_BYTES;
+        }
+    }
+
+    interface Body {
+        void write(JournalCodec.Out out);
+    }
+
+    /** Appends one event and returns the LSN just past it. */
+    synchronized long append(byte type, Body body) {
+        scratch.clear();
+        scratch.putByte(type);
+        body.write(scratch);
+        ByteBuffer record = scratch.contents();
+        int length = record.remaining();
+        if (segment.remaining() < HEADER_BYTES + length + HEADER_BYTES) {
+            roll();
+        }
+        crc.reset();
+        crc.update(record.duplicate());
+        int at = segment.position();
+        segment.position(at + HEADER_BYTES);
+        segment.put(record);
+        segment.putInt(at + 4, (int) crc.getValue());
+        // The length goes in last, so a reader never sees a length whose bytes are not there yet.
+        segment.putInt(at, length);
+        appended = segmentStart + segment.position();
+        events++;
+        return appended;
+    }
+
+    synchronized long position() {
+        return appended;
+    }
+
+    /** Events replayed or appended since this journal was opened. */
+    synchronized long eventCount() {
+        return events;
+    }
+
+    private void roll() {
+        try {
+            segment.force();
+            channel.close();
+            openSegment(segmentStart + SEGMENT_BYTES);
+            durable = segmentStart;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start a new journal segment", e);
+        }
+    }
+
+    private void openSegment(long start) throws IOException {
+        segmentStart = start;
+        channel = FileChannel.open(segmentFile(start),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+    }
+
+    // Zeroes everything after a torn record, so records written after it can never be read as live.
+    private void wipeFrom(int offset) {
+        byte[] zeros = new byte[64 * 1024];
+        ByteBuffer tail = segment.duplicate().position(offset);
+        while (tail.hasRemaining()) {
+            tail.put(zeros, 0, Math.min(zeros.length, tail.remaining()));
+        }
+    }
+
+    /** Forces everything appended so far to disk. */
+    void sync() {
+        long upTo;
+        MappedByteBuffer current;
+        synchronized (this) {
+            upTo = appended;
+            current = segment;
+        }
+        if (upTo > durable) {
+            current.force();
+            durable = upTo;
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Removes segments that end before {@code lsn}, once a snapshot covers them. */
+    void deleteSegmentsBefore(long lsn) throws IOException {
+        for (long start : segmentStarts()) {
+            if (start + SEGMENT_BYTES <= lsn) Files.deleteIfExists(segmentFile(start));
+        }
+    }
+
+    private void deleteSegmentsAfter(long start) throws IOException {
+        for (long s : segmentStarts()) {
+            if (s > start) Files.deleteIfExists(segmentFile(s));
+        }
+    }
+
+    private List<Long> segmentStarts() throws IOException {
+        List<Long> starts = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(".journal"))
+                    .forEach(name -> starts.add(Long.parseLong(name.substring(0, name.length() - ".journal".length()))));
+        }
+        return starts;
+    }
+
+    private Path segmentFile(long start) {
+        return dir.resolve(String.format("%020d.journal", start));
+    }
+
+    @Override
+    public synchronized void close() {
+        flusher.shutdown();
+        segment.force();
+        durable = appended;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ignored) {
+        }
+    }
+}
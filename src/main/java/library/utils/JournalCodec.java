@@ -0,0 +1,204 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import main.java.library.models.BookRequest;
+import main.java.library.models.LibraryInfo;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The binary encoding shared by the event journal and the snapshots. Numbers are
+ * fixed-width big-endian and dates are epoch days. A string is an int byte count
+ * followed by UTF-8, with -1 for null. Loans and requests refer to books and
+ * members by id.
+ */
+final class JournalCodec {
+    static final byte BOOK_ADDED = 1;
+    static final byte BOOK_UPDATED = 2;
+    static final byte BOOK_DELETED = 3;
+    static final byte MEMBER_ADDED = 4;
+    static final byte MEMBER_UPDATED = 5;
+    static final byte MEMBER_DELETED = 6;
+    static final byte LOAN_ISSUED = 7;
+    static final byte LOAN_RETURNED = 8;
+    static final byte FINE_PAID = 9;
+    static final byte REQUEST_ADDED = 10;
+    static final byte REQUEST_STATUS_CHANGED = 11;
+    static final byte SETTINGS_CHANGED = 12;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private JournalCodec() {
+    }
+
+    /** A growable write buffer. */
+    static final class Out {
+        private ByteBuffer buf;
+
+        Out(int capacity) {
+            buf = ByteBuffer.allocate(capacity);
+        }
+
+        private void ensure(int bytes) {
+            if (buf.remaining() < bytes) {
+                int capacity = Math.max(buf.capacity() * 2, buf.position() + bytes);
+                ByteBuffer bigger = ByteBuffer.allocate(capacity);
+                buf.flip();
+                bigger.put(buf);
+                buf = bigger;
+            }
+        }
+
+        Out putByte(int b) { ensure(1); buf.put((byte) b); return this; }
+        Out putInt(int v) { ensure(4); buf.putInt(v); return this; }
+        Out putLong(long v) { ensure(8); buf.putLong(v); return this; }
+        Out putBoolean(boolean v) { return putByte(v ? 1 : 0); }
+
+        Out putString(String s) {
+            if (s == null) return putInt(-1);
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            buf.put(bytes);
+            return this;
+        }
+
+        Out putDate(LocalDate date) {
+            return putLong(date != null ? date.toEpochDay() : NO_DATE);
+        }
+
+        void clear() { buf.clear(); }
+        int size() { return buf.position(); }
+
+        /** The bytes written so far, as a read-only view that does not copy. */
+        ByteBuffer contents() {
+            return buf.asReadOnlyBuffer().flip();
+        }
+    }
+
+    static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static LocalDate getDate(ByteBuffer in) {
+        long day = in.getLong();
+        return day == NO_DATE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    static boolean getBoolean(ByteBuffer in) {
+        return in.get() != 0;
+    }
+
+    // Copies are not stored: the free count is rebuilt from the open loans on recovery.
+    static void putBook(Out out, Book b) {
+        out.putInt(b.getId()).putString(b.getTitle()).putString(b.getAuthor()).putString(b.getIsbn())
+                .putString(b.getSection()).putString(b.getGenre()).putString(b.getShelf()).putInt(b.getQuantity());
+    }
+
+    static Book getBook(ByteBuffer in) {
+        int id = in.getInt();
+        String title = getString(in);
+        String author = getString(in);
+        String isbn = getString(in);
+        String section = getString(in);
+        String genre = getString(in);
+        String shelf = getString(in);
+        int quantity = in.getInt();
+        return new Book(id, title, author, isbn, true, section, genre, shelf, quantity, quantity);
+    }
+
+    static void putMember(Out out, Member m) {
+        out.putInt(m.getId()).putString(m.getName()).putString(m.getEmail()).putString(m.getPhone()).putDate(m.getMemberSince());
+    }
+
+    static Member getMember(ByteBuffer in) {
+        return new Member(in.getInt(), getString(in), getString(in), getString(in), getDate(in));
+    }
+
+    static void putLoan(Out out, Transaction t) {
+        out.putInt(t.getId()).putInt(t.getBook().getId()).putInt(t.getMember().getId())
+                .putDate(t.getBorrowDate()).putDate(t.getDueDate()).putDate(t.getReturnDate()).putBoolean(t.isFinePaid());
+    }
+
+    interface Lookup<T> {
+        T get(int id);
+    }
+
+    static Transaction getLoan(ByteBuffer in, Lookup<Book> books, Lookup<Member> members) {
+        int id = in.getInt();
+        Book book = books.get(in.getInt());
+        Member member = members.get(in.getInt());
+        Transaction t = new Transaction(id, book, member, getDate(in), getDate(in));
+        LocalDate returned = getDate(in);
+        if (returned != null) t.setReturnDate(returned);
+        t.setFinePaid(getBoolean(in));
+        return t;
+    }
+
+    static void putRequest(Out out, BookRequest r) {
+        out.putInt(r.getId()).putInt(r.getRequestedBy().getId()).putString(r.getBookTitle()).putString(r.getAuthorName())
+                .putString(r.getReason()).putDate(r.getRequestDate()).putString(r.getStatus());
+    }
+
+    static BookRequest getRequest(ByteBuffer in, Lookup<Member> members) {
+        int id = in.getInt();
+        Member member = members.get(in.getInt());
+        BookRequest r = new BookRequest(id, member, getString(in), getString(in), getString(in));
+        r.setRequestDate(getDate(in));
+        r.setStatus(getString(in));
+        return r;
+    }
+
+    static void putInfo(Out out, LibraryInfo info) {
+        out.putString(info.getName()).putString(info.getAddress()).putString(info.getPhone()).putString(info.getEmail())
+                .putString(info.getMondayToFriday()).putString(info.getSaturday()).putString(info.getSunday())
+                .putInt(info.getMaxBooksPerStudent()).putLong(info.getFinePerDayCents())
+                .putInt(info.getFineGraceDays()).putLong(info.getMaxFineCents());
+        out.putInt(info.getGenreFinePerDayCents().size());
+        for (Map.Entry<String, Long> e : info.getGenreFinePerDayCents().entrySet()) {
+            out.putString(e.getKey()).putLong(e.getValue());
+        }
+        out.putInt(info.getClosedDates().size());
+        for (LocalDate date : info.getClosedDates()) {
+            out.putDate(date);
+        }
+    }
+
+    static LibraryInfo getInfo(ByteBuffer in) {
+        LibraryInfo info = new LibraryInfo();
+        info.setName(getString(in));
+        info.setAddress(getString(in));
+        info.setPhone(getString(in));
+        info.setEmail(getString(in));
+        info.setMondayToFriday(getString(in));
+        info.setSaturday(getString(in));
+        info.setSunday(getString(in));
+        info.setMaxBooksPerStudent(in.getInt());
+        info.setFinePerDayCents(in.getLong());
+        info.setFineGraceDays(in.getInt());
+        info.setMaxFineCents(in.getLong());
+        Map<String, Long> genreRates = new HashMap<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            genreRates.put(getString(in), in.getLong());
+        }
+        info.setGenreFinePerDayCents(genreRates);
+        Set<LocalDate> closed = new LinkedHashSet<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            closed.add(getDate(in));
+        }
+        info.setClosedDates(closed);
+        return info;
+    }
+}
@@ -0,0 +1,32 @@
+package main.java.library.utils;
+
+import main.java.library.db.DBConfig;
+
+/**
+ * Settings for the file journal that keeps the in-memory library across restarts
+ * when no database is configured. Leaving {@code library.journal.dir} unset turns
+ * the journal off.
+ */
+public class JournalConfig {
+    private final String dir;
+    private final long syncMillis;
+    private final long snapshotEvents;
+
+    public JournalConfig(String dir, long syncMillis, long snapshotEvents) {
+        this.dir = dir;
+        this.syncMillis = syncMillis;
+        this.snapshotEvents = snapshotEvents;
+    }
+
+    public static JournalConfig fromEnvironment() {
+        return new JournalConfig(
+                DBConfig.setting("library.journal.dir", null),
+                Long.parseLong(DBConfig.setting("library.journal.syncMillis", "5")),
+                Long.parseLong(DBConfig.setting("library.journal.snapshotEvents", "1000000")));
+    }
+
+    public boolean isEnabled() { return dir != null && !dir.isEmpty(); }
+    public String getDir() { return dir; }
+    public long getSyncMillis() { return syncMillis; }
+    public long getSnapshotEvents() { return snapshotEvents; }
+}
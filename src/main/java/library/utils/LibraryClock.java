@@ -0,0 +1,61 @@
+package main.java.library.utils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * The clock every date decision in the library is made against. Swap it with
+ * {@link #setClock(Clock)} to run the app or a benchmark on a fixed or shifted
+ * day. {@link #today()} costs one {@code Clock.millis()} read; the calendar
+ * conversion happens only when the day changes.
+ */
+public final class LibraryClock {
+    private static volatile Clock clock = Clock.systemDefaultZone();
+    private static volatile Day current;
+
+    private LibraryClock() {
+    }
+
+    public static Clock getClock() {
+        return clock;
+    }
+
+    public static void setClock(Clock newClock) {
+        clock = newClock;
+        current = null;
+    }
+
+    /** Today's date as a {@link LocalDate#toEpochDay() epoch day}. */
+    public static long today() {
+        Clock c = clock;
+        long now = c.millis();
+        Day day = current;
+        if (day == null || day.clock != c || now < day.startMillis || now >= day.endMillis) {
+            day = new Day(c, now);
+            current = day;
+        }
+        return day.epochDay;
+    }
+
+    public static LocalDate todayDate() {
+        return LocalDate.ofEpochDay(today());
+    }
+
+    private static final class Day {
+        final Clock clock;
+        final long epochDay;
+        final long startMillis;
+        final long endMillis;
+
+        Day(Clock clock, long now) {
+            ZoneId zone = clock.getZone();
+            LocalDate date = Instant.ofEpochMilli(now).atZone(zone).toLocalDate();
+            this.clock = clock;
+            this.epochDay = date.toEpochDay();
+            this.startMillis = date.atStartOfDay(zone).toInstant().toEpochMilli();
+            this.endMillis = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package main.java.library.utils;
+
+import main.java.library.db.BulkCopy;
+import main.java.library.db.SchemaMigrator;
+import main.java.library.models.Book;
+import main.java.library.models.BookRequest;
+import main.java.library.models.LibraryInfo;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Builds a synthetic library that behaves like a real one under load. The same
+ * seed and options always produce the same library.
+ * <ul>
+ *   <li>Loans pick titles from a Zipf distribution. A few titles are borrowed
+ *   constantly, and the popular ones get more copies.</li>
+ *   <li>Authors are also Zipf-distributed: a handful wrote dozens of books, most
+ *   wrote one.</li>
+ *   <li>Loans are spread over several years of history, with some members
+ *   borrowing far more than others.</li>
+ *   <li>A fixed share of loans come back late. The late ones still out today are
+ *   the overdue loans, and most fines on returned loans are paid.</li>
+ *   <li>Requests for titles the library does not hold yet.</li>
+ * </ul>
+ * Open loans never exceed a book's copies or a member's borrow limit.
+ * <p>
+ * From the command line it either loads the library into the in-memory
+ * DataManager and prints a summary, or bulk-copies it into PostgreSQL:
+ * {@code LibraryDataGenerator [--books N] [--members N] [--years N] [--loans-per-member-year N]
+ * [--overdue-rate P] [--requests N] [--zipf S] [--seed N] [--target memory|postgres]}.
+ */
+public class LibraryDataGenerator {
+    private static final int LOAN_DAYS = 14;
+    private static final String[] FIRST_NAMES = {
+            "James", "Maria", "Wei", "Aisha", "Lucas", "Sofia", "Omar", "Hana", "Mateo", "Priya",
+            "Noah", "Elena", "Kenji", "Fatima", "Liam", "Chloe", "Ivan", "Amara", "Diego", "Yuki",
+            "Ethan", "Zara", "Felix", "Leila", "Hugo", "Mei", "Arjun", "Nora", "Tomas", "Ines"};
+    private static final String[] SURNAMES = {
+            "Smith", "Garcia", "Chen", "Khan", "M\u00fcller", "Rossi", "Okafor", "Tanaka", "Silva", "Novak",
+            "Johnson", "Dubois", "Kowalski", "Patel", "Nguyen", "Andersen", "Haddad", "Ivanova", "Murphy", "Costa",
+            "Brown", "Sato", "Fischer", "Lopez", "Jensen", "Ahmed", "Moreau", "Park", "Olsen", "Reyes"};
+    private static final String[] ADJECTIVES = {
+            "Silent", "Hidden", "Last", "Broken", "Golden", "Forgotten", "Distant", "Burning", "Quiet", "Endless",
+            "Secret", "Winter", "Crimson", "Lost", "Wandering", "Invisible", "Northern", "Paper", "Iron", "Glass"};
+    private static final String[] NOUNS = {
+            "River", "Garden", "Empire", "Shadow", "Kingdom", "Letter", "Machine", "Mountain", "Harbor", "Library",
+            "Theory", "Journey", "Archive", "Forest", "Island", "Orchard", "Signal", "Promise", "Lighthouse", "Atlas"};
+    private static final String[][] SECTIONS = {
+            {"Fiction", "Classic Fiction", "Mystery", "Romance", "Science Fiction", "Fantasy", "Dystopian"},
+            {"Academic", "Computer Science", "Mathematics", "Economics", "Software Engineering", "Law"},
+            {"Science", "Physics", "Biology", "Chemistry", "Astronomy"},
+            {"History", "Modern History", "Ancient History", "Biography"},
+            {"Children", "Picture Books", "Young Adult"}};
+    private static final double[] SECTION_WEIGHTS = {0.45, 0.25, 0.12, 0.12, 0.06};
+    private static final String[] REASONS = {
+            "Needed for coursework", "Recommended by my tutor", "Book club pick", "For my thesis", "Personal interest"};
+
+    private final Options options;
+    private final SplittableRandom random;
+    private final LocalDate today = LibraryClock.todayDate();
+
+    public LibraryDataGenerator(Options options) {
+        this.options = options;
+        this.random = new SplittableRandom(options.seed);
+    }
+
+    public Dataset generate() {
+        List<String> authors = authors();
+        List<Book> books = books(authors);
+        List<Member> members = members();
+        List<Transaction> loans = loans(books, members);
+        List<BookRequest> requests = requests(authors, members);
+        return new Dataset(books, members, loans, requests);
+    }
+
+    private List<String> authors() {
+        int count = Math.max(1, options.books / 4);
+        List<String> authors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int first = i % FIRST_NAMES.length;
+            int last = (i / FIRST_NAMES.length) % SURNAMES.length;
+            int initials = i / (FIRST_NAMES.length * SURNAMES.length);
+            String middle = initials == 0 ? " " : " " + initials(initials) + ". ";
+            authors.add(FIRST_NAMES[first] + middle + SURNAMES[last]);
+        }
+        shuffle(authors);
+        return authors;
+    }
+
+    // 1 -> "A", 26 -> "Z", 27 -> "AA", ... so every author name stays distinct.
+    private static String initials(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (; n > 0; n = (n - 1) / 26) {
+            sb.append((char) ('A' + (n - 1) % 26));
+        }
+        return sb.reverse().toString();
+    }
+
+    private List<Book> books(List<String> authors) {
+        ZipfSampler byAuthor = new ZipfSampler(authors.size(), 1.1);
+        List<Book> books = new ArrayList<>(options.books);
+        for (int i = 0; i < options.books; i++) {
+            String[] section = SECTIONS[weighted(SECTION_WEIGHTS)];
+            String genre = section[1 + random.nextInt(section.length - 1)];
+            String shelf = section[0].charAt(0) + String.valueOf(1 + random.nextInt(20));
+            books.add(new Book(i + 1, title(), authors.get(byAuthor.sample(random)), isbn(i), true,
+                    section[0], genre, shelf, 1, 1));
+        }
+        // Books are listed in popularity order, most borrowed first, and shuffled below.
+        for (int rank = 0; rank < books.size(); rank++) {
+            int copies = rank < books.size() / 100 ? 3 + random.nextInt(4) : 1 + random.nextInt(2);
+            books.get(rank).setQuantity(copies);
+            books.get(rank).setAvailableQuantity(copies);
+        }
+        return books;
+    }
+
+    private String title() {
+        String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+        String noun = NOUNS[random.nextInt(NOUNS.length)];
+        switch (random.nextInt(4)) {
+            case 0: return "The " + adjective + " " + noun;
+            case 1: return noun + " of the " + adjective + " " + NOUNS[random.nextInt(NOUNS.length)];
+            case 2: return "A " + noun + " in " + FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + "'s " + NOUNS[random.nextInt(NOUNS.length)];
+            default: return adjective + " " + noun + ", Volume " + (1 + random.nextInt(12));
+        }
+    }
+
+    // ISBN-13s in the 979-9 range, well away from the 978 ones real catalogues are full of.
+    private static String isbn(int i) {
+        String body = "979" + String.format("%09d", 900_000_000L + i);
+        int sum = 0;
+        for (int d = 0; d < 12; d++) {
+            sum += (body.charAt(d) - '0') * (d % 2 == 0 ? 1 : 3);
+        }
+        return "979-" + body.substring(3) + (10 - sum % 10) % 10;
+    }
+
+    private List<Member> members() {
+        int days = options.years * 365;
+        List<Member> members = new ArrayList<>(options.members);
+        for (int i = 0; i < options.members; i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = SURNAMES[random.nextInt(SURNAMES.length)];
+            String email = (first + "." + last).toLowerCase() + "." + (i + 1) + "@members.example";
+            String phone = String.format("+1-555-%04d", random.nextInt(10_000));
+            LocalDate since = today.minusDays(random.nextInt(days + 365));
+            members.add(new Member(i + 1, first + " " + last, email, phone, since));
+        }
+        return members;
+    }
+
+    private List<Transaction> loans(List<Book> books, List<Member> members) {
+        int days = options.years * 365;
+        int total = (int) Math.min(Integer.MAX_VALUE - 8, (long) options.members * options.loansPerMemberYear * options.years);
+        int[] borrowOffsets = new int[total];
+        for (int i = 0; i < total; i++) {
+            borrowOffsets[i] = random.nextInt(days);
+        }
+        Arrays.sort(borrowOffsets);
+
+        ZipfSampler byTitle = new ZipfSampler(books.size(), options.zipf);
+        ZipfSampler byReader = new ZipfSampler(members.size(), 0.6);
+        int[] openByBook = new int[books.size()];
+        int[] openByMember = new int[members.size()];
+        int maxPerMember = new LibraryInfo().getMaxBooksPerStudent();
+        long todayDay = LibraryClock.today();
+        List<Transaction> loans = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            LocalDate borrowed = today.minusDays(borrowOffsets[i]);
+            LocalDate due = borrowed.plusDays(LOAN_DAYS);
+            LocalDate returned = random.nextDouble() < options.overdueRate
+                    ? due.plusDays(1 + geometric(7))
+                    : borrowed.plusDays(1 + random.nextInt(LOAN_DAYS));
+            int b = byTitle.sample(random);
+            int m = byReader.sample(random);
+            if (returned.isAfter(today)) {
+                if (openByBook[b] == books.get(b).getQuantity() || openByMember[m] == maxPerMember) {
+                    continue;
+                }
+                openByBook[b]++;
+                openByMember[m]++;
+                returned = null;
+            }
+            Transaction t = new Transaction(0, books.get(b), members.get(m), borrowed, due);
+            if (returned != null) {
+                t.setReturnDate(returned);
+                if (t.getFineCents(todayDay) > 0) t.setFinePaid(random.nextDouble() < 0.85);
+            }
+            if (members.get(m).getMemberSince().isAfter(borrowed)) {
+                members.get(m).setMemberSince(borrowed);
+            }
+            loans.add(t);
+        }
+        // Built newest first so recent loans claim copies first; ids run oldest first.
+        Collections.reverse(loans);
+        for (int i = 0; i < loans.size(); i++) {
+            loans.get(i).setId(i + 1);
+        }
+        for (int b = 0; b < books.size(); b++) {
+            books.get(b).setAvailableQuantity(books.get(b).getQuantity() - openByBook[b]);
+        }
+        shuffle(books);
+        for (int i = 0; i < books.size(); i++) {
+            books.get(i).setId(i + 1);
+        }
+        return loans;
+    }
+
+    private List<BookRequest> requests(List<String> authors, List<Member> members) {
+        String[] statuses = {"Pending", "Pending", "Approved", "Approved", "Rejected"};
+        List<BookRequest> requests = new ArrayList<>(options.requests);
+        for (int i = 0; i < options.requests && !members.isEmpty(); i++) {
+            Member member = members.get(random.nextInt(members.size()));
+            BookRequest r = new BookRequest(i + 1, member, title(), authors.get(random.nextInt(authors.size())),
+                    REASONS[random.nextInt(REASONS.length)]);
+            r.setRequestDate(today.minusDays(random.nextInt(365)));
+            r.setStatus(statuses[random.nextInt(statuses.length)]);
+            requests.add(r);
+        }
+        return requests;
+    }
+
+    private int weighted(double[] weights) {
+        double u = random.nextDouble();
+        for (int i = 0; i < weights.length - 1; i++) {
+            u -= weights[i];
+            if (u < 0) return i;
+        }
+        return weights.length - 1;
+    }
+
+    private int geometric(double mean) {
+        return (int) (Math.log(1 - random.nextDouble()) * -mean);
+    }
+
+    private <T> void shuffle(List<T> list) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            list.set(i, list.set(j, list.get(i)));
+        }
+    }
+
+    public static void main(String[] args) throws SQLException {
+        Options options = new Options();
+        String target = "memory";
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--books": options.books(Integer.parseInt(value)); break;
+                case "--members": options.members(Integer.parseInt(value)); break;
+                case "--years": options.years(Integer.parseInt(value)); break;
+                case "--loans-per-member-year": options.loansPerMemberYear(Integer.parseInt(value)); break;
+                case "--overdue-rate": options.overdueRate(Double.parseDouble(value)); break;
+                case "--requests": options.requests(Integer.parseInt(value)); break;
+                case "--zipf": options.zipf(Double.parseDouble(value)); break;
+                case "--seed": options.seed(Long.parseLong(value)); break;
+                case "--target": target = value; break;
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        long start = System.nanoTime();
+        Dataset data = new LibraryDataGenerator(options).generate();
+        System.out.printf("generated %,d books, %,d members, %,d loans, %,d requests in %,d ms%n",
+                data.getBooks().size(), data.getMembers().size(), data.getLoans().size(), data.getRequests().size(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        start = System.nanoTime();
+        if ("postgres".equals(target)) {
+            new SchemaMigrator(DBConnection.getPool()).migrate();
+            new BulkCopy(DBConnection.getPool()).insertAll(data.getBooks(), data.getMembers(), data.getLoans(), data.getRequests());
+            DBConnection.getPool().close();
+            System.out.printf("copied into %s in %,d ms%n", DBConnection.getConfig().getUrl(), (System.nanoTime() - start) / 1_000_000);
+        } else {
+            DataManager dm = DataManager.getInstance();
+            data.loadInto(dm);
+            System.out.printf("loaded in %,d ms: %,d open loans, %,d overdue, $%,.2f outstanding fines%n",
+                    (System.nanoTime() - start) / 1_000_000, dm.getActiveLoansCount(), dm.getOverdueCount(),
+                    dm.getTotalOutstandingFines());
+            printPopularity(data);
+        }
+    }
+
+    private static void printPopularity(Dataset data) {
+        Map<Book, Integer> loansByBook = new IdentityHashMap<>();
+        for (Transaction t : data.getLoans()) {
+            loansByBook.merge(t.getBook(), 1, Integer::sum);
+        }
+        int[] sorted = new int[data.getBooks().size()];
+        int n = 0;
+        for (int count : loansByBook.values()) {
+            sorted[n++] = count;
+        }
+        Arrays.sort(sorted);
+        long top = 0;
+        int topCount = Math.max(1, data.getBooks().size() / 100);
+        for (int i = 0; i < topCount; i++) {
+            top += sorted[sorted.length - 1 - i];
+        }
+        System.out.printf("top 1%% of titles account for %.1f%% of loans; most borrowed title: %,d loans%n",
+                100.0 * top / Math.max(1, data.getLoans().size()), sorted[sorted.length - 1]);
+    }
+
+    /** Generator settings. Unset values default to a mid-sized public library. */
+    public static class Options {
+        private int books = 10_000;
+        private int members = 1_000;
+        private int years = 3;
+        private int loansPerMemberYear = 12;
+        private double overdueRate = 0.08;
+        private int requests = 50;
+        private double zipf = 0.8;
+        private long seed = 42;
+
+        public Options books(int books) { this.books = books; return this; }
+        public Options members(int members) { this.members = members; return this; }
+        public Options years(int years) { this.years = Math.max(1, years); return this; }
+        public Options loansPerMemberYear(int loans) { this.loansPerMemberYear = loans; return this; }
+        public Options overdueRate(double rate) { this.overdueRate = rate; return this; }
+        public Options requests(int requests) { this.requests = requests; return this; }
+        public Options zipf(double exponent) { this.zipf = exponent; return this; }
+        public Options seed(long seed) { this.seed = seed; return this; }
+    }
+
+    /** A generated library. Ids run from 1 and are reassigned when it is loaded. */
+    public static class Dataset {
+        private final List<Book> books;
+        private final List<Member> members;
+        private final List<Transaction> loans;
+        private final List<BookRequest> requests;
+
+        Dataset(List<Book> books, List<Member> members, List<Transaction> loans, List<BookRequest> requests) {
+            this.books = books;
+            this.members = members;
+            this.loans = loans;
+            this.requests = requests;
+        }
+
+        public List<Book> getBooks() { return books; }
+        public List<Member> getMembers() { return members; }
+        public List<Transaction> getLoans() { return loans; }
+        public List<BookRequest> getRequests() { return requests; }
+
+        /** Adds everything to the DataManager after whatever it already holds. */
+        public void loadInto(DataManager dm) {
+            dm.importRecords(books, members, loans, requests);
+        }
+    }
+
+    // Samples ranks 0..n-1 with P(k) proportional to 1 / (k + 1)^s.
+    private static class ZipfSampler {
+        private final double[] cdf;
+
+        ZipfSampler(int n, double s) {
+            cdf = new double[Math.max(1, n)];
+            double sum = 0;
+            for (int k = 0; k < cdf.length; k++) {
+                sum += 1.0 / Math.pow(k + 1, s);
+                cdf[k] = sum;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            int i = Arrays.binarySearch(cdf, random.nextDouble() * cdf[cdf.length - 1]);
+            return Math.min(i >= 0 ? i : -i - 1, cdf.length - 1);
+        }
+    }
+}
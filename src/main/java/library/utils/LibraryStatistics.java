@@ -0,0 +1,123 @@
+package main.java.library.utils;
+
+import main.java.library.models.Transaction;
+
+import java.util.Collections;
+import java.util.List;
+
+// Running totals behind the Reports tab. Fines are kept in cents.
+class LibraryStatistics {
+    private final IntHashMap<Transaction> openLoans = new IntHashMap<>();
+    private long day = LibraryClock.today();
+    private OverdueIndex overdue = new OverdueIndex(day);
+    private List<Transaction> overdueById;
+    private long archivedFinesCollected;
+    private long settledFinesCollected;
+    private long settledFinesOutstanding;
+    private long openFinesCollected;
+    private long openFinesOutstanding;
+
+    synchronized void addLoan(Transaction t) {
+        rollOver();
+        if (t.isReturned()) {
+            long fine = t.getFineCents(day);
+            if (t.isFinePaid()) settledFinesCollected += fine;
+            else settledFinesOutstanding += fine;
+        } else {
+            openLoans.put(t.getId(), t);
+            if (overdue.add(t)) {
+                accumulateOverdue(t, 1);
+                overdueById = null;
+            }
+        }
+    }
+
+    synchronized void removeLoan(Transaction t) {
+        rollOver();
+        if (t.isReturned()) {
+            long fine = t.getFineCents(day);
+            if (t.isFinePaid()) settledFinesCollected -= fine;
+            else settledFinesOutstanding -= fine;
+        } else if (openLoans.remove(t.getId()) != null && overdue.remove(t)) {
+            accumulateOverdue(t, -1);
+            overdueById = null;
+        }
+    }
+
+    /** Fines already collected on loans that are not held in memory. */
+    synchronized void addArchivedFinesCollected(long cents) {
+        archivedFinesCollected += cents;
+    }
+
+    /** Recomputes every total, for example after the fine policy changed. */
+    synchronized void rebuild(Iterable<Transaction> loans) {
+        day = LibraryClock.today();
+        openLoans.clear();
+        overdue = new OverdueIndex(day);
+        overdueById = null;
+        settledFinesCollected = 0;
+        settledFinesOutstanding = 0;
+        openFinesCollected = 0;
+        openFinesOutstanding = 0;
+        for (Transaction t : loans) {
+            addLoan(t);
+        }
+    }
+
+    synchronized int getActiveLoans() {
+        return openLoans.size();
+    }
+
+    synchronized int getOverdueLoans() {
+        rollOver();
+        return overdue.size();
+    }
+
+    /** Open overdue loans ordered by id. The list is shared until the next change. */
+    synchronized List<Transaction> getOverdueTransactions() {
+        rollOver();
+        if (overdueById == null) {
+            overdueById = Collections.unmodifiableList(overdue.toListById());
+        }
+        return overdueById;
+    }
+
+    synchronized long getFinesCollectedCents() {
+        rollOver();
+        return archivedFinesCollected + settledFinesCollected + openFinesCollected;
+    }
+
+    synchronized long getArchivedFinesCollectedCents() {
+        return archivedFinesCollected;
+    }
+
+    synchronized long getFinesOutstandingCents() {
+        rollOver();
+        return settledFinesOutstanding + openFinesOutstanding;
+    }
+
+    // Only overdue loans carry a fine, so open fines are summed over the overdue set.
+    private void accumulateOverdue(Transaction t, int sign) {
+        long fine = t.getFineCents(day);
+        if (t.isFinePaid()) openFinesCollected += sign * fine;
+        else openFinesOutstanding += sign * fine;
+    }
+
+    /** Called by the daily overdue task; reads also roll over lazily. */
+    synchronized void refresh() {
+        rollOver();
+    }
+
+    // Once a day: flip newly due loans to overdue and re-accrue open fines for the
+    // new day. Only the overdue set is visited; loans that are not yet due owe nothing.
+    private void rollOver() {
+        long today = LibraryClock.today();
+        if (today == day) return;
+        day = today;
+        overdue.advance(today);
+        overdueById = null;
+        openFinesCollected = 0;
+        openFinesOutstanding = 0;
+        overdue.forEach(t -> accumulateOverdue(t, 1));
+    }
+}
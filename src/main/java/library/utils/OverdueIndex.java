@@ -0,0 +1,78 @@
+package main.java.library.utils;
+
+import main.java.library.models.Transaction;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Splits open loans into those not yet due and those overdue. Loans that are not
+ * yet due wait in a queue ordered by due date. {@link #advance(long)} moves every
+ * loan whose due day has passed into the overdue set, so the set can be read in
+ * O(overdue) without checking every loan against the clock. Removal from the queue
+ * is lazy: a returned loan stays queued until its due day and is then skipped.
+ */
+class OverdueIndex {
+    private static final Comparator<Transaction> BY_DUE_DATE =
+            Comparator.comparingLong(Transaction::getDueDay).thenComparingInt(Transaction::getId);
+
+    private final PriorityQueue<Transaction> queue = new PriorityQueue<>(BY_DUE_DATE);
+    private final IntHashMap<Transaction> pending = new IntHashMap<>();
+    private final IntHashMap<Transaction> overdue = new IntHashMap<>();
+    private long day;
+
+    OverdueIndex(long epochDay) {
+        this.day = epochDay;
+    }
+
+    /** Adds an open loan and returns true if it is already overdue. */
+    boolean add(Transaction t) {
+        if (t.getDueDay() < day) {
+            overdue.put(t.getId(), t);
+            return true;
+        }
+        pending.put(t.getId(), t);
+        queue.add(t);
+        return false;
+    }
+
+    /** Removes a loan and returns true if it was overdue. */
+    boolean remove(Transaction t) {
+        if (overdue.remove(t.getId()) != null) {
+            return true;
+        }
+        pending.remove(t.getId());
+        return false;
+    }
+
+    /** Flips every queued loan due before {@code epochDay} to overdue. */
+    void advance(long epochDay) {
+        day = epochDay;
+        Transaction head;
+        while ((head = queue.peek()) != null && head.getDueDay() < epochDay) {
+            queue.poll();
+            if (pending.get(head.getId()) == head) {
+                pending.remove(head.getId());
+                overdue.put(head.getId(), head);
+            }
+        }
+    }
+
+    int size() {
+        return overdue.size();
+    }
+
+    void forEach(Consumer<Transaction> action) {
+        overdue.forEachValue(action);
+    }
+
+    List<Transaction> toListById() {
+        List<Transaction> list = new ArrayList<>(overdue.size());
+        overdue.forEachValue(list::add);
+        list.sort(Comparator.comparingInt(Transaction::getId));
+        return list;
+    }
+}
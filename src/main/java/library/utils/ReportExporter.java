@@ -0,0 +1,382 @@
+package main.java.library.utils;
+
+import main.java.library.db.TransactionQuery;
+import main.java.library.models.Book;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Writes the staff report as plain text, CSV or JSON Lines. Rows stream through a
+ * 64 KB buffer onto a file channel, so memory stays flat however long the loan
+ * history is. The history is read a page at a time in id order, which works the
+ * same against the in-memory store and the database. Borrowed counts per member
+ * come from one pass over the open loans.
+ * <p>
+ * {@link #export} reports progress every few thousand rows. If the listener asks
+ * to stop, the partial file is deleted.
+ */
+public class ReportExporter {
+    public enum Format {
+        TEXT("Text report", "txt"),
+        CSV("CSV", "csv"),
+        JSON_LINES("JSON Lines", "jsonl");
+
+        private final String description;
+        private final String extension;
+
+        Format(String description, String extension) {
+            this.description = description;
+            this.extension = extension;
+        }
+
+        public String getDescription() { return description; }
+        public String getExtension() { return extension; }
+
+        /** The format a file name's extension asks for, or null when it names none. */
+        public static Format forFileName(String name) {
+            String lower = name.toLowerCase();
+            for (Format format : values()) {
+                if (lower.endsWith("." + format.extension)) return format;
+            }
+            return null;
+        }
+    }
+
+    /** Receives progress in percent. Returning false cancels the export. */
+    public interface Progress {
+        boolean update(int percent);
+    }
+
+    private static final int PAGE_SIZE = 10_000;
+    private static final int REPORT_EVERY = 4096;
+    private static final int BUFFER_CHARS = 1 << 16;
+
+    private final DataManager dataManager;
+    private final long today = LibraryClock.today();
+    private final IntHashMap<String> dates = new IntHashMap<>();
+    private Format format;
+    private Writer out;
+    private Progress progress;
+    private long done;
+    private long total;
+
+    public ReportExporter(DataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    /** Writes the report to {@code file}. Returns false if it was cancelled. */
+    public boolean export(Path file, Format format, Progress progress) throws IOException {
+        this.format = format;
+        this.progress = progress;
+        List<Book> books = dataManager.getBooks();
+        List<Member> members = dataManager.getMembers();
+        List<Transaction> open = new ArrayList<>();
+        IntHashMap<int[]> borrowed = new IntHashMap<>(members.size());
+        for (Transaction t : dataManager.getTransactions()) {
+            if (t.isReturned()) continue;
+            open.add(t);
+            int[] count = borrowed.get(t.getMember().getId());
+            if (count == null) borrowed.put(t.getMember().getId(), count = new int[1]);
+            count[0]++;
+        }
+        total = Math.max(1, (long) books.size() + members.size() + dataManager.getLastTransactionId());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_CHARS), BUFFER_CHARS)) {
+            out = writer;
+            writeSummary();
+            writeBooks(books);
+            writeMembers(members, borrowed);
+            if (format == Format.TEXT) {
+                writeOpenLoans(open);
+            }
+            writeHistory();
+            if (!progress.update(100)) throw new CancellationException();
+        } catch (CancellationException e) {
+            Files.deleteIfExists(file);
+            return false;
+        }
+        return true;
+    }
+
+    private void writeSummary() throws IOException {
+        ReportMetrics metrics = dataManager.computeReportMetrics();
+        long collected = metrics.getFinesCollectedCents();
+        long outstanding = metrics.getFinesOutstandingCents();
+        switch (format) {
+            case TEXT:
+                out.write("=== Library Report ===\nDate: ");
+                out.write(date(LibraryClock.todayDate()));
+                out.write("\n\nTotal Books: " + metrics.getTotalBooks());
+                out.write("\nTotal Members: " + metrics.getTotalMembers());
+                out.write("\nActive Loans: " + metrics.getActiveLoans());
+                out.write("\nOverdue Books: " + metrics.getOverdueLoans());
+                out.write("\nTotal Fines Collected: $");
+                money(collected);
+                out.write("\nOutstanding Fines: $");
+                money(outstanding);
+                out.write('\n');
+                break;
+            case CSV:
+                out.write("metric,value\n");
+                out.write("date," + date(LibraryClock.todayDate()) + "\n");
+                out.write("total_books," + metrics.getTotalBooks() + "\n");
+                out.write("total_members," + metrics.getTotalMembers() + "\n");
+                out.write("active_loans," + metrics.getActiveLoans() + "\n");
+                out.write("overdue_loans," + metrics.getOverdueLoans() + "\n");
+                out.write("fines_collected,");
+                money(collected);
+                out.write("\nfines_outstanding,");
+                money(outstanding);
+                out.write('\n');
+                break;
+            case JSON_LINES:
+                out.write("{\"type\":\"summary\",\"date\":\"" + date(LibraryClock.todayDate()) + "\"");
+                out.write(",\"totalBooks\":" + metrics.getTotalBooks());
+                out.write(",\"totalMembers\":" + metrics.getTotalMembers());
+                out.write(",\"activeLoans\":" + metrics.getActiveLoans());
+                out.write(",\"overdueLoans\":" + metrics.getOverdueLoans());
+                out.write(",\"finesCollected\":");
+                money(collected);
+                out.write(",\"finesOutstanding\":");
+                money(outstanding);
+                out.write("}\n");
+                break;
+        }
+    }
+
+    private void writeBooks(List<Book> books) throws IOException {
+        if (format == Format.TEXT) out.write("\n=== Books ===\n");
+        if (format == Format.CSV) out.write("\nid,title,author,isbn,section,genre,shelf,quantity,available\n");
+        for (Book b : books) {
+            switch (format) {
+                case TEXT:
+                    out.write("  " + b.getId() + ". ");
+                    out.write(b.getTitle() + " by " + b.getAuthor() + " [" + b.getGenre() + "] - " + b.getSection());
+                    out.write(", Shelf " + b.getShelf() + " (Qty: " + b.getQuantity() + ", Available: " + b.getAvailableQuantity() + ")\n");
+                    break;
+                case CSV:
+                    out.write(Integer.toString(b.getId()));
+                    csv(b.getTitle());
+                    csv(b.getAuthor());
+                    csv(b.getIsbn());
+                    csv(b.getSection());
+                    csv(b.getGenre());
+                    csv(b.getShelf());
+                    out.write("," + b.getQuantity() + "," + b.getAvailableQuantity() + "\n");
+                    break;
+                case JSON_LINES:
+                    out.write("{\"type\":\"book\",\"id\":" + b.getId());
+                    json("title", b.getTitle());
+                    json("author", b.getAuthor());
+                    json("isbn", b.getIsbn());
+                    json("section", b.getSection());
+                    json("genre", b.getGenre());
+                    json("shelf", b.getShelf());
+                    out.write(",\"quantity\":" + b.getQuantity() + ",\"available\":" + b.getAvailableQuantity() + "}\n");
+                    break;
+            }
+            row(1);
+        }
+    }
+
+    private void writeMembers(List<Member> members, IntHashMap<int[]> borrowed) throws IOException {
+        if (format == Format.TEXT) out.write("\n=== Members ===\n");
+        if (format == Format.CSV) out.write("\nid,name,email,phone,member_since,borrowed\n");
+        for (Member m : members) {
+            int[] count = borrowed.get(m.getId());
+            int n = count != null ? count[0] : 0;
+            switch (format) {
+                case TEXT:
+                    out.write("  " + m.getId() + ". " + m.getName() + " (" + m.getEmail() + ") - Borrowed: " + n + "\n");
+                    break;
+                case CSV:
+                    out.write(Integer.toString(m.getId()));
+                    csv(m.getName());
+                    csv(m.getEmail());
+                    csv(m.getPhone());
+                    out.write("," + date(m.getMemberSince()) + "," + n + "\n");
+                    break;
+                case JSON_LINES:
+                    out.write("{\"type\":\"member\",\"id\":" + m.getId());
+                    json("name", m.getName());
+                    json("email", m.getEmail());
+                    json("phone", m.getPhone());
+                    json("memberSince", m.getMemberSince() != null ? date(m.getMemberSince()) : null);
+                    out.write(",\"borrowed\":" + n + "}\n");
+                    break;
+            }
+            row(1);
+        }
+    }
+
+    // The text report keeps its open and overdue sections ahead of the full history.
+    private void writeOpenLoans(List<Transaction> open) throws IOException {
+        out.write("\n=== Active Transactions ===\n");
+        for (Transaction t : open) {
+            out.write("  " + t.getId() + ". " + t.getBook().getTitle() + " -> " + t.getMember().getName());
+            out.write(" (Due: " + date(t.getDueDate()) + ")\n");
+        }
+        out.write("\n=== Overdue Transactions ===\n");
+        for (Transaction t : dataManager.getOverdueTransactions()) {
+            out.write("  " + t.getId() + ". " + t.getBook().getTitle() + " -> " + t.getMember().getName());
+            out.write(" (Due: " + date(t.getDueDate()) + ", Fine: $");
+            money(t.getFineCents(today));
+            out.write(")\n");
+        }
+    }
+
+    private void writeHistory() throws IOException {
+        if (format == Format.TEXT) out.write("\n=== Loan History ===\n");
+        if (format == Format.CSV) out.write("\nid,book_id,title,member_id,member,borrowed,due,returned,status,fine,fine_paid\n");
+        TransactionQuery all = TransactionQuery.all();
+        long base = done;
+        int afterId = 0;
+        while (true) {
+            List<Transaction> page = dataManager.getTransactionsPage(all, afterId, PAGE_SIZE);
+            for (Transaction t : page) {
+                writeLoan(t);
+            }
+            if (page.isEmpty()) break;
+            afterId = page.get(page.size() - 1).getId();
+            row(base + afterId - done);
+            if (page.size() < PAGE_SIZE) break;
+        }
+    }
+
+    private void writeLoan(Transaction t) throws IOException {
+        long fine = t.getFineCents(today);
+        String returned = t.isReturned() ? date(t.getReturnDate()) : null;
+        switch (format) {
+            case TEXT:
+                out.write("  " + t.getId() + ". " + t.getBook().getTitle() + " -> " + t.getMember().getName());
+                out.write(" (Borrowed: " + date(t.getBorrowDate()) + ", Due: " + date(t.getDueDate()));
+                out.write(", Returned: " + (returned != null ? returned : "-") + ", " + t.getStatus());
+                if (fine > 0) {
+                    out.write(", Fine: $");
+                    money(fine);
+                    out.write(t.isFinePaid() ? " paid" : " unpaid");
+                }
+                out.write(")\n");
+                break;
+            case CSV:
+                out.write(t.getId() + "," + t.getBook().getId());
+                csv(t.getBook().getTitle());
+                out.write("," + t.getMember().getId());
+                csv(t.getMember().getName());
+                out.write("," + date(t.getBorrowDate()) + "," + date(t.getDueDate()) + "," + (returned != null ? returned : ""));
+                out.write("," + t.getStatus() + ",");
+                money(fine);
+                out.write(t.isFinePaid() ? ",true\n" : ",false\n");
+                break;
+            case JSON_LINES:
+                out.write("{\"type\":\"loan\",\"id\":" + t.getId() + ",\"bookId\":" + t.getBook().getId());
+                json("title", t.getBook().getTitle());
+                out.write(",\"memberId\":" + t.getMember().getId());
+                json("member", t.getMember().getName());
+                json("borrowed", date(t.getBorrowDate()));
+                json("due", date(t.getDueDate()));
+                json("returned", returned);
+                json("status", t.getStatus().toString());
+                out.write(",\"fine\":");
+                money(fine);
+                out.write(t.isFinePaid() ? ",\"finePaid\":true}\n" : ",\"finePaid\":false}\n");
+                break;
+        }
+    }
+
+    // Counts rows and, every few thousand, reports progress and checks for a cancel.
+    private void row(long rows) {
+        long before = done;
+        done += rows;
+        if (before / REPORT_EVERY != done / REPORT_EVERY && !progress.update((int) Math.min(99, done * 100 / total))) {
+            throw new CancellationException();
+        }
+    }
+
+    // Loans share few distinct dates, so each is formatted once.
+    private String date(LocalDate date) {
+        if (date == null) return "";
+        int day = (int) date.toEpochDay();
+        String text = dates.get(day);
+        if (text == null) {
+            text = date.toString();
+            dates.put(day, text);
+        }
+        return text;
+    }
+
+    private void money(long cents) throws IOException {
+        if (cents < 0) {
+            out.write('-');
+            cents = -cents;
+        }
+        out.write(Long.toString(cents / 100));
+        out.write('.');
+        long fraction = cents % 100;
+        if (fraction < 10) out.write('0');
+        out.write(Long.toString(fraction));
+    }
+
+    private void csv(String value) throws IOException {
+        out.write(',');
+        if (value == null) return;
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private void json(String name, String value) throws IOException {
+        out.write(",\"");
+        out.write(name);
+        out.write("\":");
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        int plain = 0;
+        while (plain < value.length() && value.charAt(plain) >= 0x20 && value.charAt(plain) != '"' && value.charAt(plain) != '\\') {
+            plain++;
+        }
+        out.write(value, 0, plain);
+        for (int i = plain; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) out.write(String.format("\\u%04x", (int) c));
+                    else out.write(c);
+            }
+        }
+        out.write('"');
+    }
+}
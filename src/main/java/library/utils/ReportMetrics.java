@@ -0,0 +1,150 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import main.java.library.models.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Every Reports-tab figure, computed from scratch in one pass over the books and
+ * the loans. The two lists are treated as one range of indexes, books first, and
+ * split in half on a {@link ForkJoinPool} until a piece is under
+ * {@link #SEQUENTIAL_THRESHOLD} elements. Each piece is summed into its own
+ * partial result, and the partial results are merged on the way back up. Below
+ * the threshold the whole pass runs on the calling thread and the pool is never used.
+ * <p>
+ * The lists must not change during the pass. The snapshots from {@link DataManager}
+ * do not, and they index in constant time.
+ */
+public class ReportMetrics {
+    static final int SEQUENTIAL_THRESHOLD = 1 << 15;
+
+    private final int totalBooks;
+    private final int totalMembers;
+    private final long totalCopies;
+    private final long availableCopies;
+    private final List<String> genres;
+    private final int activeLoans;
+    private final int overdueLoans;
+    private final long finesCollectedCents;
+    private final long finesOutstandingCents;
+
+    private ReportMetrics(int totalBooks, int totalMembers, Partial p, long archivedFinesCollected) {
+        this.totalBooks = totalBooks;
+        this.totalMembers = totalMembers;
+        this.totalCopies = p.copies;
+        this.availableCopies = p.available;
+        List<String> sorted = new ArrayList<>(p.genres);
+        Collections.sort(sorted);
+        this.genres = Collections.unmodifiableList(sorted);
+        this.activeLoans = p.active;
+        this.overdueLoans = p.overdue;
+        this.finesCollectedCents = archivedFinesCollected + p.collected;
+        this.finesOutstandingCents = p.outstanding;
+    }
+
+    /**
+     * Computes the figures as of {@code today} (an epoch day). Fines collected on
+     * loans that are not in {@code loans}, such as closed loans left in the
+     * database, are passed in as {@code archivedFinesCollected}.
+     */
+    public static ReportMetrics compute(List<Book> books, int totalMembers, List<Transaction> loans,
+                                        long today, long archivedFinesCollected, ForkJoinPool pool) {
+        Pass pass = new Pass(books, loans, today, 0, books.size() + loans.size());
+        Partial result = pass.end - pass.start <= SEQUENTIAL_THRESHOLD ? pass.compute() : pool.invoke(pass);
+        return new ReportMetrics(books.size(), totalMembers, result, archivedFinesCollected);
+    }
+
+    public int getTotalBooks() { return totalBooks; }
+    public int getTotalMembers() { return totalMembers; }
+    public long getTotalCopies() { return totalCopies; }
+    public long getAvailableCopies() { return availableCopies; }
+    /** Distinct genres, sorted. */
+    public List<String> getGenres() { return genres; }
+    public int getActiveLoans() { return activeLoans; }
+    public int getOverdueLoans() { return overdueLoans; }
+    public long getFinesCollectedCents() { return finesCollectedCents; }
+    public long getFinesOutstandingCents() { return finesOutstandingCents; }
+
+    private static class Partial {
+        long copies;
+        long available;
+        Set<String> genres = new HashSet<>();
+        int active;
+        int overdue;
+        long collected;
+        long outstanding;
+
+        Partial merge(Partial other) {
+            copies += other.copies;
+            available += other.available;
+            if (other.genres.size() > genres.size()) {
+                Set<String> smaller = genres;
+                genres = other.genres;
+                genres.addAll(smaller);
+            } else {
+                genres.addAll(other.genres);
+            }
+            active += other.active;
+            overdue += other.overdue;
+            collected += other.collected;
+            outstanding += other.outstanding;
+            return this;
+        }
+    }
+
+    private static class Pass extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Book> books;
+        private final List<Transaction> loans;
+        private final long today;
+        private final int start;
+        private final int end;
+
+        Pass(List<Book> books, List<Transaction> loans, long today, int start, int end) {
+            this.books = books;
+            this.loans = loans;
+            this.today = today;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (end - start > SEQUENTIAL_THRESHOLD && getPool() != null) {
+                int middle = (start + end) >>> 1;
+                Pass left = new Pass(books, loans, today, start, middle);
+                left.fork();
+                Partial right = new Pass(books, loans, today, middle, end).compute();
+                return left.join().merge(right);
+            }
+            Partial p = new Partial();
+            int bookCount = books.size();
+            for (int i = start; i < Math.min(end, bookCount); i++) {
+                Book b = books.get(i);
+                p.copies += b.getQuantity();
+                p.available += b.getAvailableQuantity();
+                if (b.getGenre() != null) p.genres.add(b.getGenre());
+            }
+            for (int i = Math.max(start, bookCount) - bookCount; i < end - bookCount; i++) {
+                Transaction t = loans.get(i);
+                if (!t.isReturned()) {
+                    p.active++;
+                    if (!t.isOverdue(today)) continue;
+                    p.overdue++;
+                }
+                long fine = t.getFineCents(today);
+                if (t.isFinePaid()) p.collected += fine;
+                else p.outstanding += fine;
+            }
+            return p;
+        }
+    }
+}
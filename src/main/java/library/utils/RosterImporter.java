@@ -0,0 +1,143 @@
+package main.java.library.utils;
+
+import main.java.library.models.Member;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Adds and updates members in bulk from a roster, such as a semester's student
+ * list exported from the registrar, and optionally removes members who are no
+ * longer on it. The roster is a CSV file with a header row naming a
+ * {@code name} and an {@code email} column, and optionally {@code phone}, in
+ * any order and any case. Without a phone column, phone numbers are left as they
+ * are. Other columns are ignored.
+ * <p>
+ * Members are matched by email. The file is read as a {@link CsvFile}, one chunk
+ * at a time, and each row is checked as it is read. A row without a name, with
+ * no valid email, or with an email already used on an earlier row is rejected
+ * with its row number. The valid rows go to {@link DataManager#syncMembers},
+ * which makes the changes in one pass against its email index. The
+ * {@link Result} gives the counts for a single summary.
+ */
+public class RosterImporter {
+    /** Reports progress; returning false cancels the import before any member is changed. */
+    public interface Progress {
+        boolean update(int percent);
+    }
+
+    /** What a roster sync changed. */
+    public static class Changes {
+        final List<Member> added = new ArrayList<>();
+        final List<Member> updated = new ArrayList<>();
+        final List<Member> removed = new ArrayList<>();
+        final List<Member> kept = new ArrayList<>();
+
+        public List<Member> getAdded() { return added; }
+        public List<Member> getUpdated() { return updated; }
+        public List<Member> getRemoved() { return removed; }
+        /**
+         * Members not on the roster that stayed: those with books out, fines unpaid
+         * or a request pending, the signed-in member, and with a database anyone
+         * whose loans or requests are on record.
+         */
+        public List<Member> getKept() { return kept; }
+    }
+
+    public static class Result {
+        private final int rows;
+        private final Changes changes;
+        private final List<CatalogueImporter.Problem> problems;
+
+        Result(int rows, Changes changes, List<CatalogueImporter.Problem> problems) {
+            this.rows = rows;
+            this.changes = changes;
+            this.problems = problems;
+        }
+
+        /** Data rows in the file, not counting the header or blank lines. */
+        public int getRows() { return rows; }
+        /** The changes made, or null if the import was cancelled. */
+        public Changes getChanges() { return changes; }
+        /** Rejected rows, in file order. */
+        public List<CatalogueImporter.Problem> getProblems() { return problems; }
+        public boolean isCancelled() { return changes == null; }
+    }
+
+    private static final int NAME = 0, EMAIL = 1, PHONE = 2;
+
+    private final DataManager dataManager;
+
+    public RosterImporter(DataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    /**
+     * Reads the roster and applies it. Throws {@link IOException} if the file cannot
+     * be read, its header lacks a name or email column, or no row is valid, so an
+     * empty or mangled file never removes anyone.
+     */
+    public Result importFile(Path file, boolean removeMissing, Progress progress) throws IOException {
+        CsvFile csv = new CsvFile(file);
+        int[] columns = csv.columns("name", "email", "phone");
+        if (columns[NAME] < 0 || columns[EMAIL] < 0) {
+            throw new IOException("The first row must name the columns, including name and email");
+        }
+
+        int rows = 0;
+        List<Member> roster = new ArrayList<>();
+        List<CatalogueImporter.Problem> problems = new ArrayList<>();
+        Map<String, Integer> firstRowByEmail = new HashMap<>();
+        List<String> fields = new ArrayList<>();
+        List<CsvFile.Chunk> chunks = csv.chunks();
+        for (int c = 0; c < chunks.size(); c++) {
+            CsvFile.RowReader reader = csv.rows(chunks.get(c));
+            while (reader.next(fields)) {
+                int row = reader.row();
+                if (fields.size() == 1 && fields.get(0).isEmpty()) continue;
+                rows++;
+                String name = field(fields, columns[NAME]);
+                String email = field(fields, columns[EMAIL]);
+                if (name.isEmpty()) {
+                    problems.add(new CatalogueImporter.Problem(row, "Name is required"));
+                } else if (!validEmail(email)) {
+                    problems.add(new CatalogueImporter.Problem(row, email.isEmpty() ? "Email is required" : "Invalid email " + email));
+                } else {
+                    Integer first = firstRowByEmail.putIfAbsent(email.toLowerCase(Locale.ROOT), row);
+                    if (first != null) {
+                        problems.add(new CatalogueImporter.Problem(row, "Duplicate email " + email + ", first seen on row " + first));
+                    } else {
+                        String phone = columns[PHONE] < 0 ? null : field(fields, columns[PHONE]);
+                        roster.add(new Member(0, name, email, phone, LibraryClock.todayDate()));
+                    }
+                }
+            }
+            if (!progress.update(90 * (c + 1) / chunks.size())) {
+                return new Result(rows, null, problems);
+            }
+        }
+        if (roster.isEmpty()) throw new IOException("The roster has no valid rows");
+        if (!progress.update(90)) return new Result(rows, null, problems);
+
+        Changes changes = dataManager.syncMembers(roster, removeMissing);
+        progress.update(100);
+        return new Result(rows, changes, problems);
+    }
+
+    // Short rows read as blank in the missing columns, so they are rejected for what they lack.
+    private static String field(List<String> fields, int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column).trim() : "";
+    }
+
+    // Something on each side of a single @, and a dot in the domain.
+    private static boolean validEmail(String email) {
+        int at = email.indexOf('@');
+        return at > 0 && at == email.lastIndexOf('@') && email.indexOf('.', at) > at + 1
+                && !email.endsWith(".") && email.indexOf(' ') < 0;
+    }
+}
@@ -0,0 +1,23 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+
+import java.util.List;
+
+/** One page of ranked search results, with the number of books that matched in all. */
+public class SearchResults {
+    private final List<Book> books;
+    private final int total;
+    private final int offset;
+
+    SearchResults(List<Book> books, int total, int offset) {
+        this.books = books;
+        this.total = total;
+        this.offset = offset;
+    }
+
+    public List<Book> getBooks() { return books; }
+    public int getTotal() { return total; }
+    /** The rank of the first book on this page, counting from 0. */
+    public int getOffset() { return offset; }
+}
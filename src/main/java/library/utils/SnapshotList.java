@@ -0,0 +1,172 @@
+package main.java.library.utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A growable list that hands out immutable snapshots without copying.
+ * <p>
+ * Elements live in fixed-size chunks. A snapshot shares the current chunks. Every
+ * snapshot starts a new version, and a chunk written in an older version is cloned
+ * before it is changed again. An append therefore copies at most one chunk and the
+ * chunk directory, and only the first time after a snapshot. Taking a snapshot is
+ * O(1), and repeated calls with no change in between return the same object.
+ * <p>
+ * All methods are synchronized. The owner mutates under its own locks, and readers
+ * only hold the monitor long enough to grab a snapshot.
+ */
+class SnapshotList<T> {
+    private static final int SHIFT = 8;
+    private static final int CHUNK = 1 << SHIFT;
+    private static final int MASK = CHUNK - 1;
+
+    private Object[][] chunks = new Object[0][];
+    private int[] chunkVersions = new int[0];
+    private int directoryVersion;
+    private int version;
+    private int size;
+    private Snapshot<T> snapshot;
+
+    synchronized List<T> snapshot() {
+        if (snapshot == null) {
+            snapshot = new Snapshot<>(chunks, size);
+            version++;
+        }
+        return snapshot;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized T get(int index) {
+        checkIndex(index, size);
+        return (T) chunks[index >>> SHIFT][index & MASK];
+    }
+
+    synchronized void add(T element) {
+        if (size == chunks.length * CHUNK) {
+            int capacity = Math.max(4, chunks.length * 2);
+            chunks = Arrays.copyOf(chunks, capacity);
+            chunkVersions = Arrays.copyOf(chunkVersions, capacity);
+            directoryVersion = version;
+        }
+        int c = size >>> SHIFT;
+        if (chunks[c] == null) {
+            writableDirectory();
+            chunks[c] = new Object[CHUNK];
+            chunkVersions[c] = version;
+        }
+        writableChunk(c)[size & MASK] = element;
+        size++;
+        snapshot = null;
+    }
+
+    synchronized void set(int index, T element) {
+        checkIndex(index, size);
+        writableChunk(index >>> SHIFT)[index & MASK] = element;
+        snapshot = null;
+    }
+
+    synchronized int indexOf(Object element) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(element, chunks[i >>> SHIFT][i & MASK])) return i;
+        }
+        return -1;
+    }
+
+    synchronized boolean remove(Object element) {
+        int index = indexOf(element);
+        if (index < 0) return false;
+        for (int i = index; i < size - 1; i++) {
+            int next = i + 1;
+            writableChunk(i >>> SHIFT)[i & MASK] = chunks[next >>> SHIFT][next & MASK];
+        }
+        size--;
+        writableChunk(size >>> SHIFT)[size & MASK] = null;
+        snapshot = null;
+        return true;
+    }
+
+    /** Removes every matching element in one pass, keeping the others in order. Returns how many were removed. */
+    @SuppressWarnings("unchecked")
+    synchronized int removeIf(Predicate<? super T> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            T element = (T) chunks[i >>> SHIFT][i & MASK];
+            if (filter.test(element)) continue;
+            if (kept != i) writableChunk(kept >>> SHIFT)[kept & MASK] = element;
+            kept++;
+        }
+        int removed = size - kept;
+        for (int i = kept; i < size; i++) {
+            writableChunk(i >>> SHIFT)[i & MASK] = null;
+        }
+        size = kept;
+        if (removed > 0) snapshot = null;
+        return removed;
+    }
+
+    private void writableDirectory() {
+        if (directoryVersion != version) {
+            chunks = chunks.clone();
+            chunkVersions = chunkVersions.clone();
+            directoryVersion = version;
+        }
+    }
+
+    private Object[] writableChunk(int c) {
+        if (chunkVersions[c] != version) {
+            writableDirectory();
+            chunks[c] = chunks[c].clone();
+            chunkVersions[c] = version;
+        }
+        return chunks[c];
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private static final class Snapshot<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[][] chunks;
+        private final int size;
+
+        Snapshot(Object[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            checkIndex(index, size);
+            return (T) chunks[index >>> SHIFT][index & MASK];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEach(Consumer<? super T> action) {
+            for (int i = 0; i < size; i++) {
+                action.accept((T) chunks[i >>> SHIFT][i & MASK]);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package main.java.library.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot files of the whole library state, named after the journal position
+ * they cover. A snapshot is written to a temporary file, forced to disk and then
+ * renamed, so a crash mid-write leaves the previous snapshot in place. The newest
+ * {@link #KEEP} are kept. If the newest one is damaged, recovery falls back to the
+ * one before it, which still has the journal behind it.
+ * <p>
+ * File layout: int magic, int version, long journal position, int state length,
+ * the state bytes, then an int CRC32 of the state.
+ */
+class SnapshotStore {
+    static final int KEEP = 2;
+    private static final int MAGIC = 0x4C494253;
+    private static final int VERSION = 1;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    static class Snapshot {
+        final long lsn;
+        final ByteBuffer state;
+
+        Snapshot(long lsn, ByteBuffer state) {
+            this.lsn = lsn;
+            this.state = state;
+        }
+    }
+
+    private final Path dir;
+
+    SnapshotStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    /** The newest snapshot that reads back intact, or null when there is none. */
+    Snapshot readLatest() throws IOException {
+        for (Path file : snapshotFiles()) {
+            Snapshot snapshot = read(file);
+            if (snapshot != null) return snapshot;
+            System.out.println("Skipping damaged snapshot " + file.getFileName());
+        }
+        return null;
+    }
+
+    private Snapshot read(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (in.remaining() < 24 || in.getInt() != MAGIC || in.getInt() != VERSION) return null;
+            long lsn = in.getLong();
+            int length = in.getInt();
+            if (length < 0 || length != in.remaining() - 4) return null;
+            ByteBuffer state = in.slice(in.position(), length);
+            CRC32 crc = new CRC32();
+            crc.update(state.duplicate());
+            if ((int) crc.getValue() != in.getInt(in.position() + length)) return null;
+            return new Snapshot(lsn, state);
+        }
+    }
+
+    /**
+     * Writes a snapshot of {@code state} covering the journal up to {@code lsn} and
+     * drops the older ones. Returns the position of the oldest snapshot kept, from
+     * which the journal is still needed.
+     */
+    long write(long lsn, ByteBuffer state) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(state.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(20).putInt(MAGIC).putInt(VERSION).putLong(lsn).putInt(state.remaining()).flip();
+        ByteBuffer trailer = ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip();
+        Path temp = dir.resolve(PREFIX + "tmp" + SUFFIX);
+        try (FileChannel ch = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] parts = {header, state.duplicate(), trailer};
+            while (trailer.hasRemaining()) {
+                ch.write(parts);
+            }
+            ch.force(true);
+        }
+        Files.move(temp, dir.resolve(String.format(PREFIX + "%020d" + SUFFIX, lsn)), StandardCopyOption.ATOMIC_MOVE);
+
+        List<Path> files = snapshotFiles();
+        for (int i = KEEP; i < files.size(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+        return lsnOf(files.get(Math.min(KEEP, files.size()) - 1));
+    }
+
+    // Newest first.
+    private List<Path> snapshotFiles() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX) && !name.equals(PREFIX + "tmp" + SUFFIX);
+            }).collect(Collectors.toCollection(ArrayList::new));
+        }
+        files.sort(Comparator.comparingLong(SnapshotStore::lsnOf).reversed());
+        return files;
+    }
+
+    private static long lsnOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -1,8 +1,26 @@
 package main.java.library.utils;
 
+import main.java.library.db.SchemaMigrator;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
 public class TestDB {
     public static void main(String [] args) {
-        DBConnection.getConnection();
-
+        boolean ok = false;
+        try {
+            try (Connection con = DBConnection.getConnection()) {
+                System.out.println("Connected to " + con.getMetaData().getURL());
+            }
+            System.out.println("Applied " + new SchemaMigrator(DBConnection.getPool()).migrate() + " migrations");
+            ok = true;
+        } catch (SQLException e) {
+            System.out.println("Connection Failed!");
+            e.printStackTrace();
+        }
+        DBConnection.getPool().close();
+        if (!ok) {
+            System.exit(1);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,159 @@
+package main.java.library.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionPoolTest {
+    private static final long NEVER = Long.MAX_VALUE / 2_000_000;
+
+    @Test
+    void reusesConnectionsAndCachesStatements() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(StandInDatabase.config(2, NEVER))) {
+            Connection physical;
+            PreparedStatement statement;
+            try (Connection con = pool.getConnection(); PreparedStatement ps = con.prepareStatement("SELECT 1")) {
+                physical = con.unwrap(Connection.class);
+                statement = ps.unwrap(PreparedStatement.class);
+            }
+            try (Connection con = pool.getConnection(); PreparedStatement ps = con.prepareStatement("SELECT 1")) {
+                assertSame(physical, con.unwrap(Connection.class));
+                assertSame(statement, ps.unwrap(PreparedStatement.class));
+            }
+        }
+    }
+
+    @Test
+    void returnedHandleCannotBeUsed() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(StandInDatabase.config(1, NEVER))) {
+            Connection con = pool.getConnection();
+            con.close();
+            assertTrue(con.isClosed());
+            assertThrows(SQLException.class, con::createStatement);
+        }
+    }
+
+    @Test
+    void timesOutWhenEveryConnectionIsOut() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(StandInDatabase.config(1, NEVER));
+             Connection held = pool.getConnection()) {
+            long start = System.nanoTime();
+            assertThrows(SQLException.class, pool::getConnection);
+            assertTrue(System.nanoTime() - start >= 150_000_000L, "waited for the connect timeout");
+            assertFalse(held.isClosed());
+        }
+    }
+
+    @Test
+    void rollsBackWorkLeftOpenOnReturn() throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(StandInDatabase.config(1, NEVER))) {
+            StandInDatabase.createSchema(pool);
+            try (Connection con = pool.getConnection(); Statement st = con.createStatement()) {
+                con.setAutoCommit(false);
+                st.executeUpdate("INSERT INTO members (name) VALUES ('Uncommitted')");
+            }
+            try (Connection con = pool.getConnection(); Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM members")) {
+                assertTrue(con.getAutoCommit());
+                rs.next();
+                assertEquals(0, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void validatesConnectionsThatSatIdle() throws SQLException {
+        DBConfig config = StandInDatabase.config(2, 0);
+        try (ConnectionPool pool = new ConnectionPool(config)) {
+            Connection dead = killIdleConnection(pool, config);
+            try (Connection con = pool.getConnection()) {
+                assertNotSame(dead, con.unwrap(Connection.class));
+                assertEquals(1, selectOne(con));
+            }
+        }
+    }
+
+    @Test
+    void checksAConnectionOnlyAfterItFails() throws SQLException {
+        DBConfig config = StandInDatabase.config(2, NEVER);
+        try (ConnectionPool pool = new ConnectionPool(config)) {
+            Connection dead = killIdleConnection(pool, config);
+            // Recently used, so it is handed out without a round trip, and the first call finds it dead.
+            try (Connection con = pool.getConnection()) {
+                assertSame(dead, con.unwrap(Connection.class));
+                assertThrows(SQLException.class, () -> selectOne(con));
+            }
+            try (Connection con = pool.getConnection()) {
+                assertNotSame(dead, con.unwrap(Connection.class));
+                assertEquals(1, selectOne(con));
+            }
+        }
+    }
+
+    @Test
+    void wakesAWaiterWhenAConnectionIsDiscarded() throws Exception {
+        DBConfig config = StandInDatabase.config(1, NEVER);
+        try (ConnectionPool pool = new ConnectionPool(config)) {
+            Connection dead = pool.getConnection();
+            abortSession(sessionId(dead), config);
+            assertThrows(SQLException.class, () -> selectOne(dead));
+            CompletableFuture<Integer> waiter = CompletableFuture.supplyAsync(() -> {
+                try (Connection con = pool.getConnection()) {
+                    return selectOne(con);
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            });
+            Thread.sleep(50);
+            dead.close();
+            assertEquals(1, waiter.get());
+        }
+    }
+
+    // Returns a connection to the pool and then has the database close its session.
+    private static Connection killIdleConnection(ConnectionPool pool, DBConfig config) throws SQLException {
+        Connection physical;
+        int session;
+        try (Connection con = pool.getConnection()) {
+            session = sessionId(con);
+            physical = con.unwrap(Connection.class);
+        }
+        abortSession(session, config);
+        return physical;
+    }
+
+    private static int sessionId(Connection con) throws SQLException {
+        try (Statement st = con.createStatement(); ResultSet rs = st.executeQuery("SELECT SESSION_ID()")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void abortSession(int session, DBConfig config) throws SQLException {
+        try (Connection admin = DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword());
+             Statement st = admin.createStatement()) {
+            st.execute("CALL ABORT_SESSION(" + session + ")");
+        }
+    }
+
+    private static int selectOne(Connection con) throws SQLException {
+        try (Statement st = con.createStatement(); ResultSet rs = st.executeQuery("SELECT 1")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
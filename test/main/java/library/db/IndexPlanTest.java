@@ -0,0 +1,86 @@
+package main.java.library.db;
+
+import main.java.library.utils.LibraryClock;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks on a real PostgreSQL that every hot query is planned on the index the
+ * migrations add for it. Runs only when {@code library.db.url} is set, and
+ * migrates that database first:
+ * {@code mvn test -Dtest=IndexPlanTest -Dlibrary.db.url=jdbc:postgresql://localhost:5432/library_db}.
+ */
+class IndexPlanTest {
+    private static ConnectionPool pool;
+    private static LibraryRepository repository;
+
+    @BeforeAll
+    static void migrate() throws SQLException {
+        assumeTrue(DBConfig.setting("library.db.url", null) != null, "library.db.url is not set");
+        DBConfig config = DBConfig.fromEnvironment();
+        pool = new ConnectionPool(config);
+        try (Connection ignored = pool.getConnection()) {
+            // reachable
+        } catch (SQLException e) {
+            assumeTrue(false, "no database at " + config.getUrl() + ": " + e.getMessage());
+        }
+        new SchemaMigrator(pool).migrate();
+        repository = new LibraryRepository(pool, config.getFetchSize());
+    }
+
+    @AfterAll
+    static void closePool() {
+        if (pool != null) pool.close();
+    }
+
+    @Test
+    void overdueLoans() throws SQLException {
+        assertPlannedOn("transactions_open_due_idx", repository.explain(
+                "SELECT t.id FROM transactions t WHERE t.return_date IS NULL AND t.due_date < ?",
+                Date.valueOf(LibraryClock.todayDate())));
+    }
+
+    @Test
+    void memberHistoryPage() throws SQLException {
+        assertPlannedOn("transactions_member_id_idx",
+                repository.explainTransactionsPage(TransactionQuery.all().forMember(1), 0, 200));
+    }
+
+    @Test
+    void bookHistoryPage() throws SQLException {
+        assertPlannedOn("transactions_book_id_idx",
+                repository.explainTransactionsPage(TransactionQuery.all().forBook(1), 0, 200));
+    }
+
+    @Test
+    void memberOpenLoans() throws SQLException {
+        assertPlannedOn("transactions_member_open_idx", repository.explain(
+                "SELECT t.id FROM transactions t WHERE t.member_id = ? AND t.return_date IS NULL", 1));
+    }
+
+    @Test
+    void fineLookup() throws SQLException {
+        assertPlannedOn("fines_transaction_id_idx", repository.explain(
+                "SELECT bool_or(f.paid) FROM fines f WHERE f.transaction_id = ?", 1));
+    }
+
+    @Test
+    void isbnLookup() throws SQLException {
+        assertPlannedOn("books_isbn_key", repository.explain(
+                "SELECT id FROM books WHERE isbn = ?", "978-0061120084"));
+    }
+
+    private static void assertPlannedOn(String index, List<String> plan) {
+        String text = String.join("\n", plan);
+        assertTrue(text.contains(index), () -> "not planned on " + index + ":\n" + text);
+    }
+}
@@ -0,0 +1,176 @@
+package main.java.library.db;
+
+import main.java.library.models.Book;
+import main.java.library.models.BookRequest;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+import main.java.library.utils.LibraryClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Round-trips every kind of record through the repository SQL against the stand-in database. */
+class LibraryRepositoryTest {
+    private ConnectionPool pool;
+    private LibraryRepository repository;
+    private final Map<Integer, Book> books = new HashMap<>();
+    private final Map<Integer, Member> members = new HashMap<>();
+
+    @BeforeEach
+    void createDatabase() throws Exception {
+        pool = new ConnectionPool(StandInDatabase.config(4, 30_000));
+        StandInDatabase.createSchema(pool);
+        repository = new LibraryRepository(pool, 2);
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void storesUpdatesAndDeletesBooks() throws Exception {
+        Book book = book(1, "Dune", "978-0441013593");
+        book(2, "Blank ISBN", " ");
+        book.setTitle("Dune Messiah");
+        repository.updateBook(book);
+        List<Book> loaded = repository.loadBooks();
+        assertEquals(2, loaded.size());
+        assertEquals("Dune Messiah", loaded.get(0).getTitle());
+        assertEquals("", loaded.get(1).getIsbn());
+
+        repository.deleteBook(2);
+        assertEquals(1, repository.loadBooks().size());
+    }
+
+    @Test
+    void storesMembers() throws Exception {
+        Member member = member(1, "Ada");
+        member.setPhone("+1-555-0100");
+        repository.updateMember(member);
+        Member loaded = repository.loadMembers().get(0);
+        assertEquals("Ada", loaded.getName());
+        assertEquals("+1-555-0100", loaded.getPhone());
+        assertEquals(member.getMemberSince(), loaded.getMemberSince());
+    }
+
+    @Test
+    void pagesTransactionHistory() throws Exception {
+        Book book = book(1, "Dune", "");
+        Member ada = member(1, "Ada");
+        Member bob = member(2, "Bob");
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int id = 1; id <= 5; id++) {
+            Transaction t = new Transaction(id, book, id % 2 == 1 ? ada : bob, start, start.plusDays(14));
+            repository.insertTransaction(t);
+        }
+
+        List<Transaction> first = repository.findTransactions(TransactionQuery.all().forMember(1), 0, 2, books::get, members::get);
+        assertEquals(List.of(1, 3), ids(first));
+        List<Transaction> next = repository.findTransactions(TransactionQuery.all().forMember(1), 3, 2, books::get, members::get);
+        assertEquals(List.of(5), ids(next));
+        assertEquals(5, repository.maxTransactionId());
+    }
+
+    @Test
+    void judgesOverdueByTheAppClock() throws Exception {
+        Book book = book(1, "Dune", "");
+        Member ada = member(1, "Ada");
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        repository.insertTransaction(new Transaction(1, book, ada, start, start.plusDays(14)));
+        TransactionQuery overdue = TransactionQuery.all().overdueOnly();
+        Clock system = LibraryClock.getClock();
+        try {
+            LibraryClock.setClock(fixed(start.plusDays(14)));
+            assertTrue(repository.findTransactions(overdue, 0, 10, books::get, members::get).isEmpty());
+            LibraryClock.setClock(fixed(start.plusDays(15)));
+            assertEquals(List.of(1), ids(repository.findTransactions(overdue, 0, 10, books::get, members::get)));
+        } finally {
+            LibraryClock.setClock(system);
+        }
+    }
+
+    @Test
+    void tracksFinesAndSplitsOpenFromClosedLoans() throws Exception {
+        Book book = book(1, "Dune", "");
+        Member ada = member(1, "Ada");
+        LocalDate start = LocalDate.of(2024, 1, 1);
+
+        Transaction late = new Transaction(1, book, ada, start, start.plusDays(14));
+        repository.insertTransaction(late);
+        late.setReturnDate(start.plusDays(17));
+        repository.updateTransaction(late);
+        repository.saveFine(late);
+
+        Transaction onTime = new Transaction(2, book, ada, start, start.plusDays(14));
+        onTime.setReturnDate(start.plusDays(3));
+        repository.insertTransaction(onTime);
+
+        List<Transaction> open = new ArrayList<>();
+        repository.streamOpenTransactions(books::get, members::get, open::add);
+        assertEquals(List.of(1), ids(open), "a returned loan with its fine unpaid stays open");
+        assertFalse(open.get(0).isFinePaid());
+        assertEquals(0, repository.settledFinesCollectedCents());
+
+        late.payFine();
+        repository.saveFine(late);
+        open.clear();
+        repository.streamOpenTransactions(books::get, members::get, open::add);
+        assertTrue(open.isEmpty());
+        List<Transaction> closed = new ArrayList<>();
+        repository.streamClosedTransactions(books::get, members::get, closed::add);
+        assertEquals(List.of(1, 2), ids(closed));
+        assertTrue(closed.get(0).isFinePaid());
+        assertEquals(late.getFineCents(start.plusDays(30).toEpochDay()), repository.settledFinesCollectedCents());
+    }
+
+    @Test
+    void storesBookRequests() throws Exception {
+        Member ada = member(1, "Ada");
+        BookRequest request = new BookRequest(1, ada, "Neuromancer", "William Gibson", "Course reading");
+        repository.insertBookRequest(request);
+        repository.updateBookRequestStatus(1, "Approved");
+        BookRequest loaded = repository.loadBookRequests(members::get).get(0);
+        assertEquals("Neuromancer", loaded.getBookTitle());
+        assertEquals("Approved", loaded.getStatus());
+        assertEquals(ada, loaded.getRequestedBy());
+        assertNull(repository.loadBookRequests(id -> null).get(0).getRequestedBy());
+    }
+
+    private Book book(int id, String title, String isbn) throws Exception {
+        Book book = new Book(id, title, "Frank Herbert", isbn, true, "Fiction", "Science Fiction", "C3", 2, 2);
+        repository.insertBook(book);
+        books.put(id, book);
+        return book;
+    }
+
+    private Member member(int id, String name) throws Exception {
+        Member member = new Member(id, name, name.toLowerCase() + "@uni.example", "", LocalDate.of(2024, 9, 1));
+        repository.insertMember(member);
+        members.put(id, member);
+        return member;
+    }
+
+    private static Clock fixed(LocalDate day) {
+        return Clock.fixed(day.atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+    }
+
+    private static List<Integer> ids(List<Transaction> transactions) {
+        List<Integer> ids = new ArrayList<>();
+        for (Transaction t : transactions) ids.add(t.getId());
+        return ids;
+    }
+}
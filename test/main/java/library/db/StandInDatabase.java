@@ -0,0 +1,39 @@
+package main.java.library.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory H2 database in PostgreSQL mode, standing in for the real server
+ * in the db tests. Every call to {@link #config} names a fresh database.
+ */
+final class StandInDatabase {
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private StandInDatabase() {
+    }
+
+    static DBConfig config(int poolSize, long validateIdleMillis) {
+        String url = "jdbc:h2:mem:library" + COUNTER.incrementAndGet()
+                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+        return new DBConfig(true, url, "sa", "", poolSize, 200, validateIdleMillis, 16, 50, 100, 100, false);
+    }
+
+    /** Creates the tables with the baseline migration, as a fresh PostgreSQL database would get them. */
+    static void createSchema(ConnectionPool pool) throws SQLException, IOException {
+        String script;
+        try (InputStream in = StandInDatabase.class.getResourceAsStream("/main/java/library/resources/db/V1__baseline.sql")) {
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Connection con = pool.getConnection(); Statement st = con.createStatement()) {
+            for (String sql : script.split(";")) {
+                if (!sql.isBlank()) st.execute(sql);
+            }
+        }
+    }
+}
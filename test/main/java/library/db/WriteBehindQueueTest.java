@@ -0,0 +1,84 @@
+package main.java.library.db;
+
+import main.java.library.models.Book;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/** Flushes queued writes into the stand-in database, whose foreign keys reject orphans as PostgreSQL's do. */
+class WriteBehindQueueTest {
+    private ConnectionPool pool;
+    private LibraryRepository repository;
+    private WriteBehindQueue writes;
+
+    @BeforeEach
+    void createDatabase() throws Exception {
+        pool = new ConnectionPool(StandInDatabase.config(2, 30_000));
+        StandInDatabase.createSchema(pool);
+        repository = new LibraryRepository(pool, 100);
+        writes = new WriteBehindQueue(pool, 60_000, 1_000);
+    }
+
+    @AfterEach
+    void closeQueue() {
+        writes.close();
+        pool.close();
+    }
+
+    @Test
+    void coalescesWritesToOneRow() throws SQLException {
+        Book book = book(1);
+        writes.bookInserted(book);
+        book.setTitle("Dune Messiah");
+        writes.bookUpdated(book);
+        Book gone = book(2);
+        writes.bookInserted(gone);
+        writes.bookDeleted(2);
+        assertEquals(1, writes.getPendingCount());
+
+        writes.flush();
+        List<Book> loaded = repository.loadBooks();
+        assertEquals(1, loaded.size());
+        assertEquals("Dune Messiah", loaded.get(0).getTitle());
+    }
+
+    @Test
+    void reportsRejectedWritesAndCommitsTheRest() throws SQLException {
+        Book book = book(1);
+        Member ada = new Member(1, "Ada", "ada@uni.example", "", LocalDate.of(2024, 9, 1));
+        writes.bookInserted(book);
+        writes.memberInserted(ada);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        writes.transactionInserted(new Transaction(1, book, ada, start, start.plusDays(14)));
+        writes.flush();
+
+        writes.bookDeleted(1);
+        writes.memberUpdated(ada);
+        SQLException rejected = assertThrows(SQLException.class, writes::flush);
+        assertEquals(1, rejected.getSuppressed().length, "only the delete the loan's foreign key blocks");
+        assertEquals(0, writes.getPendingCount(), "a rejection is reported once, not retried");
+        assertEquals(1, repository.loadBooks().size());
+        assertEquals(1, repository.loadMembers().size());
+    }
+
+    @Test
+    void keepsWritesQueuedWhileTheDatabaseIsUnreachable() {
+        writes.bookInserted(book(1));
+        pool.close();
+        assertThrows(SQLException.class, writes::flush);
+        assertEquals(1, writes.getPendingCount());
+    }
+
+    private static Book book(int id) {
+        return new Book(id, "Dune", "Frank Herbert", "", true, "Fiction", "Science Fiction", "C3", 2, 2);
+    }
+}
@@ -0,0 +1,104 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookSearchIndexTest {
+    @Test
+    void pagesMatchTheFullRanking() {
+        BookSearchIndex index = new BookSearchIndex();
+        for (int id = 1; id <= 1_000; id++) {
+            String title = id % 7 == 0 ? "River" : id % 3 == 0 ? "River Song " + id : "Down the river " + id;
+            index.add(new Book(id, title, id % 5 == 0 ? "Ann Rivers" : "Bo Lake", "", true, "Fiction", "Novel", "A1", 1, 1));
+        }
+        List<Book> all = index.search("river", "All");
+        List<Book> paged = new ArrayList<>();
+        for (int offset = 0; offset < all.size() + 100; offset += 100) {
+            SearchResults page = index.search("river", "All", offset, 100);
+            assertEquals(all.size(), page.getTotal());
+            paged.addAll(page.getBooks());
+        }
+        assertEquals(all, paged);
+        assertEquals(all.subList(0, 10), index.search("river", "All", 0, 10).getBooks());
+        assertTrue(index.search("river", "All", all.size(), 10).getBooks().isEmpty());
+    }
+
+    @Test
+    void findsEditedBooksAndForgetsDeletedOnes() {
+        BookSearchIndex index = new BookSearchIndex();
+        List<Book> books = new ArrayList<>();
+        for (int id = 1; id <= 200; id++) {
+            Book book = new Book(id, "Lake " + id, "Bo Lake", "", true, "Fiction", "Novel", "A1", 1, 1);
+            books.add(book);
+            index.add(book);
+        }
+        for (int id = 2; id <= 200; id += 2) {
+            Book book = books.get(id - 1);
+            book.setTitle("River " + id);
+            index.update(book);
+        }
+        for (int id = 3; id <= 200; id += 3) {
+            index.remove(id);
+        }
+        List<Integer> rivers = new ArrayList<>();
+        for (Book book : index.search("river", "Title")) rivers.add(book.getId());
+        rivers.sort(null);
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 2; id <= 200; id += 2) {
+            if (id % 3 != 0) expected.add(id);
+        }
+        assertEquals(expected, rivers);
+        assertEquals(200 - 66 - expected.size(), index.search("lake", "Title").size());
+    }
+
+    @Test
+    void findsReaddedBooksAfterCompaction() {
+        BookSearchIndex index = new BookSearchIndex();
+        for (int id = 1; id <= 3_000; id++) {
+            index.add(new Book(id, "River " + id, "Bo Lake", "", true, "Fiction", "Novel", "A1", 1, 1));
+        }
+        for (int id = 1; id <= 2_000; id++) {
+            index.remove(id);
+        }
+        index.add(new Book(7, "Lake Seven", "Bo Lake", "", true, "Fiction", "Novel", "A1", 1, 1));
+        assertEquals(1_000, index.search("river", "Title").size());
+        assertEquals(7, index.search("lake", "Title").get(0).getId());
+        assertTrue(index.search("river 7", "Title").isEmpty());
+    }
+
+    @Test
+    void handsASharedIsbnToTheRemainingBook() {
+        BookSearchIndex index = new BookSearchIndex();
+        Book first = new Book(1, "Dune", "Frank Herbert", "978-0441013593", true, "Fiction", "Novel", "A1", 1, 1);
+        Book second = new Book(2, "Dune (reprint)", "Frank Herbert", "9780441013593", true, "Fiction", "Novel", "A1", 1, 1);
+        index.add(first);
+        index.add(second);
+        assertSame(first, index.findByIsbn("9780441013593"));
+        index.remove(1);
+        assertSame(second, index.findByIsbn("978-0441013593"));
+        index.remove(2);
+        assertNull(index.findByIsbn("978-0441013593"));
+    }
+
+    @Test
+    void stopsWhenInterrupted() {
+        BookSearchIndex index = new BookSearchIndex();
+        index.add(new Book(1, "River", "Bo Lake", "", true, "Fiction", "Novel", "A1", 1, 1));
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CancellationException.class, () -> index.search("river", "All", 0, 10));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
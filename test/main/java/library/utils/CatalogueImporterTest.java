@@ -0,0 +1,133 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogueImporterTest {
+    private final DataManager dm = DataManager.getInstance();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void importsAGeneratedCatalogue() throws IOException {
+        List<Book> books = new LibraryDataGenerator(new LibraryDataGenerator.Options()
+                .books(20_000).members(1).years(1).loansPerMemberYear(0).requests(0)).generate().getBooks();
+        Path file = dir.resolve("catalogue.csv");
+        int bad = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("title,author,isbn,section,genre,shelf,quantity\n");
+            for (int i = 0; i < books.size(); i++) {
+                Book b = books.get(i);
+                String isbn = i % 100 == 99 ? books.get(i - 1).getIsbn() : b.getIsbn();
+                String author = i % 500 == 499 ? "" : b.getAuthor();
+                if (i % 100 == 99 || i % 500 == 499) bad++;
+                out.write(quote(b.getTitle()) + "," + quote(author) + "," + isbn + "," + quote(b.getSection()) + ","
+                        + quote(b.getGenre()) + "," + b.getShelf() + "," + b.getQuantity() + "\n");
+            }
+        }
+        assertTrue(Files.size(file) > CsvFile.CHUNK_BYTES, "spans several chunks");
+        int before = dm.getTotalBooks();
+
+        CatalogueImporter.Result result = new CatalogueImporter(dm).importFile(file, percent -> true);
+
+        assertEquals(books.size(), result.getRows());
+        assertEquals(books.size() - bad, result.getImported());
+        assertEquals(bad, result.getProblems().size());
+        assertEquals(before + result.getImported(), dm.getTotalBooks());
+    }
+
+    @Test
+    void checksEachRowAndReportsItsNumber() throws IOException {
+        Book held = new Book(0, "Held", "Fay", "978-1-86197-876-9", true, "General", "General", "A1", 1, 1);
+        assertTrue(dm.addBook(held));
+        Path file = dir.resolve("rows.csv");
+        Files.write(file, List.of(
+                "Copies,ISBN,Author,Title,Shelf",
+                "2,0-8044-2957-X,Ann,Ten X,B2",
+                "1,080442957x,Ann,Ten x again,",
+                ",978-0-306-40615-7,Bo,Thirteen,",
+                "1,978-0-306-40615-8,Cy,Bad check digit,",
+                "1,12345,Di,Too short,",
+                "0,,Ed,None,",
+                "101,,Ed,Too many,",
+                "100,,Ed,Hundred,",
+                "1000,,Ed,Thousand,",
+                "two,,Ed,Word,",
+                "1,,,No author,",
+                "1,9781861978769,Fay,Held again,",
+                "1,,Gus",
+                "",
+                "\"1\",\"\",\"Hal\",\"Quoted, title\",\"C3\""), StandardCharsets.UTF_8);
+        int before = dm.getTotalBooks();
+
+        CatalogueImporter.Result result = new CatalogueImporter(dm).importFile(file, percent -> true);
+
+        List<String> problems = new ArrayList<>();
+        for (CatalogueImporter.Problem p : result.getProblems()) problems.add(p.getRow() + ": " + p.getMessage());
+        String quantity = "Quantity must be a whole number from 1 to " + CatalogueImporter.MAX_QUANTITY;
+        assertEquals(List.of(
+                "3: Duplicate ISBN 080442957x, first seen on row 2",
+                "5: Invalid ISBN 978-0-306-40615-8",
+                "6: Invalid ISBN 12345",
+                "7: " + quantity,
+                "8: " + quantity,
+                "10: " + quantity,
+                "11: " + quantity,
+                "12: Title and Author are required",
+                "13: ISBN 9781861978769 is already in the catalogue as book #" + held.getId(),
+                "14: Expected at least 5 fields but found 3"), problems);
+        assertEquals(14, result.getRows(), "the blank line is not a row");
+        assertEquals(4, result.getImported());
+        assertEquals(before + 4, dm.getTotalBooks());
+
+        Book tenX = dm.findBookByIsbn("080442957X");
+        assertEquals("Ten X", tenX.getTitle());
+        assertEquals(2, tenX.getQuantity());
+        assertEquals("B2", tenX.getShelf());
+        Book thirteen = dm.findBookByIsbn("9780306406157");
+        assertEquals(1, thirteen.getQuantity(), "a blank quantity is one copy");
+        assertEquals("A1", thirteen.getShelf());
+        assertEquals("General", thirteen.getSection());
+        assertEquals(List.of("Quoted, title"), titlesBy(dm, "Hal"));
+        assertEquals(List.of("Hundred"), titlesBy(dm, "Ed"));
+    }
+
+    @Test
+    void validatesIsbnCheckDigits() {
+        assertTrue(CatalogueImporter.validIsbn("080442957X"));
+        assertTrue(CatalogueImporter.validIsbn("0306406152"));
+        assertTrue(CatalogueImporter.validIsbn("9780306406157"));
+        assertFalse(CatalogueImporter.validIsbn("0804429579"));
+        assertFalse(CatalogueImporter.validIsbn("08044295X7"), "X only as the check digit");
+        assertFalse(CatalogueImporter.validIsbn("9780306406158"));
+        assertFalse(CatalogueImporter.validIsbn("978030640615X"));
+        assertFalse(CatalogueImporter.validIsbn("978030640615"));
+        assertFalse(CatalogueImporter.validIsbn(""));
+    }
+
+    private static List<String> titlesBy(DataManager dm, String author) {
+        List<String> titles = new ArrayList<>();
+        for (Book b : dm.getBooks()) {
+            if (b.getAuthor().equals(author)) titles.add(b.getTitle());
+        }
+        return titles;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
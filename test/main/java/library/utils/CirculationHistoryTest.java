@@ -0,0 +1,209 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CirculationHistoryTest {
+    private static final long ALL_FROM = Long.MIN_VALUE;
+    private static final long ALL_TO = Long.MAX_VALUE;
+
+    private final Book novel = new Book(1, "Dune", "Frank Herbert", "", true, "Fiction", "Science Fiction", "A1", 1, 1);
+    private final Book atlas = new Book(2, "Atlas", "Nobody", "", true, "Reference", "Geography", "B2", 1, 1);
+    private final Member member = new Member(1, "Ada", "ada@history.example", "", LocalDate.of(2020, 1, 1));
+
+    @Test
+    void groupsMonthsAcrossTheYearEnd() {
+        CirculationHistory history = new CirculationHistory();
+        close(history, novel, "2023-11-01", "2023-11-30", 0);
+        close(history, novel, "2023-11-20", "2023-12-01", 50);
+        close(history, atlas, "2023-12-10", "2023-12-31", 0);
+        close(history, novel, "2023-12-20", "2024-01-01", 0);
+        close(history, atlas, "2024-02-01", "2024-02-29", 0);
+        close(history, novel, "2024-02-20", "2024-03-01", 0);
+
+        List<CirculationHistory.Group> months = history.groupBy(CirculationHistory.Dimension.MONTH,
+                day("2023-12-01"), day("2024-03-01"));
+        assertEquals(List.of("2023-12", "2024-01", "2024-02"), new ArrayList<>(loans(months).keySet()), "months stay in order");
+        assertEquals(List.of(2, 1, 1), new ArrayList<>(loans(months).values()));
+        assertEquals(50, months.get(0).getFineCents());
+        assertEquals((11 + 21) / 2.0, months.get(0).getAverageLoanDays());
+
+        CirculationHistory.Table table = history.countBy(CirculationHistory.Dimension.GENRE,
+                CirculationHistory.Dimension.MONTH, day("2023-12-01"), day("2024-03-01"));
+        assertEquals(List.of("Science Fiction", "Geography"), table.getRows());
+        assertEquals(List.of("2023-12", "2024-01", "2024-02"), table.getColumns());
+        assertEquals(1, table.getLoans(0, 0));
+        assertEquals(1, table.getLoans(0, 1));
+        assertEquals(0, table.getLoans(0, 2));
+        assertEquals(1, table.getLoans(1, 0));
+        assertEquals(1, table.getLoans(1, 2));
+    }
+
+    @Test
+    void countsReturnsFromTheFirstDayUpToButNotTheLast() {
+        CirculationHistory history = new CirculationHistory();
+        close(history, novel, "2024-05-01", "2024-05-10", 0);
+        close(history, atlas, "2024-05-01", "2024-05-11", 0);
+        long day = day("2024-05-10");
+
+        assertEquals(Map.of("Science Fiction", 1), loans(history.groupBy(CirculationHistory.Dimension.GENRE, day, day + 1)));
+        assertEquals(Map.of("Geography", 1), loans(history.groupBy(CirculationHistory.Dimension.GENRE, day + 1, day + 2)));
+        assertEquals(Map.of("2024-05", 1), loans(history.groupBy(CirculationHistory.Dimension.MONTH, day, day + 1)));
+        assertArrayEquals(new int[]{9}, history.loanDurationPercentiles(day, day + 1, 1));
+        assertArrayEquals(new int[]{10}, history.loanDurationPercentiles(day + 1, day + 2, 1));
+    }
+
+    @Test
+    void answersEmptyRangesWithNothing() {
+        CirculationHistory empty = new CirculationHistory();
+        assertTrue(empty.groupBy(CirculationHistory.Dimension.MONTH, ALL_FROM, ALL_TO).isEmpty());
+        assertArrayEquals(new int[]{0, 0}, empty.loanDurationPercentiles(ALL_FROM, ALL_TO, 0.5, 1));
+
+        CirculationHistory history = new CirculationHistory();
+        close(history, novel, "2024-05-01", "2024-05-10", 0);
+        long day = day("2024-05-10");
+        for (CirculationHistory.Dimension dimension : CirculationHistory.Dimension.values()) {
+            assertTrue(history.groupBy(dimension, day, day).isEmpty(), dimension.name());
+            assertTrue(history.groupBy(dimension, day + 1, ALL_TO).isEmpty(), dimension.name());
+            assertTrue(history.groupBy(dimension, day + 1, day).isEmpty(), dimension.name());
+        }
+        CirculationHistory.Table table = history.countBy(CirculationHistory.Dimension.GENRE,
+                CirculationHistory.Dimension.MONTH, ALL_FROM, day);
+        assertTrue(table.getRows().isEmpty());
+        assertTrue(table.getColumns().isEmpty());
+        assertArrayEquals(new int[]{0}, history.loanDurationPercentiles(day + 1, ALL_TO, 0.5));
+    }
+
+    @Test
+    void takesTheShortestAndLongestLoanAtRanksZeroAndOne() {
+        CirculationHistory history = new CirculationHistory();
+        for (int days : new int[]{20, 5, 3, 10, 5}) {
+            LocalDate borrowed = LocalDate.of(2024, 1, 1);
+            close(history, novel, borrowed.toString(), borrowed.plusDays(days).toString(), 0);
+        }
+        assertArrayEquals(new int[]{3, 3, 5, 5, 10, 20, 20},
+                history.loanDurationPercentiles(ALL_FROM, ALL_TO, 0, 0.2, 0.21, 0.5, 0.8, 0.81, 1));
+    }
+
+    @Test
+    void countsAReturnBeforeItsBorrowAsNoDays() {
+        CirculationHistory history = new CirculationHistory();
+        close(history, novel, "2024-03-10", "2024-03-01", 0);
+        close(history, atlas, "2024-03-01", "2024-03-05", 0);
+        assertArrayEquals(new int[]{0, 0, 4}, history.loanDurationPercentiles(ALL_FROM, ALL_TO, 0, 0.5, 1));
+    }
+
+    /** The queries of CirculationBenchmark, against the stream scans they replace. */
+    @Test
+    void agreesWithStreamsOverTheLoans() {
+        Random random = new Random(42);
+        List<Book> books = new ArrayList<>();
+        String[] genres = {"Poetry", "History", "", "Science Fiction"};
+        String[] sections = {"Fiction", "Reference", "Children"};
+        for (int i = 0; i < 12; i++) {
+            books.add(new Book(i + 1, "Book " + i, "Author", "", true,
+                    sections[i % sections.length], genres[i % genres.length], "C" + i, 1, 1));
+        }
+        CirculationHistory history = new CirculationHistory();
+        List<Transaction> closed = new ArrayList<>();
+        LocalDate start = LocalDate.of(2022, 11, 1);
+        for (int i = 0; i < 3_000; i++) {
+            LocalDate borrowed = start.plusDays(random.nextInt(500));
+            LocalDate returned = borrowed.plusDays(random.nextInt(60));
+            Transaction t = new Transaction(i, books.get(random.nextInt(books.size())), member, borrowed, borrowed.plusDays(14));
+            t.setReturnDate(returned);
+            history.append(t, random.nextInt(3) * 25);
+            closed.add(t);
+        }
+        long from = day("2023-02-15");
+        long to = day("2024-01-10");
+        List<Transaction> inRange = closed.stream()
+                .filter(t -> t.getReturnDate().toEpochDay() >= from && t.getReturnDate().toEpochDay() < to)
+                .collect(Collectors.toList());
+
+        List<CirculationHistory.Group> byGenre = history.groupBy(CirculationHistory.Dimension.GENRE, from, to);
+        assertEquals(count(inRange, t -> genre(t.getBook().getGenre())), loans(byGenre));
+        for (int i = 1; i < byGenre.size(); i++) {
+            assertTrue(byGenre.get(i - 1).getLoans() >= byGenre.get(i).getLoans(), "busiest first");
+        }
+        assertEquals(count(inRange, t -> t.getBook().getSection()),
+                loans(history.groupBy(CirculationHistory.Dimension.SECTION, from, to)));
+        Map<String, Integer> byMonth = new TreeMap<>(count(inRange, t -> t.getReturnDate().toString().substring(0, 7)));
+        assertEquals(byMonth, loans(history.groupBy(CirculationHistory.Dimension.MONTH, from, to)));
+
+        CirculationHistory.Table table = history.countBy(CirculationHistory.Dimension.GENRE,
+                CirculationHistory.Dimension.MONTH, from, to);
+        assertEquals(new ArrayList<>(byMonth.keySet()), table.getColumns());
+        for (int r = 0; r < table.getRows().size(); r++) {
+            for (int c = 0; c < table.getColumns().size(); c++) {
+                String genre = table.getRows().get(r);
+                String month = table.getColumns().get(c);
+                long expected = inRange.stream().filter(t -> genre(t.getBook().getGenre()).equals(genre)
+                        && t.getReturnDate().toString().startsWith(month)).count();
+                assertEquals(expected, table.getLoans(r, c), genre + " " + month);
+            }
+        }
+
+        for (CirculationHistory.Group g : history.groupBy(CirculationHistory.Dimension.SECTION, from, to)) {
+            List<Transaction> loans = inRange.stream().filter(t -> t.getBook().getSection().equals(g.getKey()))
+                    .collect(Collectors.toList());
+            assertEquals(loans.stream().mapToDouble(this::loanDays).average().orElse(0), g.getAverageLoanDays(), 1e-9);
+        }
+
+        long[] days = inRange.stream().mapToLong(this::loanDays).sorted().toArray();
+        double[] ranks = {0.5, 0.9, 0.99};
+        int[] expected = new int[ranks.length];
+        for (int i = 0; i < ranks.length; i++) {
+            expected[i] = (int) days[(int) Math.ceil(ranks[i] * days.length) - 1];
+        }
+        assertArrayEquals(expected, history.loanDurationPercentiles(from, to, ranks));
+    }
+
+    private long loanDays(Transaction t) {
+        return t.getReturnDate().toEpochDay() - t.getBorrowDate().toEpochDay();
+    }
+
+    private void close(CirculationHistory history, Book book, String borrowed, String returned, long fine) {
+        LocalDate borrowDate = LocalDate.parse(borrowed);
+        Transaction t = new Transaction(0, book, member, borrowDate, borrowDate.plusDays(14));
+        t.setReturnDate(LocalDate.parse(returned));
+        history.append(t, fine);
+    }
+
+    private static long day(String date) {
+        return LocalDate.parse(date).toEpochDay();
+    }
+
+    private static String genre(String genre) {
+        return genre.isEmpty() ? "Unknown" : genre;
+    }
+
+    private static Map<String, Integer> count(List<Transaction> loans, Function<Transaction, String> key) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Transaction t : loans) counts.merge(key.apply(t), 1, Integer::sum);
+        return counts;
+    }
+
+    private static Map<String, Integer> loans(List<CirculationHistory.Group> groups) {
+        Map<String, Integer> loans = new LinkedHashMap<>();
+        for (CirculationHistory.Group g : groups) loans.put(g.getKey(), g.getLoans());
+        return loans;
+    }
+}
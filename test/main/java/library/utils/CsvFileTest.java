@@ -0,0 +1,131 @@
+package main.java.library.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvFileTest {
+    private static final int WINDOW = 64 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsQuotedCommasNewlinesAndQuotes() throws IOException {
+        CsvFile csv = csv("id,text,more\n"
+                + "1,\"a, b\",\"line one\nline two\"\n"
+                + "2,\"say \"\"hi\"\"\",\"\"\"\"\n"
+                + "3,\"quoted\" tail,plain\n");
+        assertEquals(List.of(
+                List.of("1", "a, b", "line one\nline two"),
+                List.of("2", "say \"hi\"", "\""),
+                List.of("3", "quoted tail", "plain")), rows(csv));
+        assertEquals(List.of(2, 3, 4), rowNumbers(csv), "a quoted newline does not start a row");
+    }
+
+    @Test
+    void dropsTheByteOrderMarkAndCarriageReturns() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+        bytes.write("Title,AUTHOR\r\nDune,Frank Herbert\r\n\"Two\r\nLines\",Ann\r\n".getBytes(StandardCharsets.UTF_8));
+        Path file = dir.resolve("bom.csv");
+        Files.write(file, bytes.toByteArray());
+        CsvFile csv = new CsvFile(file);
+
+        assertArrayEquals(new int[]{0, 1, -1}, csv.columns("title", "author", "isbn"));
+        assertEquals(List.of(List.of("Dune", "Frank Herbert"), List.of("Two\r\nLines", "Ann")), rows(csv));
+    }
+
+    @Test
+    void readsShortRowsAndALastRowWithoutANewline() throws IOException {
+        CsvFile csv = csv("a,b,c\n1\n\n2,\"\"\n3,4,5,6");
+        assertEquals(List.of(List.of("1"), List.of(""), List.of("2", ""), List.of("3", "4", "5", "6")), rows(csv));
+        assertEquals(List.of(2, 3, 4, 5), rowNumbers(csv));
+    }
+
+    @Test
+    void matchesColumnNamesAndAlternativesIgnoringCase() throws IOException {
+        CsvFile csv = csv(" Copies ,Title\nx,y\n");
+        assertArrayEquals(new int[]{1, 0, -1}, csv.columns("title", "quantity|copies", "isbn"));
+    }
+
+    @Test
+    void refusesAnEmptyFile() throws IOException {
+        Path file = dir.resolve("empty.csv");
+        Files.write(file, new byte[0]);
+        assertThrows(IOException.class, () -> new CsvFile(file));
+    }
+
+    /**
+     * A file of several chunks, with a {@code ""} pair split across the first 64 KB
+     * window and a long quoted field, full of newlines, across the first chunk cut.
+     * Reading every chunk must give back every row whole and numbered in order.
+     */
+    @Test
+    void cutsLargeFilesBetweenRowsOnly() throws IOException {
+        StringBuilder text = new StringBuilder("id,text,end\r\n");
+        List<List<String>> expected = new ArrayList<>();
+        int id = 0;
+        while (text.length() < 3 * CsvFile.CHUNK_BYTES) {
+            String value;
+            if (text.length() < WINDOW && text.length() + 200 > WINDOW) {
+                // Puts the first quote of a "" pair on the last byte of the window.
+                String prefix = id + ",\"";
+                value = "a".repeat(WINDOW - 1 - text.length() - prefix.length()) + "\"\"b";
+            } else if (text.length() < CsvFile.CHUNK_BYTES && text.length() + 200 > CsvFile.CHUNK_BYTES) {
+                value = "line\n, \"\"quoted\"\"\r\n".repeat(20_000);
+            } else {
+                value = "row " + id + ", with \"\"quotes\"\"\nand a newline";
+            }
+            text.append(id).append(",\"").append(value).append("\",end\r\n");
+            expected.add(List.of(String.valueOf(id), value.replace("\"\"", "\""), "end"));
+            id++;
+        }
+        CsvFile csv = csv(text.toString());
+
+        assertTrue(csv.chunks().size() >= 3, "cut into " + csv.chunks().size() + " chunks");
+        assertEquals(expected, rows(csv));
+        List<Integer> numbers = rowNumbers(csv);
+        for (int i = 0; i < numbers.size(); i++) {
+            assertEquals(i + 2, numbers.get(i));
+        }
+    }
+
+    private CsvFile csv(String text) throws IOException {
+        Path file = dir.resolve("file.csv");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return new CsvFile(file);
+    }
+
+    private static List<List<String>> rows(CsvFile csv) {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        for (CsvFile.Chunk chunk : csv.chunks()) {
+            CsvFile.RowReader reader = csv.rows(chunk);
+            while (reader.next(fields)) rows.add(new ArrayList<>(fields));
+        }
+        return rows;
+    }
+
+    private static List<Integer> rowNumbers(CsvFile csv) {
+        List<Integer> numbers = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        for (CsvFile.Chunk chunk : csv.chunks()) {
+            CsvFile.RowReader reader = csv.rows(chunk);
+            while (reader.next(fields)) numbers.add(reader.row());
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,174 @@
+package main.java.library.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Crashes are simulated by closing the journal and damaging its segment file before reopening it. */
+class EventJournalTest {
+    private static final byte EVENT = 1;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysWhatWasAppended() throws IOException {
+        long end;
+        try (EventJournal journal = open(0, new ArrayList<>())) {
+            append(journal, "one");
+            append(journal, "two");
+            end = append(journal, "three");
+        }
+        List<String> replayed = new ArrayList<>();
+        try (EventJournal journal = open(0, replayed)) {
+            assertEquals(List.of("one", "two", "three"), replayed);
+            assertEquals(end, journal.position());
+            assertEquals(3, journal.eventCount());
+        }
+    }
+
+    @Test
+    void stopsAtARecordThatFailsItsChecksum() throws IOException {
+        long second;
+        try (EventJournal journal = open(0, new ArrayList<>())) {
+            append(journal, "one");
+            second = append(journal, "two");
+            append(journal, "three");
+        }
+        flipByte(segment(0), second + 10);
+
+        List<String> replayed = new ArrayList<>();
+        try (EventJournal journal = open(0, replayed)) {
+            assertEquals(List.of("one", "two"), replayed);
+            assertEquals(second, journal.position());
+            append(journal, "four");
+        }
+        assertEquals(List.of("one", "two", "four"), replayAll());
+    }
+
+    @Test
+    void stopsAtARecordCutShort() throws IOException {
+        long first;
+        long end;
+        try (EventJournal journal = open(0, new ArrayList<>())) {
+            first = append(journal, "one");
+            end = append(journal, "two");
+        }
+        // The file ends before the last record does, so its length runs past the data.
+        try (FileChannel ch = FileChannel.open(segment(0), StandardOpenOption.WRITE)) {
+            ch.truncate(end - 3);
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (EventJournal journal = open(0, replayed)) {
+            assertEquals(List.of("one"), replayed);
+            assertEquals(first, journal.position());
+            append(journal, "two again");
+        }
+        assertEquals(List.of("one", "two again"), replayAll());
+    }
+
+    @Test
+    void wipesRecordsBehindATornOne() throws IOException {
+        long second;
+        try (EventJournal journal = open(0, new ArrayList<>())) {
+            append(journal, "one");
+            second = append(journal, "two");
+            append(journal, "three");
+            append(journal, "four");
+        }
+        flipByte(segment(0), second + 10);
+
+        try (EventJournal journal = open(0, new ArrayList<>())) {
+            // The same length as the torn record, so without the wipe "four" would follow it intact.
+            append(journal, "THREE");
+        }
+        assertEquals(List.of("one", "two", "THREE"), replayAll());
+    }
+
+    @Test
+    void replaysAcrossSegments() throws IOException {
+        String big = "x".repeat(1 << 20);
+        List<String> appended = new ArrayList<>();
+        int firstInSecond = -1;
+        long afterIt = -1;
+        try (EventJournal journal = open(0, new ArrayList<>())) {
+            for (int i = 0; journal.position() < EventJournal.SEGMENT_BYTES + (4 << 20); i++) {
+                long end = append(journal, i + big);
+                appended.add(i + big);
+                if (firstInSecond < 0 && end > EventJournal.SEGMENT_BYTES) {
+                    firstInSecond = i;
+                    afterIt = end;
+                }
+            }
+        }
+        assertEquals(2, segmentCount());
+
+        List<String> replayed = new ArrayList<>();
+        try (EventJournal journal = open(0, replayed)) {
+            assertEquals(appended, replayed);
+            append(journal, "tail");
+        }
+        appended.add("tail");
+
+        // A snapshot taken part way into the second segment only needs the journal after it.
+        List<String> fromSecond = new ArrayList<>();
+        try (EventJournal journal = open(afterIt, fromSecond)) {
+            assertEquals(appended.subList(firstInSecond + 1, appended.size()), fromSecond);
+            journal.deleteSegmentsBefore(afterIt);
+        }
+        assertEquals(1, segmentCount());
+        assertEquals(appended.subList(firstInSecond + 1, appended.size()), replay(afterIt));
+    }
+
+    private EventJournal open(long from, List<String> replayed) throws IOException {
+        return new EventJournal(dir, from, 5, (type, payload) -> {
+            assertEquals(EVENT, type);
+            replayed.add(JournalCodec.getString(payload));
+        });
+    }
+
+    private List<String> replayAll() throws IOException {
+        return replay(0);
+    }
+
+    private List<String> replay(long from) throws IOException {
+        List<String> replayed = new ArrayList<>();
+        open(from, replayed).close();
+        return replayed;
+    }
+
+    private static long append(EventJournal journal, String value) {
+        return journal.append(EVENT, out -> out.putString(value));
+    }
+
+    private Path segment(long start) {
+        return dir.resolve(String.format("%020d.journal", start));
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".journal")).count();
+        }
+    }
+
+    private static void flipByte(Path file, long at) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            ch.read(b, at);
+            b.put(0, (byte) (b.get(0) ^ 0xFF));
+            ch.write(b.rewind(), at);
+        }
+    }
+}
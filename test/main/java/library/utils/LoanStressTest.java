@@ -0,0 +1,94 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hammers DataManager from many threads at once. Every thread borrows one of a
+ * few scarce copies and then races the others to return loans, and each loan is
+ * offered for return twice. A watcher thread checks all the while that the
+ * number of open loans never exceeds the copies on the shelf. At the end every
+ * copy must be back and every loan returned exactly once.
+ */
+class LoanStressTest {
+    private static final int COPIES = 3;
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 20_000;
+
+    @Test
+    void neverOverIssuesOrReturnsTwice() throws InterruptedException {
+        DataManager dm = DataManager.getInstance();
+        Book book = new Book(0, "Stress Test", "Nobody", "", true, "Test", "Test", "Z9", COPIES, COPIES);
+        dm.addBook(book);
+        int baseline = dm.getActiveLoansCount();
+
+        ConcurrentLinkedQueue<Transaction> toReturn = new ConcurrentLinkedQueue<>();
+        AtomicInteger borrowed = new AtomicInteger();
+        AtomicInteger returned = new AtomicInteger();
+        AtomicInteger violations = new AtomicInteger();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        Thread watcher = new Thread(() -> {
+            while (running.get()) {
+                int open = dm.getActiveLoansCount() - baseline;
+                int available = book.getAvailableQuantity();
+                if (open > COPIES || available < 0 || available > COPIES) {
+                    violations.incrementAndGet();
+                }
+            }
+        }, "stress-watcher");
+        watcher.start();
+
+        for (int i = 0; i < THREADS; i++) {
+            Member member = new Member(0, "Stress " + i, "stress" + i + "@test", "", LocalDate.now());
+            dm.addMember(member);
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int r = 0; r < ROUNDS; r++) {
+                        Transaction t = new Transaction(0, book, member, LocalDate.now(), LocalDate.now().plusDays(14));
+                        if (dm.addTransaction(t)) {
+                            borrowed.incrementAndGet();
+                            toReturn.add(t);
+                            toReturn.add(t);
+                        }
+                        Transaction next = toReturn.poll();
+                        if (next != null && dm.returnBook(next)) {
+                            returned.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "stress-" + i).start();
+        }
+
+        start.countDown();
+        done.await();
+        Transaction next;
+        while ((next = toReturn.poll()) != null) {
+            if (dm.returnBook(next)) returned.incrementAndGet();
+        }
+        running.set(false);
+        watcher.join();
+
+        assertEquals(0, violations.get(), "over-issues seen");
+        assertEquals(borrowed.get(), returned.get(), "loans returned");
+        assertEquals(COPIES, book.getAvailableQuantity(), "copies on the shelf");
+        assertEquals(baseline, dm.getActiveLoansCount(), "open loans");
+    }
+}
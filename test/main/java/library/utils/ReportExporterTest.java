@@ -0,0 +1,231 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exports the sample library with a book and a member whose names need quoting
+ * and escaping, and reads each format back.
+ */
+class ReportExporterTest {
+    private static final String TITLE = "a,\"b\"\n\t\u0001\\ end";
+    private static final String NAME = "O\"Hara, Jo\r\n";
+    private static final String AUTHOR = "Nobody \"Jr\"";
+
+    private static final DataManager dm = DataManager.getInstance();
+    private static Book book;
+    private static Member member;
+    private static Transaction loan;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void addAwkwardNames() {
+        book = new Book(0, TITLE, AUTHOR, "", true, "Test", "Test", "Z9", 2, 2);
+        dm.addBook(book);
+        member = new Member(0, NAME, "ohara@export.example", "", LocalDate.of(2024, 9, 1));
+        dm.addMember(member);
+        LocalDate today = LibraryClock.todayDate();
+        loan = new Transaction(0, book, member, today, today.plusDays(14));
+        assertTrue(dm.addTransaction(loan));
+    }
+
+    @Test
+    void writesNamesAsTheyAreInText() throws IOException {
+        String text = Files.readString(export(ReportExporter.Format.TEXT), StandardCharsets.UTF_8);
+        assertTrue(text.contains("  " + book.getId() + ". " + TITLE + " by " + AUTHOR + " [Test]"));
+        assertTrue(text.contains("  " + member.getId() + ". " + NAME + " (ohara@export.example) - Borrowed: 1\n"));
+        assertTrue(text.contains("  " + loan.getId() + ". " + TITLE + " -> " + NAME + " (Due: "));
+    }
+
+    @Test
+    void quotesFieldsInCsv() throws IOException {
+        Path file = export(ReportExporter.Format.CSV);
+        assertTrue(Files.readString(file, StandardCharsets.UTF_8).contains(",\"Nobody \"\"Jr\"\"\","),
+                "a quote alone is enough to quote the field");
+        CsvFile csv = new CsvFile(file);
+        List<List<String>> rows = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        for (CsvFile.Chunk chunk : csv.chunks()) {
+            CsvFile.RowReader reader = csv.rows(chunk);
+            while (reader.next(fields)) rows.add(new ArrayList<>(fields));
+        }
+
+        List<String> bookRow = find(rows, 9, 0, book.getId());
+        assertEquals(List.of(TITLE, AUTHOR, "", "Test", "Test", "Z9", "2", "1"), bookRow.subList(1, 9));
+        List<String> memberRow = find(rows, 6, 0, member.getId());
+        assertEquals(List.of(NAME, "ohara@export.example", "", "2024-09-01", "1"), memberRow.subList(1, 6));
+        List<String> loanRow = find(rows, 11, 0, loan.getId());
+        assertEquals(List.of(String.valueOf(book.getId()), TITLE, String.valueOf(member.getId()), NAME),
+                loanRow.subList(1, 5));
+    }
+
+    @Test
+    void escapesStringsInJsonLines() throws IOException {
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (String line : Files.readAllLines(export(ReportExporter.Format.JSON_LINES), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < line.length(); i++) {
+                assertTrue(line.charAt(i) >= 0x20, "control character in " + line);
+            }
+            records.add(new JsonObject(line).parse());
+        }
+        assertEquals("summary", records.get(0).get("type"));
+
+        Map<String, Object> bookRecord = find(records, "book", book.getId());
+        assertEquals(TITLE, bookRecord.get("title"));
+        assertEquals(AUTHOR, bookRecord.get("author"));
+        assertEquals(1L, bookRecord.get("available"));
+        Map<String, Object> memberRecord = find(records, "member", member.getId());
+        assertEquals(NAME, memberRecord.get("name"));
+        assertEquals("2024-09-01", memberRecord.get("memberSince"));
+        Map<String, Object> loanRecord = find(records, "loan", loan.getId());
+        assertEquals(TITLE, loanRecord.get("title"));
+        assertEquals(NAME, loanRecord.get("member"));
+        assertNull(loanRecord.get("returned"));
+        assertTrue(loanRecord.containsKey("returned"));
+        assertEquals(false, loanRecord.get("finePaid"));
+    }
+
+    @Test
+    void leavesNoFileWhenCancelled() throws IOException {
+        for (ReportExporter.Format format : ReportExporter.Format.values()) {
+            Path file = dir.resolve("cancelled." + format.getExtension());
+            Files.writeString(file, "an earlier report");
+            List<Integer> updates = new ArrayList<>();
+            assertFalse(new ReportExporter(dm).export(file, format, percent -> {
+                updates.add(percent);
+                return false;
+            }));
+            assertFalse(Files.exists(file), format.name());
+            assertEquals(1, updates.size(), "stops at the first refusal");
+        }
+    }
+
+    @Test
+    void stopsPartWayThroughALargeLibrary() throws IOException {
+        new LibraryDataGenerator(new LibraryDataGenerator.Options()
+                .books(5_000).members(5_000).years(1).loansPerMemberYear(2).seed(11)).generate().loadInto(dm);
+        Path file = dir.resolve("large.csv");
+        List<Integer> updates = new ArrayList<>();
+        assertFalse(new ReportExporter(dm).export(file, ReportExporter.Format.CSV, percent -> {
+            updates.add(percent);
+            return updates.size() < 3;
+        }));
+        assertEquals(3, updates.size());
+        assertTrue(updates.get(2) < 100, "cancelled before the end, at " + updates.get(2) + "%");
+        assertFalse(Files.exists(file));
+    }
+
+    private Path export(ReportExporter.Format format) throws IOException {
+        Path file = dir.resolve("report." + format.getExtension());
+        List<Integer> updates = new ArrayList<>();
+        assertTrue(new ReportExporter(dm).export(file, format, percent -> updates.add(percent)));
+        assertEquals(100, updates.get(updates.size() - 1));
+        return file;
+    }
+
+    // The row of a CSV section, told apart from the other sections by its width.
+    private static List<String> find(List<List<String>> rows, int width, int idColumn, int id) {
+        for (List<String> row : rows) {
+            if (row.size() == width && row.get(idColumn).equals(String.valueOf(id))) return row;
+        }
+        throw new AssertionError("no row of " + width + " fields with id " + id);
+    }
+
+    private static Map<String, Object> find(List<Map<String, Object>> records, String type, int id) {
+        for (Map<String, Object> record : records) {
+            if (type.equals(record.get("type")) && Long.valueOf(id).equals(record.get("id"))) return record;
+        }
+        throw new AssertionError("no " + type + " with id " + id);
+    }
+
+    /** Reads one flat JSON object: strings, whole or decimal numbers, booleans and null. */
+    private static class JsonObject {
+        private final String text;
+        private int at;
+
+        JsonObject(String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> parse() {
+            Map<String, Object> fields = new HashMap<>();
+            expect('{');
+            do {
+                String name = string();
+                expect(':');
+                fields.put(name, value());
+            } while (text.charAt(at++) == ',');
+            assertEquals('}', text.charAt(at - 1), text);
+            assertEquals(text.length(), at, text);
+            return fields;
+        }
+
+        private Object value() {
+            char c = text.charAt(at);
+            if (c == '"') return string();
+            for (String word : new String[]{"true", "false", "null"}) {
+                if (text.startsWith(word, at)) {
+                    at += word.length();
+                    return word.equals("null") ? null : Boolean.valueOf(word);
+                }
+            }
+            int start = at;
+            while (at < text.length() && "-.0123456789".indexOf(text.charAt(at)) >= 0) at++;
+            String number = text.substring(start, at);
+            if (number.contains(".")) return Double.valueOf(number);
+            return Long.valueOf(number);
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = text.charAt(at++);
+                if (c == '"') return value.toString();
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escape = text.charAt(at++);
+                switch (escape) {
+                    case '"': case '\\': case '/': value.append(escape); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'u':
+                        value.append((char) Integer.parseInt(text.substring(at, at + 4), 16));
+                        at += 4;
+                        break;
+                    default: throw new AssertionError("bad escape \\" + escape + " in " + text);
+                }
+            }
+        }
+
+        private void expect(char c) {
+            assertEquals(c, text.charAt(at++), text);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package main.java.library.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Checks that the one-pass Reports figures agree with the running totals DataManager keeps. */
+class ReportMetricsTest {
+    @Test
+    void agreesWithRunningTotals() {
+        DataManager dm = DataManager.getInstance();
+        new LibraryDataGenerator(new LibraryDataGenerator.Options()
+                .books(5_000).members(5_000).years(3).loansPerMemberYear(12).seed(7)).generate().loadInto(dm);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ReportMetrics metrics = dm.computeReportMetrics(pool);
+            assertEquals(dm.getTotalBooks(), metrics.getTotalBooks());
+            assertEquals(dm.getActiveLoansCount(), metrics.getActiveLoans());
+            assertEquals(dm.getOverdueCount(), metrics.getOverdueLoans());
+            assertEquals(Math.round(dm.getTotalFinesCollected() * 100), metrics.getFinesCollectedCents());
+            assertEquals(Math.round(dm.getTotalOutstandingFines() * 100), metrics.getFinesOutstandingCents());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package main.java.library.utils;
+
+import main.java.library.models.Book;
+import main.java.library.models.BookRequest;
+import main.java.library.models.Member;
+import main.java.library.models.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Imports small rosters into the sample library. Every test files its members
+ * under emails of its own, since they share the one DataManager.
+ */
+class RosterSyncTest {
+    private final DataManager dm = DataManager.getInstance();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void addsAndUpdatesMatchingEmailsIgnoringCase() throws IOException {
+        Member ada = member("Ada", "ada@sync.example", "555-0100");
+        RosterImporter.Result result = importRoster(false,
+                "Name,EMAIL,student_id",
+                "\"Lovelace, Ada\",ADA@Sync.Example,1",
+                "Grace Hopper,grace@sync.example,2");
+
+        RosterImporter.Changes changes = result.getChanges();
+        assertEquals(2, result.getRows());
+        assertTrue(result.getProblems().isEmpty());
+        assertEquals(List.of(ada), changes.getUpdated());
+        assertEquals("Lovelace, Ada", ada.getName());
+        assertEquals("ADA@Sync.Example", ada.getEmail());
+        assertEquals("555-0100", ada.getPhone(), "no phone column leaves the phone as it was");
+
+        assertEquals(1, changes.getAdded().size());
+        Member grace = changes.getAdded().get(0);
+        assertSame(grace, dm.findMemberByEmail("GRACE@sync.example"));
+        assertEquals("", grace.getPhone());
+        assertTrue(changes.getRemoved().isEmpty());
+    }
+
+    @Test
+    void takesThePhoneWhenTheRosterHasOne() throws IOException {
+        Member bo = member("Bo", "bo@sync.example", "555-0101");
+        RosterImporter.Changes changes = importRoster(false,
+                "email,name,phone",
+                "bo@sync.example,Bo,555-0199").getChanges();
+        assertEquals(List.of(bo), changes.getUpdated());
+        assertEquals("555-0199", bo.getPhone());
+
+        changes = importRoster(false, "email,name,phone", "bo@sync.example,Bo,555-0199").getChanges();
+        assertTrue(changes.getUpdated().isEmpty(), "an unchanged row is not an update");
+    }
+
+    @Test
+    void rejectsBadRowsWithTheirNumbers() throws IOException {
+        RosterImporter.Result result = importRoster(false,
+                "name,email",
+                "Cy,cy@sync.example",
+                "Cy Again,CY@sync.example",
+                "Di,di-at-sync.example",
+                "Ed,ed@sync",
+                ",nameless@sync.example",
+                "Fay",
+                "",
+                "Gus,gus@sync.example");
+
+        List<String> problems = new ArrayList<>();
+        for (CatalogueImporter.Problem p : result.getProblems()) problems.add(p.getRow() + ": " + p.getMessage());
+        assertEquals(List.of(
+                "3: Duplicate email CY@sync.example, first seen on row 2",
+                "4: Invalid email di-at-sync.example",
+                "5: Invalid email ed@sync",
+                "6: Name is required",
+                "7: Email is required"), problems);
+        assertEquals(7, result.getRows(), "the blank line is not a row");
+        assertEquals(2, result.getChanges().getAdded().size());
+        assertNotNull(dm.findMemberByEmail("gus@sync.example"));
+        assertNull(dm.findMemberByEmail("di-at-sync.example"));
+    }
+
+    @Test
+    void refusesARosterWithNoValidRow() throws IOException {
+        int before = dm.getTotalMembers();
+        assertThrows(IOException.class, () -> importRoster(true, "name,email", "Hal,not-an-email", ",hal@sync.example"));
+        assertThrows(IOException.class, () -> importRoster(true, "name,phone", "Hal,555-0102"));
+        assertEquals(before, dm.getTotalMembers());
+    }
+
+    @Test
+    void removesOnlyMembersNothingTiesToTheLibrary() throws IOException {
+        Member leaver = member("Ivy", "ivy@sync.example", "");
+        Member borrower = member("Jo", "jo@sync.example", "");
+        Member requester = member("Kit", "kit@sync.example", "");
+        Member unreachable = member("Lee", "", "");
+        Book book = new Book(0, "Roster Sync", "Nobody", "", true, "Test", "Test", "Z9", 1, 1);
+        dm.addBook(book);
+        LocalDate today = LibraryClock.todayDate();
+        assertTrue(dm.addTransaction(new Transaction(0, book, borrower, today, today.plusDays(14))));
+        dm.addBookRequest(new BookRequest(0, requester, "Neuromancer", "William Gibson", "Course reading"));
+
+        RosterImporter.Changes changes = importRoster(true, "name,email", "Mo,mo@sync.example").getChanges();
+
+        assertTrue(changes.getRemoved().contains(leaver));
+        assertNull(dm.getMemberById(leaver.getId()));
+        assertNull(dm.findMemberByEmail("ivy@sync.example"));
+        for (Member kept : List.of(borrower, requester, dm.getCurrentUser())) {
+            assertTrue(changes.getKept().contains(kept));
+            assertSame(kept, dm.getMemberById(kept.getId()));
+        }
+        assertSame(unreachable, dm.getMemberById(unreachable.getId()), "a member without an email is never removed");
+        assertFalse(changes.getRemoved().contains(unreachable));
+        for (Member m : changes.getRemoved()) {
+            assertNull(dm.getMemberById(m.getId()));
+        }
+        assertNotNull(dm.findMemberByEmail("mo@sync.example"));
+    }
+
+    @Test
+    void syncsAGeneratedLibrary() throws IOException {
+        new LibraryDataGenerator(new LibraryDataGenerator.Options()
+                .books(200).members(2_000).years(1).loansPerMemberYear(2)).generate().loadInto(dm);
+        List<Member> members = dm.getMembers();
+        List<String> lines = new ArrayList<>();
+        lines.add("student_id,name,email,phone");
+        int dropped = 0;
+        int changed = 0;
+        for (int i = 0; i < members.size(); i++) {
+            Member m = members.get(i);
+            if (m.getEmail().isEmpty()) continue;
+            if (i % 10 == 0) {
+                dropped++;
+                continue;
+            }
+            String phone = m.getPhone();
+            if (i % 10 == 1) {
+                phone = "+1-555-" + (9000 + i % 1000);
+                if (!phone.equals(m.getPhone())) changed++;
+            }
+            lines.add(i + ",\"" + m.getName() + "\"," + m.getEmail() + "," + phone);
+        }
+        int added = 200;
+        for (int i = 0; i < added; i++) {
+            lines.add("n" + i + ",New Student " + i + ",new.student." + i + "@sync.example,");
+        }
+        int before = dm.getTotalMembers();
+
+        RosterImporter.Result result = importRoster(true, lines.toArray(new String[0]));
+
+        RosterImporter.Changes changes = result.getChanges();
+        assertTrue(result.getProblems().isEmpty());
+        assertEquals(added, changes.getAdded().size());
+        assertEquals(changed, changes.getUpdated().size());
+        assertEquals(dropped, changes.getRemoved().size() + changes.getKept().size());
+        for (Member m : changes.getKept()) {
+            assertTrue(m == dm.getCurrentUser() || hasPendingRequest(m)
+                    || dm.getMemberBorrowedCount(m) > 0 || dm.getMemberTotalFines(m) > 0, m.getName());
+        }
+        assertEquals(before + added - changes.getRemoved().size(), dm.getTotalMembers());
+    }
+
+    private boolean hasPendingRequest(Member member) {
+        for (BookRequest r : dm.getBookRequests()) {
+            if (r.isPending() && r.getRequestedBy() == member) return true;
+        }
+        return false;
+    }
+
+    private Member member(String name, String email, String phone) {
+        Member member = new Member(0, name, email, phone, LocalDate.of(2024, 9, 1));
+        dm.addMember(member);
+        return member;
+    }
+
+    private RosterImporter.Result importRoster(boolean removeMissing, String... lines) throws IOException {
+        Path file = dir.resolve("roster.csv");
+        Files.write(file, List.of(lines), StandardCharsets.UTF_8);
+        return new RosterImporter(dm).importFile(file, removeMissing, percent -> true);
+    }
+}
@@ -0,0 +1,88 @@
+package main.java.library.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SnapshotStoreTest {
+    // magic, version, lsn and state length
+    private static final int HEADER_BYTES = 20;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsTheNewestAndKeepsTwo() throws IOException {
+        SnapshotStore store = new SnapshotStore(dir);
+        assertNull(store.readLatest());
+
+        assertEquals(100, store.write(100, state("first")));
+        assertEquals(100, store.write(200, state("second")));
+        assertEquals(200, store.write(300, state("third")), "the journal is needed from the oldest kept snapshot");
+
+        assertEquals(List.of(snapshot(200).getFileName().toString(), snapshot(300).getFileName().toString()), files());
+        assertSnapshot(300, "third", store.readLatest());
+    }
+
+    @Test
+    void fallsBackWhenTheNewestIsCorrupt() throws IOException {
+        SnapshotStore store = new SnapshotStore(dir);
+        store.write(100, state("older"));
+        store.write(200, state("newer"));
+
+        try (FileChannel ch = FileChannel.open(snapshot(200), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            ch.read(b, HEADER_BYTES + 2);
+            b.put(0, (byte) (b.get(0) ^ 0x01));
+            ch.write(b.rewind(), HEADER_BYTES + 2);
+        }
+        assertSnapshot(100, "older", store.readLatest());
+    }
+
+    @Test
+    void fallsBackWhenTheNewestIsCutShort() throws IOException {
+        SnapshotStore store = new SnapshotStore(dir);
+        store.write(100, state("older"));
+        store.write(200, state("newer"));
+
+        try (FileChannel ch = FileChannel.open(snapshot(200), StandardOpenOption.WRITE)) {
+            ch.truncate(ch.size() - 1);
+        }
+        assertSnapshot(100, "older", store.readLatest());
+
+        Files.write(snapshot(100), new byte[0]);
+        assertNull(store.readLatest());
+    }
+
+    private static ByteBuffer state(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertSnapshot(long lsn, String text, SnapshotStore.Snapshot snapshot) {
+        assertEquals(lsn, snapshot.lsn);
+        assertEquals(state(text), snapshot.state);
+    }
+
+    private Path snapshot(long lsn) {
+        return dir.resolve(String.format("snapshot-%020d.bin", lsn));
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+}